@@ -0,0 +1,79 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dawg.Dawg;
+
+/**
+ * {@link DawgUpdateBenchmark} compares adding a word to the constructed
+ * {@link Dawg} of dictionary.txt, and removing it again, with building the
+ * graph of the dictionary plus that word from scratch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DawgUpdateBenchmark {
+	/**
+	 * A word that isn't in the dictionary and shares its prefix and suffix
+	 * with many words, so that shared nodes have to be copied.
+	 */
+	private static final String WORD = "anschreibung";
+
+	private List<String> words;
+	private Dawg dawg;
+
+	@Setup
+	public void buildDawg() {
+		List<String> formattedWords = Fixtures.formattedWords();
+		dawg = new Dawg();
+		for (String word : formattedWords) {
+			dawg.add(word);
+		}
+		dawg.construct();
+
+		words = new ArrayList<String>(formattedWords);
+		words.add(WORD);
+		Collections.sort(words);
+	}
+
+	/**
+	 * {@link Dawg#add(String)} and {@link Dawg#remove(String)} of a word on
+	 * the constructed graph, which is left as it was.
+	 */
+	@Benchmark
+	public Dawg addAndRemove() {
+		dawg.add(WORD);
+		dawg.remove(WORD);
+		return dawg;
+	}
+
+	/**
+	 * Building the graph of the dictionary plus the word.
+	 */
+	@Benchmark
+	public Dawg rebuild() {
+		Dawg rebuilt = new Dawg();
+		for (String word : words) {
+			rebuilt.add(word);
+		}
+		rebuilt.construct();
+		return rebuilt;
+	}
+}
@@ -0,0 +1,82 @@
+package benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dawg.CompiledDawg;
+import dawg.Dawg;
+import dawg.IDawg;
+import main.NumberEncoderApp;
+import encoder.NumberEncoder;
+
+/**
+ * {@link DictionaryBuildBenchmark} measures how long it takes to build the
+ * graphs of dictionary.txt.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DictionaryBuildBenchmark {
+	private List<String> formattedWords;
+	private List<String> words;
+
+	@Setup
+	public void readDictionary() {
+		formattedWords = Fixtures.formattedWords();
+		words = Fixtures.readLines(Fixtures.DICTIONARY);
+	}
+
+	/**
+	 * {@link Dawg#add(String)} and {@link Dawg#construct()} of the formatted
+	 * words.
+	 */
+	@Benchmark
+	public IDawg dawg() {
+		Dawg dawg = new Dawg();
+		for (String word : formattedWords) {
+			dawg.add(word);
+		}
+		dawg.construct();
+		return dawg;
+	}
+
+	/**
+	 * Same as {@link #dawg()} plus compiling the graph into arrays.
+	 */
+	@Benchmark
+	public IDawg compiledDawg() {
+		CompiledDawg dawg = new CompiledDawg();
+		for (String word : formattedWords) {
+			dawg.add(word);
+		}
+		dawg.construct();
+		return dawg;
+	}
+
+	/**
+	 * Everything the application does with the dictionary before encoding.
+	 */
+	@Benchmark
+	public NumberEncoder numberEncoder() {
+		NumberEncoder encoder = NumberEncoderApp.newEncoder();
+		for (String word : words) {
+			encoder.addWord(word);
+		}
+		encoder.prepare();
+		return encoder;
+	}
+}
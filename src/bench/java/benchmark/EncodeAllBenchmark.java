@@ -0,0 +1,100 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import encoder.NumberEncoder;
+
+/**
+ * {@link EncodeAllBenchmark} compares {@link NumberEncoder#encodeAll(Iterable)}
+ * with {@link NumberEncoder#encode(CharSequence)} on every number. The score
+ * is the number of phone numbers per second.
+ *
+ * The phone books are synthetic:
+ * <ul>
+ * <li>random: numbers of 1 to 50 characters like
+ * {@link PhonebookGenerator} writes, which hardly share any digits</li>
+ * <li>prefixed: one of 20 area codes of 4 to 7 digits followed by 4 to 8
+ * digits</li>
+ * <li>long-prefixed: one of 20 prefixes of 15 to 25 digits followed by 4 to 8
+ * digits, like extensions of a few switchboards</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EncodeAllBenchmark {
+	private static final int PHONE_NUMBERS = 10000;
+	private static final int PREFIXES = 20;
+
+	@Param({ "random", "prefixed", "long-prefixed" })
+	public String phonebook;
+
+	private NumberEncoder encoder;
+	private List<String> numbers;
+
+	@Setup
+	public void prepare() {
+		encoder = Fixtures.newEncoder();
+
+		Random random = new Random(PhonebookGenerator.DEFAULT_SEED);
+		numbers = new ArrayList<String>(PHONE_NUMBERS);
+		if (phonebook.equals("random")) {
+			for (int i = 0; i < PHONE_NUMBERS; i++) {
+				numbers.add(PhonebookGenerator.nextNumber(random));
+			}
+			return;
+		}
+
+		int prefixLength = phonebook.equals("prefixed") ? 4 : 15;
+		String[] prefixes = new String[PREFIXES];
+		for (int p = 0; p < PREFIXES; p++) {
+			prefixes[p] = digits(random, prefixLength + random.nextInt(prefixLength / 2 + 2)) + "/";
+		}
+		for (int i = 0; i < PHONE_NUMBERS; i++) {
+			numbers.add(prefixes[random.nextInt(PREFIXES)] + digits(random, 4 + random.nextInt(5)));
+		}
+	}
+
+	private static String digits(Random random, int length) {
+		StringBuilder digits = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			digits.append((char) ('0' + random.nextInt(10)));
+		}
+		return digits.toString();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PHONE_NUMBERS)
+	public int encode() {
+		int count = 0;
+		for (String number : numbers) {
+			count += encoder.encode(number).length;
+		}
+		return count;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PHONE_NUMBERS)
+	public List<String[]> encodeAll() {
+		return encoder.encodeAll(numbers);
+	}
+}
@@ -0,0 +1,72 @@
+package benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import main.NumberEncoderApp;
+import visitors.DawgVisitor;
+import dawg.Dawg;
+import encoder.NumberEncoder;
+
+/**
+ * {@link EncodeAllocationBenchmark} measures how many bytes the current thread
+ * allocates per {@link NumberEncoder#encode(CharSequence)} call, using the
+ * allocation counter of the HotSpot thread MX bean. Unlike the JMH
+ * benchmarks, it compares the application's configuration to the original
+ * {@link Dawg} and {@link DawgVisitor}.
+ *
+ * Usage: EncodeAllocationBenchmark [phonebook] [dictionary]
+ */
+public class EncodeAllocationBenchmark {
+	private static final int WARM_UP_ROUNDS = 20;
+	private static final int MEASURED_ROUNDS = 20;
+
+	public static void main(String[] args) {
+		String phonebook = args.length > 0 ? args[0] : "input.txt";
+		String dictionary = args.length > 1 ? args[1] : "dictionary.txt";
+
+		List<String> numbers = Fixtures.readLines(phonebook);
+		List<String> words = Fixtures.readLines(dictionary);
+
+		Dawg dawg = new Dawg();
+		report("Dawg + DawgVisitor", numbers, prepare(new NumberEncoder(Fixtures.DIGIT_TO_CHARACTER_MAPPING, dawg, new DawgVisitor(dawg)), words));
+
+		report("NumberEncoderApp configuration", numbers, prepare(NumberEncoderApp.newEncoder(), words));
+	}
+
+	private static NumberEncoder prepare(NumberEncoder encoder, List<String> words) {
+		for (String word : words) {
+			encoder.addWord(word);
+		}
+		encoder.prepare();
+		return encoder;
+	}
+
+	private static void report(String name, List<String> numbers, NumberEncoder encoder) {
+		for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+			encodeAll(numbers, encoder);
+		}
+
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+
+		long encodings = 0;
+		long before = threads.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < MEASURED_ROUNDS; i++) {
+			encodings += encodeAll(numbers, encoder);
+		}
+		long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+		long calls = (long) numbers.size() * MEASURED_ROUNDS;
+		System.out.printf("%-45s %10.1f bytes/encode() %10.1f bytes/encoding%n", name, (double) allocated / calls,
+				encodings == 0 ? 0.0 : (double) allocated / encodings);
+	}
+
+	private static long encodeAll(List<String> numbers, NumberEncoder encoder) {
+		long encodings = 0;
+		for (String number : numbers) {
+			encodings += encoder.encode(number).length;
+		}
+		return encodings;
+	}
+}
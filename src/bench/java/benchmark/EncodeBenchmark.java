@@ -0,0 +1,66 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import encoder.NumberEncoder;
+
+/**
+ * {@link EncodeBenchmark} measures {@link NumberEncoder#encode(CharSequence)} on the
+ * numbers of input.txt, grouped by length:
+ * <ul>
+ * <li>short: at most 10 characters</li>
+ * <li>medium: 11 to 30 characters</li>
+ * <li>long: 45 to 50 characters</li>
+ * </ul>
+ * Every invocation encodes the next number of the group.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EncodeBenchmark {
+	@Param({ "short", "medium", "long" })
+	public String length;
+
+	private NumberEncoder encoder;
+	private String[] numbers;
+	private int next;
+
+	@Setup
+	public void prepare() {
+		encoder = Fixtures.newEncoder();
+
+		List<String> selected = new ArrayList<String>();
+		for (String number : Fixtures.readLines(Fixtures.PHONEBOOK)) {
+			if (length.equals("short") && number.length() <= 10
+					|| length.equals("medium") && number.length() > 10 && number.length() <= 30
+					|| length.equals("long") && number.length() >= 45) {
+				selected.add(number);
+			}
+		}
+		numbers = selected.toArray(new String[selected.size()]);
+	}
+
+	@Benchmark
+	public String[] encode() {
+		String number = numbers[next];
+		next = next + 1 == numbers.length ? 0 : next + 1;
+		return encoder.encode(number);
+	}
+}
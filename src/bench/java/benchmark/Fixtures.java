@@ -0,0 +1,97 @@
+package benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import main.NumberEncoderApp;
+import encoder.NumberEncoder;
+
+/**
+ * {@link Fixtures} provides the data shared by the benchmarks. Files are read
+ * relative to the project directory, which is the working directory of the
+ * benchmark profile.
+ */
+final class Fixtures {
+	static final String DICTIONARY = "dictionary.txt";
+	static final String PHONEBOOK = "input.txt";
+
+	private static final String[] ENDINGS = { "", "e", "en", "er", "es", "s", "ung" };
+
+	static final Map<Integer, char[]> DIGIT_TO_CHARACTER_MAPPING = new HashMap<Integer, char[]>() {
+		{
+			put(0, new char[] { 'e' });
+			put(1, new char[] { 'j', 'n', 'q' });
+			put(2, new char[] { 'r', 'w', 'x' });
+			put(3, new char[] { 'd', 's', 'y' });
+			put(4, new char[] { 'f', 't' });
+			put(5, new char[] { 'a', 'm' });
+			put(6, new char[] { 'c', 'i', 'v' });
+			put(7, new char[] { 'b', 'k', 'u' });
+			put(8, new char[] { 'l', 'o', 'p' });
+			put(9, new char[] { 'g', 'h', 'z' });
+		}
+	};
+
+	private Fixtures() {
+	}
+
+	static List<String> readLines(String path) {
+		try {
+			return Files.readAllLines(Paths.get(path), StandardCharsets.ISO_8859_1);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * @return the words of the dictionary formatted like
+	 *         {@link NumberEncoder#addWord(String)} does, in dictionary order
+	 */
+	static List<String> formattedWords() {
+		List<String> words = new ArrayList<String>();
+		for (String word : readLines(DICTIONARY)) {
+			words.add(word.replace("\"", "").replace("-", "").toLowerCase());
+		}
+		return words;
+	}
+
+	/**
+	 * @return every formatted word of the dictionary with a few German
+	 *         endings, sorted and without duplicates, which makes a lexicon
+	 *         several times larger than the dictionary that shares many
+	 *         suffixes across first characters
+	 */
+	static List<String> inflectedWords() {
+		TreeSet<String> lexicon = new TreeSet<String>();
+		for (String word : formattedWords()) {
+			for (String ending : ENDINGS) {
+				lexicon.add(word + ending);
+			}
+		}
+		return new ArrayList<String>(lexicon);
+	}
+
+	/**
+	 * @return an encoder configured like the application's, prepared with the
+	 *         dictionary
+	 */
+	static NumberEncoder newEncoder() {
+		return prepare(NumberEncoderApp.newEncoder());
+	}
+
+	static NumberEncoder prepare(NumberEncoder encoder) {
+		for (String word : readLines(DICTIONARY)) {
+			encoder.addWord(word);
+		}
+		encoder.prepare();
+		return encoder;
+	}
+}
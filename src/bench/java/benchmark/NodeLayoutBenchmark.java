@@ -0,0 +1,119 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dawg.CompiledDawg;
+import dawg.ProfilingDawg;
+import encoder.NumberEncoder;
+import visitors.DawgVisitor;
+import visitors.EncodingPath;
+import visitors.PathListener;
+
+/**
+ * {@link NodeLayoutBenchmark} compares a {@link DawgVisitor} on a
+ * {@link CompiledDawg} in breadth-first order with the same graph reordered
+ * by the visits of a sample phone book. The score is the number of phone
+ * numbers per second.
+ *
+ * The sample and the measured phone book are generated with different seeds,
+ * so the layout is only guided by numbers like the measured ones, not by the
+ * same numbers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class NodeLayoutBenchmark {
+	private static final int PHONE_NUMBERS = 10000;
+
+	@Param({ "dictionary", "inflected" })
+	public String lexicon;
+
+	@Param({ "breadth-first", "profiled" })
+	public String layout;
+
+	private NumberEncoder encoder;
+	private List<String> numbers;
+
+	@Setup
+	public void prepare() {
+		CompiledDawg dawg = new CompiledDawg();
+		encoder = new NumberEncoder(Fixtures.DIGIT_TO_CHARACTER_MAPPING, dawg, new DawgVisitor(dawg));
+		List<String> words = lexicon.equals("dictionary") ? Fixtures.readLines(Fixtures.DICTIONARY)
+				: Fixtures.inflectedWords();
+		for (String word : words) {
+			encoder.addWord(word);
+		}
+		encoder.prepare();
+
+		if (layout.equals("profiled"))
+			dawg.reorder(profile(dawg, phonebook(PhonebookGenerator.DEFAULT_SEED + 1)));
+		numbers = phonebook(PhonebookGenerator.DEFAULT_SEED);
+	}
+
+	/**
+	 * Count the visits of every node while the sample is searched like the
+	 * encoder searches it.
+	 */
+	private static long[] profile(CompiledDawg dawg, List<String> sample) {
+		ProfilingDawg profiling = new ProfilingDawg(dawg);
+		DawgVisitor visitor = new DawgVisitor(profiling);
+		char[][] digitToCharacters = new char[10][];
+		for (int digit = 0; digit < 10; digit++) {
+			digitToCharacters[digit] = Fixtures.DIGIT_TO_CHARACTER_MAPPING.get(digit);
+		}
+		PathListener listener = new PathListener() {
+			public boolean onPath(EncodingPath path) {
+				return true;
+			}
+		};
+
+		for (String number : sample) {
+			int[] digits = new int[number.length()];
+			int length = 0;
+			for (int i = 0; i < number.length(); i++) {
+				if (Character.isDigit(number.charAt(i)))
+					digits[length++] = number.charAt(i) - '0';
+			}
+			visitor.visit(digits, length, digitToCharacters, listener);
+		}
+		return profiling.getVisits();
+	}
+
+	private static List<String> phonebook(long seed) {
+		Random random = new Random(seed);
+		List<String> numbers = new ArrayList<String>(PHONE_NUMBERS);
+		for (int i = 0; i < PHONE_NUMBERS; i++) {
+			numbers.add(PhonebookGenerator.nextNumber(random));
+		}
+		return numbers;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PHONE_NUMBERS)
+	public int encode() {
+		int count = 0;
+		for (String number : numbers) {
+			count += encoder.encode(number).length;
+		}
+		return count;
+	}
+}
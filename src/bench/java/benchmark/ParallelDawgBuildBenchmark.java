@@ -0,0 +1,78 @@
+package benchmark;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dawg.Dawg;
+import dawg.IDawg;
+import dawg.ParallelDawgBuilder;
+
+/**
+ * {@link ParallelDawgBuildBenchmark} measures how building a graph in shards
+ * scales with the number of threads, against adding the words one by one.
+ *
+ * The lexicon is {@link Fixtures#inflectedWords()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParallelDawgBuildBenchmark {
+	@Param({ "1", "2", "4", "8" })
+	public int parallelism;
+
+	private List<String> words;
+	private ForkJoinPool pool;
+	private ParallelDawgBuilder builder;
+
+	@Setup
+	public void createLexicon() {
+		words = Fixtures.inflectedWords();
+		pool = new ForkJoinPool(parallelism);
+		builder = new ParallelDawgBuilder(pool);
+	}
+
+	@TearDown
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * {@link Dawg#add(String)} and {@link Dawg#construct()} of every word,
+	 * the same for every parallelism.
+	 */
+	@Benchmark
+	public IDawg sequential() {
+		Dawg dawg = new Dawg();
+		for (String word : words) {
+			dawg.add(word);
+		}
+		dawg.construct();
+		return dawg;
+	}
+
+	/**
+	 * {@link ParallelDawgBuilder#build(List)} on a pool of the given
+	 * parallelism.
+	 */
+	@Benchmark
+	public IDawg parallel() {
+		return builder.build(words);
+	}
+}
@@ -0,0 +1,75 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.NumberEncoderApp;
+
+/**
+ * {@link PhonebookBenchmark} runs {@link NumberEncoderApp} end to end on a
+ * synthetic phone book from {@link PhonebookGenerator}, including reading the
+ * dictionary and writing the output. The output is discarded. The score is
+ * the number of phone numbers per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PhonebookBenchmark {
+	private static final int PHONE_NUMBERS = 100000;
+
+	@Param({ "1", "4" })
+	public int threads;
+
+	private File phonebook;
+	private PrintStream standardOutput;
+
+	@Setup
+	public void generatePhonebook() throws IOException {
+		phonebook = File.createTempFile("phonebook", ".txt");
+		PhonebookGenerator.generate(phonebook.toPath(), PHONE_NUMBERS, PhonebookGenerator.DEFAULT_SEED);
+
+		standardOutput = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+			}
+		}));
+	}
+
+	@TearDown
+	public void deletePhonebook() {
+		System.setOut(standardOutput);
+		phonebook.delete();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PHONE_NUMBERS)
+	public void run() throws IOException {
+		NumberEncoderApp.main(new String[] { phonebook.getPath(), Fixtures.DICTIONARY, "--threads",
+				String.valueOf(threads) });
+	}
+}
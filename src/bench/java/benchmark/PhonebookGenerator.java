@@ -0,0 +1,79 @@
+package benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * {@link PhonebookGenerator} writes synthetic phone books. A phone book only
+ * depends on its size and seed, so the same numbers can be used to compare
+ * any two versions of the encoder.
+ *
+ * Every number has 1 to 50 characters, like the specification allows. About
+ * one character in ten is a dash or a slash and the rest are digits.
+ *
+ * Usage: PhonebookGenerator &lt;output&gt; &lt;count&gt; [seed]
+ */
+public class PhonebookGenerator {
+	public static final long DEFAULT_SEED = 20140101L;
+
+	private static final int MAXIMUM_LENGTH = 50;
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: PhonebookGenerator <output> <count> [seed]");
+			return;
+		}
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_SEED;
+		generate(Paths.get(args[0]), Integer.parseInt(args[1]), seed);
+	}
+
+	/**
+	 * Write a phone book to a file.
+	 *
+	 * @param output
+	 *            the file
+	 * @param count
+	 *            the number of phone numbers
+	 * @param seed
+	 *            the seed of the random numbers
+	 * @throws IOException
+	 *             when the file can't be written
+	 */
+	public static void generate(Path output, int count, long seed) throws IOException {
+		BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.ISO_8859_1);
+		try {
+			generate(writer, count, seed);
+		} finally {
+			writer.close();
+		}
+	}
+
+	public static void generate(Writer writer, int count, long seed) throws IOException {
+		Random random = new Random(seed);
+		for (int i = 0; i < count; i++) {
+			writer.write(nextNumber(random));
+			writer.write('\n');
+		}
+	}
+
+	static String nextNumber(Random random) {
+		int length = 1 + random.nextInt(MAXIMUM_LENGTH);
+		StringBuilder number = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			int next = random.nextInt(20);
+			if (next == 0)
+				number.append('-');
+			else if (next == 1)
+				number.append('/');
+			else
+				number.append((char) ('0' + next % 10));
+		}
+		return number.toString();
+	}
+}
@@ -0,0 +1,98 @@
+package benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dawg.CompiledDawg;
+import dawg.Dawg;
+import dawg.IDawg;
+import dawg.SuccinctDawg;
+
+/**
+ * {@link SuccinctDawgBenchmark} compares looking up words in a
+ * {@link SuccinctDawg} with the {@link Dawg} and the {@link CompiledDawg} of
+ * the same words, and prints the bits per word of each graph.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SuccinctDawgBenchmark {
+	private static final int LOOKUPS = 1024;
+
+	/**
+	 * The words of dictionary.txt, or {@link Fixtures#inflectedWords()}.
+	 */
+	@Param({ "dictionary", "inflected" })
+	public String lexicon;
+
+	private char[][] lookups;
+	private Dawg dawg;
+	private CompiledDawg compiledDawg;
+	private SuccinctDawg succinctDawg;
+
+	@Setup
+	public void buildGraphs() {
+		List<String> words = lexicon.equals("dictionary") ? Fixtures.formattedWords() : Fixtures.inflectedWords();
+		dawg = new Dawg();
+		for (String word : words) {
+			dawg.add(word);
+		}
+		dawg.construct();
+		compiledDawg = CompiledDawg.compile(dawg);
+		succinctDawg = SuccinctDawg.compile(dawg);
+
+		Random random = new Random(42);
+		lookups = new char[LOOKUPS][];
+		for (int i = 0; i < LOOKUPS; i++) {
+			lookups[i] = words.get(random.nextInt(words.size())).toCharArray();
+		}
+
+		for (IDawg graph : new IDawg[] { dawg, compiledDawg, succinctDawg }) {
+			System.out.printf("%n%s: %d words, %d bytes, %.1f bits per word%n", graph.getClass().getSimpleName(),
+					graph.getWordCount(), graph.getByteSize(), graph.getByteSize() * 8.0 / graph.getWordCount());
+		}
+	}
+
+	private static int lookUp(IDawg graph, char[][] words) {
+		int sum = 0;
+		for (char[] word : words) {
+			sum += graph.getWordIndex(word, 0, word.length);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public int dawg() {
+		return lookUp(dawg, lookups);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public int compiledDawg() {
+		return lookUp(compiledDawg, lookups);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public int succinctDawg() {
+		return lookUp(succinctDawg, lookups);
+	}
+}
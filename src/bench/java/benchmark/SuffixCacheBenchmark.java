@@ -0,0 +1,104 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dawg.Dawg;
+import encoder.NumberEncoder;
+import visitors.DawgVisitor;
+import visitors.SuffixCache;
+
+/**
+ * {@link SuffixCacheBenchmark} compares a {@link DawgVisitor} with and
+ * without a {@link SuffixCache}. The score is the number of phone numbers per
+ * second.
+ *
+ * The phone books are synthetic:
+ * <ul>
+ * <li>random: numbers like {@link PhonebookGenerator} writes, which hardly
+ * share any digits</li>
+ * <li>extensions: 1 to 6 random digits followed by one of 20 extensions of 6
+ * to 10 digits, so that most numbers end with digits encoded before</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SuffixCacheBenchmark {
+	private static final int PHONE_NUMBERS = 10000;
+	private static final int EXTENSIONS = 20;
+	private static final long CACHE_WEIGHT = 16 << 20;
+
+	@Param({ "random", "extensions" })
+	public String phonebook;
+
+	@Param({ "false", "true" })
+	public boolean cached;
+
+	private NumberEncoder encoder;
+	private List<String> numbers;
+
+	@Setup
+	public void prepare() {
+		Dawg dawg = new Dawg();
+		DawgVisitor visitor = cached ? new DawgVisitor(dawg, new SuffixCache(CACHE_WEIGHT)) : new DawgVisitor(dawg);
+		encoder = new NumberEncoder(Fixtures.DIGIT_TO_CHARACTER_MAPPING, dawg, visitor);
+		for (String word : Fixtures.readLines(Fixtures.DICTIONARY)) {
+			encoder.addWord(word);
+		}
+		encoder.prepare();
+
+		Random random = new Random(PhonebookGenerator.DEFAULT_SEED);
+		numbers = new ArrayList<String>(PHONE_NUMBERS);
+		if (phonebook.equals("random")) {
+			for (int i = 0; i < PHONE_NUMBERS; i++) {
+				numbers.add(PhonebookGenerator.nextNumber(random));
+			}
+			return;
+		}
+
+		String[] extensions = new String[EXTENSIONS];
+		for (int e = 0; e < EXTENSIONS; e++) {
+			extensions[e] = digits(random, 6 + random.nextInt(5));
+		}
+		for (int i = 0; i < PHONE_NUMBERS; i++) {
+			numbers.add(digits(random, 1 + random.nextInt(6)) + "-" + extensions[random.nextInt(EXTENSIONS)]);
+		}
+	}
+
+	private static String digits(Random random, int length) {
+		StringBuilder digits = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			digits.append((char) ('0' + random.nextInt(10)));
+		}
+		return digits.toString();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PHONE_NUMBERS)
+	public int encode() {
+		int count = 0;
+		for (String number : numbers) {
+			count += encoder.encode(number).length;
+		}
+		return count;
+	}
+}
@@ -0,0 +1,172 @@
+package dawg;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * {@link BitVector} is an immutable sequence of bits kept in direct buffers,
+ * off the heap, that can count the ones before a position (rank) and find the
+ * position of the n-th zero (select).
+ * 
+ * The number of ones before every block of 512 bits is stored, so a rank
+ * counts at most 8 words with {@link Long#bitCount(long)}, which adds 6.25%
+ * to the bits. The position of every 64th zero is stored too, so a select
+ * only counts the zeros of the words from there to the zero it looks for,
+ * which adds half a bit per zero.
+ */
+final class BitVector {
+	private static final int WORDS_PER_BLOCK = 8;
+	private static final int ZEROS_PER_SAMPLE = 64;
+
+	private final int length;
+	private final LongBuffer words;
+
+	/**
+	 * The number of ones before each block. The last element is the total
+	 * number of ones.
+	 */
+	private final IntBuffer blockRanks;
+
+	/**
+	 * The position of every 64th zero.
+	 */
+	private final IntBuffer zeroSamples;
+
+	/**
+	 * @param bits
+	 *            the bits, the first bit being the lowest bit of the first
+	 *            long, and all bits from the length on being zero
+	 * @param length
+	 *            the number of bits
+	 */
+	BitVector(long[] bits, int length) {
+		this.length = length;
+		this.words = directLongs(bits);
+
+		int blockCount = (bits.length + WORDS_PER_BLOCK - 1) / WORDS_PER_BLOCK;
+		int[] ranks = new int[blockCount + 1];
+		for (int block = 0; block < blockCount; block++) {
+			int rank = ranks[block];
+			for (int w = block * WORDS_PER_BLOCK; w < Math.min(bits.length, (block + 1) * WORDS_PER_BLOCK); w++) {
+				rank += Long.bitCount(bits[w]);
+			}
+			ranks[block + 1] = rank;
+		}
+		this.blockRanks = directInts(ranks);
+
+		int zeroCount = length - ranks[blockCount];
+		int[] samples = new int[(zeroCount + ZEROS_PER_SAMPLE - 1) / ZEROS_PER_SAMPLE];
+		int zeros = 0;
+		for (int position = 0; position < length; position++) {
+			if ((bits[position >>> 6] & (1L << position)) == 0) {
+				if (zeros % ZEROS_PER_SAMPLE == 0)
+					samples[zeros / ZEROS_PER_SAMPLE] = position;
+				zeros++;
+			}
+		}
+		this.zeroSamples = directInts(samples);
+	}
+
+	static LongBuffer directLongs(long[] values) {
+		LongBuffer buffer = ByteBuffer.allocateDirect(values.length * 8).order(ByteOrder.nativeOrder()).asLongBuffer();
+		buffer.put(values).flip();
+		return buffer;
+	}
+
+	static IntBuffer directInts(int[] values) {
+		IntBuffer buffer = ByteBuffer.allocateDirect(values.length * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+		buffer.put(values).flip();
+		return buffer;
+	}
+
+	/**
+	 * @return the number of bits
+	 */
+	int length() {
+		return length;
+	}
+
+	/**
+	 * @param position
+	 *            the position of a bit
+	 * @return true if the bit is one
+	 */
+	boolean get(int position) {
+		return (words.get(position >>> 6) & (1L << position)) != 0;
+	}
+
+	/**
+	 * @param position
+	 *            a position from 0 to the length
+	 * @return the number of ones before the position
+	 */
+	int rank1(int position) {
+		int word = position >>> 6;
+		int block = word / WORDS_PER_BLOCK;
+		int rank = blockRanks.get(block);
+		for (int w = block * WORDS_PER_BLOCK; w < word; w++) {
+			rank += Long.bitCount(words.get(w));
+		}
+		int bit = position & 63;
+		if (bit != 0)
+			rank += Long.bitCount(words.get(word) & ((1L << bit) - 1));
+		return rank;
+	}
+
+	/**
+	 * @param n
+	 *            the number of zeros before the zero to find
+	 * @return the position of the zero
+	 */
+	int select0(int n) {
+		int sample = zeroSamples.get(n / ZEROS_PER_SAMPLE);
+		int rest = n % ZEROS_PER_SAMPLE;
+		int word = sample >>> 6;
+		long zeros = ~words.get(word) & (-1L << sample);
+		while (true) {
+			int count = Long.bitCount(zeros);
+			if (rest < count)
+				return (word << 6) + selectInWord(zeros, rest);
+			rest -= count;
+			zeros = ~words.get(++word);
+		}
+	}
+
+	private static int selectInWord(long bits, int n) {
+		// skip whole bytes first, then clear the lowest ones of the last byte
+		int shift = 0;
+		int count;
+		while (n >= (count = Long.bitCount(bits & 0xFF))) {
+			n -= count;
+			bits >>>= 8;
+			shift += 8;
+		}
+		for (int i = 0; i < n; i++) {
+			bits &= bits - 1;
+		}
+		return shift + Long.numberOfTrailingZeros(bits);
+	}
+
+	/**
+	 * @param position
+	 *            a position
+	 * @return the position of the first zero from the position on
+	 */
+	int nextZero(int position) {
+		int word = position >>> 6;
+		long zeros = ~words.get(word) & (-1L << position);
+		while (zeros == 0) {
+			zeros = ~words.get(++word);
+		}
+		return (word << 6) + Long.numberOfTrailingZeros(zeros);
+	}
+
+	/**
+	 * @return the size of the bits and the directories in bytes
+	 */
+	long getByteSize() {
+		return words.capacity() * 8L + blockRanks.capacity() * 4L + zeroSamples.capacity() * 4L;
+	}
+}
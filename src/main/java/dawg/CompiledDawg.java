@@ -0,0 +1,500 @@
+package dawg;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import image.ImageReader;
+import image.ImageWriter;
+
+/**
+ * {@link CompiledDawg} implements {@link IDawg} interface. Words are added to
+ * an internal {@link Dawg} and minimized as usual, but {@link #construct()}
+ * then freezes the graph into a handful of primitive arrays and drops the
+ * {@link DawgNode} objects.
+ *
+ * Nodes are numbered in breadth-first order starting with the root at 0. The
+ * edges of node n are stored at indices firstEdge[n] to firstEdge[n + 1] - 1
+ * of edgeLabels and edgeTargets, sorted by label so that a child can be found
+ * with a binary search. Final states are kept as bits of a long array, and
+ * the number of words reachable from every node in an int array, which gives
+ * every word a dense index with {@link #getWordIndex(char[], int, int)}.
+ *
+ * Compared to the object graph, there's no map, no boxed character and no
+ * node object per node, so a node costs 8 bytes and a bit, and an edge costs
+ * 6 bytes.
+ *
+ * Besides the {@link IDawgNode} view, the graph can be walked with plain int
+ * node indices through {@link #getRootIndex()}, {@link #getChildIndex(int,
+ * char)} and {@link #isFinal(int)}, which don't allocate anything.
+ *
+ * The arrays are held as buffers, so that a graph written to an image with
+ * {@link #writeTo(ImageWriter)} can be used right from the mapped file with
+ * {@link #read(ImageReader)}, without copying it to the heap.
+ *
+ * Breadth-first order has nothing to do with the nodes a search visits
+ * often. A {@link ProfilingDawg} counts the visits of every node while a
+ * sample is encoded, and {@link #reorder(long[])} renumbers the nodes by
+ * those counts, so that the nodes visited most share cache lines and pages.
+ * The word indices don't depend on the order of the nodes, so they stay the
+ * same.
+ *
+ */
+public class CompiledDawg implements IDawg {
+	/**
+	 * Index returned by {@link #getChildIndex(int, char)} if there's no such
+	 * edge.
+	 */
+	public static final int NO_NODE = -1;
+
+	private static final int ROOT = 0;
+
+	/**
+	 * The graph words are added to. It's released once the graph is compiled.
+	 */
+	private Dawg builder;
+
+	/**
+	 * Index of the first edge of each node. The last element is the total
+	 * number of edges.
+	 */
+	private IntBuffer firstEdge;
+
+	/**
+	 * Characters of the edges, sorted per node.
+	 */
+	private CharBuffer edgeLabels;
+
+	/**
+	 * Index of the child node each edge leads to.
+	 */
+	private IntBuffer edgeTargets;
+
+	/**
+	 * Final state of each node, one bit per node.
+	 */
+	private LongBuffer finalBits;
+
+	/**
+	 * Number of words reachable from each node, counting the node itself if
+	 * it's final.
+	 */
+	private IntBuffer wordCounts;
+
+	public CompiledDawg() {
+		builder = new Dawg();
+	}
+
+	/**
+	 * Compile a constructed {@link Dawg}. The {@link Dawg} isn't modified.
+	 *
+	 * @param dawg
+	 *            the constructed graph
+	 * @return the compiled graph
+	 */
+	public static CompiledDawg compile(Dawg dawg) {
+		CompiledDawg compiledDawg = new CompiledDawg();
+		compiledDawg.builder = null;
+		compiledDawg.compile((DawgNode) dawg.getRoot());
+		return compiledDawg;
+	}
+
+	/**
+	 * Read a graph written with {@link #writeTo(ImageWriter)}. The graph is
+	 * constructed and its arrays are views of the image.
+	 *
+	 * @param image
+	 *            the image
+	 * @return the graph
+	 */
+	public static CompiledDawg read(ImageReader image) {
+		int nodeCount = image.readInt();
+		int edgeCount = image.readInt();
+
+		CompiledDawg compiledDawg = new CompiledDawg();
+		compiledDawg.builder = null;
+		compiledDawg.firstEdge = image.readInts(nodeCount + 1);
+		compiledDawg.edgeLabels = image.readChars(edgeCount);
+		compiledDawg.edgeTargets = image.readInts(edgeCount);
+		compiledDawg.finalBits = image.readLongs(finalBitsLength(nodeCount));
+		compiledDawg.wordCounts = image.readInts(nodeCount);
+		return compiledDawg;
+	}
+
+	/**
+	 * Write the graph to an image.
+	 *
+	 * @param image
+	 *            the image
+	 * @throws IOException
+	 *             when the image can't be written
+	 * @throws IllegalStateException
+	 *             when the graph is not constructed yet
+	 */
+	public void writeTo(ImageWriter image) throws IOException {
+		checkConstructed();
+		image.writeInt(getSize());
+		image.writeInt(getEdgeCount());
+		image.writeInts(firstEdge);
+		image.writeChars(edgeLabels);
+		image.writeInts(edgeTargets);
+		image.writeLongs(finalBits);
+		image.writeInts(wordCounts);
+	}
+
+	private static int finalBitsLength(int nodeCount) {
+		return (nodeCount + 63) >>> 6;
+	}
+
+	/**
+	 * Add a word to the graph. Words must be added in alphabetical order or a
+	 * WordsNotAddedInAlphabeticOrderException is thrown.
+	 *
+	 * @param word
+	 *            the word
+	 * @throws IllegalStateException
+	 *             when the graph is already constructed
+	 */
+	public void add(String word) {
+		if (builder == null) {
+			throw new IllegalStateException("graph is already constructed");
+		}
+		builder.add(word);
+	}
+
+	public void construct() {
+		if (builder == null) {
+			throw new IllegalStateException("graph is already constructed");
+		}
+		builder.construct();
+		compile((DawgNode) builder.getRoot());
+
+		// the node objects aren't needed any more
+		builder = null;
+	}
+
+	/**
+	 * Number the nodes in breadth-first order and copy their edges and final
+	 * states into the arrays.
+	 *
+	 * @param root
+	 *            the root of a constructed graph
+	 */
+	private void compile(DawgNode root) {
+		// the graph is minimized, so identity is enough to tell nodes apart
+		// and it's much cheaper than DawgNode.equals
+		Map<DawgNode, Integer> indices = new IdentityHashMap<DawgNode, Integer>();
+		List<DawgNode> nodes = new ArrayList<DawgNode>();
+		int edgeCount = 0;
+
+		indices.put(root, ROOT);
+		nodes.add(root);
+		for (int i = 0; i < nodes.size(); i++) {
+			DawgNode node = nodes.get(i);
+			for (int c = 0; c < node.getChildCount(); c++) {
+				DawgNode child = node.getChildAt(c);
+				edgeCount++;
+				if (!indices.containsKey(child)) {
+					indices.put(child, nodes.size());
+					nodes.add(child);
+				}
+			}
+		}
+
+		int[] firstEdge = new int[nodes.size() + 1];
+		char[] edgeLabels = new char[edgeCount];
+		int[] edgeTargets = new int[edgeCount];
+		long[] finalBits = new long[finalBitsLength(nodes.size())];
+		int[] wordCounts = new int[nodes.size()];
+
+		int edge = 0;
+		for (int i = 0; i < nodes.size(); i++) {
+			DawgNode node = nodes.get(i);
+			firstEdge[i] = edge;
+			if (node.isFinal()) {
+				finalBits[i >>> 6] |= 1L << i;
+			}
+			wordCounts[i] = node.countWords();
+
+			// the edges of a node are sorted already
+			for (int c = 0; c < node.getChildCount(); c++) {
+				edgeLabels[edge] = node.getEdge(c);
+				edgeTargets[edge] = indices.get(node.getChildAt(c));
+				edge++;
+			}
+		}
+		firstEdge[nodes.size()] = edge;
+
+		this.firstEdge = IntBuffer.wrap(firstEdge);
+		this.edgeLabels = CharBuffer.wrap(edgeLabels);
+		this.edgeTargets = IntBuffer.wrap(edgeTargets);
+		this.finalBits = LongBuffer.wrap(finalBits);
+		this.wordCounts = IntBuffer.wrap(wordCounts);
+	}
+
+	/**
+	 * Renumber the nodes so that the nodes that were visited come first, in
+	 * breadth-first order from the root through visited nodes only, and the
+	 * visited children of a node next to each other, the most visited first.
+	 * The nodes never visited follow in breadth-first order. So the nodes a
+	 * search goes through are packed into as few cache lines and pages as
+	 * possible, and siblings stay together like in breadth-first order. The
+	 * arrays are replaced, so the graph must not be walked meanwhile, and
+	 * node indices taken before don't hold any more.
+	 *
+	 * @param visits
+	 *            the number of visits of every node, like
+	 *            {@link ProfilingDawg#getVisits()} returns them
+	 * @throws IllegalArgumentException
+	 *             when there's not one count per node
+	 */
+	public void reorder(final long[] visits) {
+		checkConstructed();
+		int nodeCount = getSize();
+		if (visits.length != nodeCount)
+			throw new IllegalArgumentException("Expected " + nodeCount + " visit counts but got " + visits.length);
+
+		// a node is only visited through a visited parent, so the visited
+		// nodes are all reached first; the order array is the queue
+		int[] order = new int[nodeCount];
+		boolean[] placed = new boolean[nodeCount];
+		order[0] = ROOT;
+		placed[ROOT] = true;
+		int count = 1;
+		for (int i = 0; i < count; i++) {
+			int node = order[i];
+			int first = count;
+			for (int edge = firstEdge.get(node); edge < firstEdge.get(node + 1); edge++) {
+				int child = edgeTargets.get(edge);
+				if (!placed[child] && visits[child] > 0) {
+					placed[child] = true;
+					order[count++] = child;
+				}
+			}
+			sortByVisits(order, first, count, visits);
+		}
+		for (int i = 0; i < count; i++) {
+			int node = order[i];
+			for (int edge = firstEdge.get(node); edge < firstEdge.get(node + 1); edge++) {
+				int child = edgeTargets.get(edge);
+				if (!placed[child]) {
+					placed[child] = true;
+					order[count++] = child;
+				}
+			}
+		}
+		int[] indices = new int[nodeCount];
+		for (int i = 0; i < nodeCount; i++) {
+			indices[order[i]] = i;
+		}
+
+		int[] firstEdge = new int[nodeCount + 1];
+		char[] edgeLabels = new char[getEdgeCount()];
+		int[] edgeTargets = new int[edgeLabels.length];
+		long[] finalBits = new long[finalBitsLength(nodeCount)];
+		int[] wordCounts = new int[nodeCount];
+		int edge = 0;
+		for (int i = 0; i < nodeCount; i++) {
+			int node = order[i];
+			firstEdge[i] = edge;
+			if (isFinal(node)) {
+				finalBits[i >>> 6] |= 1L << i;
+			}
+			wordCounts[i] = this.wordCounts.get(node);
+			for (int e = this.firstEdge.get(node); e < this.firstEdge.get(node + 1); e++) {
+				edgeLabels[edge] = this.edgeLabels.get(e);
+				edgeTargets[edge] = indices[this.edgeTargets.get(e)];
+				edge++;
+			}
+		}
+		firstEdge[nodeCount] = edge;
+
+		this.firstEdge = IntBuffer.wrap(firstEdge);
+		this.edgeLabels = CharBuffer.wrap(edgeLabels);
+		this.edgeTargets = IntBuffer.wrap(edgeTargets);
+		this.finalBits = LongBuffer.wrap(finalBits);
+		this.wordCounts = IntBuffer.wrap(wordCounts);
+	}
+
+	/**
+	 * Sort a few nodes by descending visits, by insertion since a node has
+	 * only a few children.
+	 */
+	private static void sortByVisits(int[] nodes, int from, int to, long[] visits) {
+		for (int i = from + 1; i < to; i++) {
+			int node = nodes[i];
+			int j = i - 1;
+			while (j >= from && visits[nodes[j]] < visits[node]) {
+				nodes[j + 1] = nodes[j];
+				j--;
+			}
+			nodes[j + 1] = node;
+		}
+	}
+
+	private void checkConstructed() {
+		if (builder != null) {
+			throw new IllegalStateException("graph is not constructed yet");
+		}
+	}
+
+	/**
+	 * @return the index of the root node
+	 */
+	public int getRootIndex() {
+		return ROOT;
+	}
+
+	/**
+	 * Find the child of a node with the specified edge.
+	 *
+	 * @param node
+	 *            the node index
+	 * @param edge
+	 *            the edge
+	 * @return the index of the child node, or {@link #NO_NODE} if there's no
+	 *         such edge.
+	 */
+	public int getChildIndex(int node, char edge) {
+		int low = firstEdge.get(node);
+		int high = firstEdge.get(node + 1) - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			char label = edgeLabels.get(middle);
+			if (label < edge) {
+				low = middle + 1;
+			} else if (label > edge) {
+				high = middle - 1;
+			} else {
+				return edgeTargets.get(middle);
+			}
+		}
+		return NO_NODE;
+	}
+
+	/**
+	 * @param node
+	 *            the node index
+	 * @return true if the node is the last node of a word.
+	 */
+	public boolean isFinal(int node) {
+		return (finalBits.get(node >>> 6) & (1L << node)) != 0;
+	}
+
+	public int getWordCount() {
+		checkConstructed();
+		return wordCounts.get(ROOT);
+	}
+
+	public long getModificationCount() {
+		return 0;
+	}
+
+	public int getWordIndex(char[] characters, int start, int length) {
+		checkConstructed();
+		int node = ROOT;
+		int index = 0;
+		for (int i = start; i < start + length; i++) {
+			if (isFinal(node))
+				index++;
+
+			// the words behind smaller edges come first
+			char ch = characters[i];
+			int edge = firstEdge.get(node);
+			int end = firstEdge.get(node + 1);
+			while (edge < end && edgeLabels.get(edge) < ch) {
+				index += wordCounts.get(edgeTargets.get(edge));
+				edge++;
+			}
+			if (edge == end || edgeLabels.get(edge) != ch)
+				return NO_WORD;
+			node = edgeTargets.get(edge);
+		}
+		return isFinal(node) ? index : NO_WORD;
+	}
+
+	public IDawgNode getRoot() {
+		checkConstructed();
+		return new Node(ROOT);
+	}
+
+	public int getSize() {
+		checkConstructed();
+		return firstEdge.limit() - 1;
+	}
+
+	public long getByteSize() {
+		checkConstructed();
+		return firstEdge.capacity() * 4L + edgeLabels.capacity() * 2L + edgeTargets.capacity() * 4L
+				+ finalBits.capacity() * 8L + wordCounts.capacity() * 4L;
+	}
+
+	/**
+	 *
+	 * @return the number of edges in the graph.
+	 */
+	public int getEdgeCount() {
+		checkConstructed();
+		return edgeLabels.limit();
+	}
+
+	/**
+	 * {@link Node} is a light-weight {@link IDawgNode} view of a node index.
+	 *
+	 */
+	private class Node implements IDawgNode {
+		private final int index;
+
+		public Node(int index) {
+			this.index = index;
+		}
+
+		public boolean containsEdge(char edge) {
+			return getChildIndex(index, edge) != NO_NODE;
+		}
+
+		public IDawgNode getChild(char edge) {
+			int child = getChildIndex(index, edge);
+			if (child == NO_NODE)
+				return null;
+			return new Node(child);
+		}
+
+		public boolean isFinal() {
+			return CompiledDawg.this.isFinal(index);
+		}
+
+		private CompiledDawg owner() {
+			return CompiledDawg.this;
+		}
+
+		@Override
+		public int hashCode() {
+			return index;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null)
+				return false;
+			if (getClass() != obj.getClass())
+				return false;
+
+			Node other = (Node) obj;
+			return index == other.index && owner() == other.owner();
+		}
+
+		@Override
+		public String toString() {
+			return "CompiledDawg.Node [index=" + index + ", isFinal="
+					+ isFinal() + "]";
+		}
+	}
+}
@@ -1,9 +1,7 @@
 package dawg;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * {@link Dawg} implements {@link IDawg} interface. {@link Dawg} stores the
@@ -16,21 +14,65 @@ import java.util.Map;
  * construction and production have common suffix "uction". Those common parts
  * may be duplicate.
  * 
+ * Once constructed, every node knows how many words are reachable from it, so
+ * a word's index in alphabetical order is found in a single walk: it's the
+ * number of words ending on the way plus those behind the smaller edges
+ * passed by. Those indices are a minimal perfect hash of the words.
+ * 
+ * A constructed graph can still be changed one word at a time, in any order,
+ * with {@link #add(String)} and {@link #remove(String)}. The registry of
+ * unique nodes is kept, and every node counts the edges leading to it. An
+ * update copies the nodes of the word's path from the first one shared with
+ * other prefixes, changes the path, and registers its nodes again from the
+ * end, merging them with equal nodes. The graph stays minimal, and an update
+ * takes time proportional to the length of the word, whatever the size of
+ * the graph.
+ * 
  */
 public class Dawg implements IDawg {
 	private long dawgNodeIdGenerator = 0;
 
 	private final DawgNode root;
 
-	private final Map<DawgNode, DawgNode> uniqueNodes;
+	private final NodeRegistry uniqueNodes;
 
 	private String lastAddedWord;
 
 	private final List<ParentEdgeChildNode> nodesWithDuplicates;
 
+	private boolean constructed;
+
+	private long modificationCount;
+
 	public Dawg() {
-		root = new DawgNode(dawgNodeIdGenerator++);
-		uniqueNodes = new HashMap<DawgNode, DawgNode>();
+		this(0);
+	}
+
+	/**
+	 * Create an empty graph whose node IDs start at a given ID, so that its
+	 * nodes can be merged with the nodes of other graphs.
+	 * 
+	 * @param firstNodeId
+	 *            the ID of the root node
+	 */
+	Dawg(long firstNodeId) {
+		this(new DawgNode(firstNodeId), new NodeRegistry(), firstNodeId + 1);
+	}
+
+	/**
+	 * Create a graph from a root node and the registry of all other nodes.
+	 * 
+	 * @param root
+	 *            the root node
+	 * @param uniqueNodes
+	 *            the registry
+	 * @param nextNodeId
+	 *            the ID of the next node created, which no node has yet
+	 */
+	Dawg(DawgNode root, NodeRegistry uniqueNodes, long nextNodeId) {
+		this.root = root;
+		this.uniqueNodes = uniqueNodes;
+		this.dawgNodeIdGenerator = nextNodeId;
 		lastAddedWord = "";
 		nodesWithDuplicates = new ArrayList<ParentEdgeChildNode>();
 
@@ -38,13 +80,20 @@ public class Dawg implements IDawg {
 	}
 
 	/**
-	 * Add a word to the graph. Words must be added in alphabetical order or a
-	 * WordsNotAddedInAlphabeticOrderException is thrown.
+	 * Add a word to the graph. Before the graph is constructed, words must be
+	 * added in alphabetical order or a
+	 * WordsNotAddedInAlphabeticOrderException is thrown. Once it's
+	 * constructed, words can be added in any order and the graph stays
+	 * minimal.
 	 * 
 	 * @param word
 	 *            the word
 	 */
 	public void add(String word) {
+		if (constructed) {
+			insert(word);
+			return;
+		}
 		if (lastAddedWord.compareTo(word) > 0) {
 			throw new WordsNotAddedInAlphabeticOrderException();
 		}
@@ -98,14 +147,14 @@ public class Dawg implements IDawg {
 			ParentEdgeChildNode node = nodesWithDuplicates.remove(i);
 
 			// if there's a matching node in checked list with the same final
-			// state, edges, and child node, the current node is a duplicate
-			if (uniqueNodes.containsKey(node.child)) {
+			// state, edges, and child node, the current node is a duplicate.
+			// Otherwise it's added to the checked list
+			DawgNode uniqueNode = uniqueNodes.register(node.child);
+			if (uniqueNode != node.child) {
 				// replace the duplicate reference with the matching one in the
 				// checked list
-				node.parent.addChild(node.edge, uniqueNodes.get(node.child));
-			} else {
-				// add node to checked list
-				uniqueNodes.put(node.child, node.child);
+				node.parent.addChild(node.edge, uniqueNode);
+				node.child.release();
 			}
 		}
 	}
@@ -138,6 +187,138 @@ public class Dawg implements IDawg {
 		// remove duplicate nodes for the entire unchecked list except root node
 		// and add the rest to the checked list
 		removeCommonSuffixFromEndOfWordToCommonPrefix(0);
+		root.countWords();
+		constructed = true;
+	}
+
+	/**
+	 * Add a word to the constructed graph.
+	 * 
+	 * @param word
+	 *            the word
+	 * @return false if the graph already contains the word
+	 */
+	private boolean insert(String word) {
+		DawgNode[] path = new DawgNode[word.length() + 1];
+		int prefixLength = findPath(word, path);
+		if (prefixLength == word.length() && path[prefixLength].isFinal()) {
+			return false;
+		}
+
+		unshare(word, path, prefixLength);
+		for (int i = prefixLength; i < word.length(); i++) {
+			DawgNode newNode = new DawgNode(dawgNodeIdGenerator++);
+			path[i].addChild(word.charAt(i), newNode);
+			path[i + 1] = newNode;
+		}
+		path[word.length()].setFinal();
+		reregister(word, path, word.length());
+		modificationCount++;
+		return true;
+	}
+
+	/**
+	 * Remove a word from the constructed graph. The graph stays minimal.
+	 * 
+	 * @param word
+	 *            the word
+	 * @return false if the graph doesn't contain the word
+	 * @throws IllegalStateException
+	 *             when the graph is not constructed yet
+	 */
+	public boolean remove(String word) {
+		if (!constructed) {
+			throw new IllegalStateException("graph is not constructed yet");
+		}
+		DawgNode[] path = new DawgNode[word.length() + 1];
+		if (findPath(word, path) < word.length() || !path[word.length()].isFinal()) {
+			return false;
+		}
+
+		unshare(word, path, word.length());
+		path[word.length()].clearFinal();
+
+		// drop the nodes only the word led to
+		int length = word.length();
+		while (length > 0 && !path[length].isFinal() && path[length].getChildCount() == 0) {
+			path[length - 1].removeChild(word.charAt(length - 1));
+			length--;
+		}
+		reregister(word, path, length);
+		modificationCount++;
+		return true;
+	}
+
+	/**
+	 * Follow the longest prefix of a word that's in the graph.
+	 * 
+	 * @param word
+	 *            the word
+	 * @param path
+	 *            the nodes of the prefix, starting with the root
+	 * @return the length of the prefix
+	 */
+	private int findPath(String word, DawgNode[] path) {
+		path[0] = root;
+		int length = 0;
+		while (length < word.length()) {
+			DawgNode child = (DawgNode) path[length].getChild(word.charAt(length));
+			if (child == null)
+				break;
+			path[length + 1] = child;
+			length++;
+		}
+		return length;
+	}
+
+	/**
+	 * Take the nodes of a path out of the registry, so that they can change.
+	 * A node is changed in place if only the path leads to it. From the first
+	 * node shared with other prefixes on, the nodes are copied instead, so
+	 * that the other prefixes keep their words.
+	 * 
+	 * @param word
+	 *            the word
+	 * @param path
+	 *            the nodes of the path, starting with the root
+	 * @param length
+	 *            the length of the path
+	 */
+	private void unshare(String word, DawgNode[] path, int length) {
+		int i = 1;
+		while (i <= length && path[i].getInDegree() == 1) {
+			uniqueNodes.remove(path[i]);
+			i++;
+		}
+		for (; i <= length; i++) {
+			DawgNode copy = path[i].copy(dawgNodeIdGenerator++);
+			path[i - 1].addChild(word.charAt(i - 1), copy);
+			path[i] = copy;
+		}
+	}
+
+	/**
+	 * Register the nodes of a changed path again, from the end, replacing
+	 * every node by an equal registered node if there's one.
+	 * 
+	 * @param word
+	 *            the word
+	 * @param path
+	 *            the nodes of the path, starting with the root
+	 * @param length
+	 *            the length of the path
+	 */
+	private void reregister(String word, DawgNode[] path, int length) {
+		for (int i = length; i > 0; i--) {
+			path[i].resetWordCount();
+			DawgNode uniqueNode = uniqueNodes.register(path[i]);
+			if (uniqueNode != path[i]) {
+				path[i - 1].addChild(word.charAt(i - 1), uniqueNode);
+				path[i].release();
+			}
+		}
+		root.resetWordCount();
+		root.countWords();
 	}
 
 	public IDawgNode getRoot() {
@@ -149,6 +330,39 @@ public class Dawg implements IDawg {
 		return uniqueNodes.size() + 1;
 	}
 
+	public int getWordCount() {
+		return root.countWords();
+	}
+
+	public long getModificationCount() {
+		return modificationCount;
+	}
+
+	public long getByteSize() {
+		return root.getByteSize() + uniqueNodes.getByteSize();
+	}
+
+	public int getWordIndex(char[] characters, int start, int length) {
+		DawgNode node = root;
+		int index = 0;
+		for (int i = start; i < start + length; i++) {
+			if (node.isFinal())
+				index++;
+
+			// the words behind smaller edges come first
+			char ch = characters[i];
+			int c = 0;
+			while (c < node.getChildCount() && node.getEdge(c) < ch) {
+				index += node.getChildAt(c).countWords();
+				c++;
+			}
+			if (c == node.getChildCount() || node.getEdge(c) != ch)
+				return NO_WORD;
+			node = node.getChildAt(c);
+		}
+		return node.isFinal() ? index : NO_WORD;
+	}
+
 	/**
 	 * {@link ParentEdgeChildNode} stores the reference to the current node
 	 * (child), parent node, and edge connecting them.
@@ -0,0 +1,152 @@
+package dawg;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link DawgFootprint} tells how big a graph is and how much it gains from
+ * sharing suffixes. The trie node count is the number of nodes a trie of the
+ * same words would have, one per distinct prefix, so the suffix sharing
+ * ratio is the share of those nodes the graph saves by merging equal
+ * suffixes.
+ *
+ * The byte sizes of the structures count their arrays and buffers, with 16
+ * byte array headers like a 64-bit JVM with compressed references. They're
+ * estimates for object graphs, and exact for buffers.
+ */
+public class DawgFootprint {
+	private final int nodeCount;
+	private final int edgeCount;
+	private final int wordCount;
+	private final long trieNodeCount;
+	private final long byteSize;
+
+	private DawgFootprint(int nodeCount, int edgeCount, int wordCount, long trieNodeCount, long byteSize) {
+		this.nodeCount = nodeCount;
+		this.edgeCount = edgeCount;
+		this.wordCount = wordCount;
+		this.trieNodeCount = trieNodeCount;
+		this.byteSize = byteSize;
+	}
+
+	/**
+	 * Measure a constructed graph by walking all its nodes.
+	 * 
+	 * @param dawg
+	 *            the graph
+	 * @param digitToCharacters
+	 *            the characters each digit can be encoded with, which are all
+	 *            the edge labels the graph can have
+	 * @return the footprint
+	 */
+	public static DawgFootprint of(IDawg dawg, char[][] digitToCharacters) {
+		Walk walk = new Walk(digitToCharacters);
+		long trieNodeCount = walk.countPrefixes(dawg.getRoot());
+		return new DawgFootprint(walk.nodes.size(), walk.edgeCount, dawg.getWordCount(), trieNodeCount,
+				dawg.getByteSize());
+	}
+
+	/**
+	 * @param length
+	 *            the number of elements
+	 * @param elementSize
+	 *            the size of an element in bytes
+	 * @return the size of an array with its header, aligned to 8 bytes
+	 */
+	public static long arrayBytes(long length, int elementSize) {
+		return (16 + length * elementSize + 7) & ~7L;
+	}
+
+	/**
+	 * {@link Walk} visits every node once and counts the prefixes below it.
+	 */
+	private static class Walk {
+		private final char[] alphabet;
+		private final Map<IDawgNode, Long> nodes = new HashMap<IDawgNode, Long>();
+		private int edgeCount;
+
+		public Walk(char[][] digitToCharacters) {
+			StringBuilder characters = new StringBuilder();
+			for (char[] row : digitToCharacters) {
+				if (row != null)
+					characters.append(row);
+			}
+			this.alphabet = characters.toString().toCharArray();
+		}
+
+		/**
+		 * @return the number of trie nodes of the suffixes from a node,
+		 *         including the node itself
+		 */
+		private long countPrefixes(IDawgNode node) {
+			Long known = nodes.get(node);
+			if (known != null)
+				return known;
+
+			long count = 1;
+			for (char ch : alphabet) {
+				if (node.containsEdge(ch)) {
+					edgeCount++;
+					count += countPrefixes(node.getChild(ch));
+				}
+			}
+			nodes.put(node, count);
+			return count;
+		}
+	}
+
+	/**
+	 * 
+	 * @return the number of nodes in the graph.
+	 */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * 
+	 * @return the number of edges in the graph.
+	 */
+	public int getEdgeCount() {
+		return edgeCount;
+	}
+
+	/**
+	 * 
+	 * @return the number of words in the graph.
+	 */
+	public int getWordCount() {
+		return wordCount;
+	}
+
+	/**
+	 * 
+	 * @return the number of nodes a trie of the same words would have.
+	 */
+	public long getTrieNodeCount() {
+		return trieNodeCount;
+	}
+
+	/**
+	 * 
+	 * @return the share of the trie nodes saved by sharing suffixes, from 0
+	 *         to 1.
+	 */
+	public double getSuffixSharingRatio() {
+		return trieNodeCount == 0 ? 0 : 1 - (double) nodeCount / trieNodeCount;
+	}
+
+	/**
+	 * 
+	 * @return the size of the graph in bytes.
+	 */
+	public long getByteSize() {
+		return byteSize;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("DawgFootprint [nodes=%d, edges=%d, words=%d, trieNodes=%d, suffixSharing=%.1f%%, bytes=%d]",
+				nodeCount, edgeCount, wordCount, trieNodeCount, getSuffixSharingRatio() * 100, byteSize);
+	}
+}
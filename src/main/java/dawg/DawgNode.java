@@ -1,52 +1,221 @@
 package dawg;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Arrays;
 
 /**
  * {@link DawgNode} implements the {@link IDawgNode} interface.
  * 
+ * The edges are kept sorted in a char array, with the child each edge leads
+ * to at the same index of a node array, so a node doesn't need a map or a
+ * boxed character per edge, and the structure of a node can be compared and
+ * hashed by walking both arrays in order.
+ * 
  */
 public class DawgNode implements IDawgNode {
+	private static final char[] NO_EDGES = new char[0];
+	private static final DawgNode[] NO_CHILDREN = new DawgNode[0];
+
 	/**
 	 * Unique node ID.
 	 */
 	private final long id;
 
 	/**
-	 * Child nodes reachable from the current node through an edge. The edge is
-	 * the Key of the Map and the Child is the Value.
+	 * Edges of the node in ascending order.
+	 */
+	private char[] edges;
+
+	/**
+	 * Child nodes reachable from the current node, at the index of the edge
+	 * leading to them.
 	 */
-	private final Map<Character, DawgNode> children;
+	private DawgNode[] children;
+
+	private int childCount;
 
 	/**
 	 * A node is final if it's the last node of a word.
 	 */
 	private boolean isFinal;
 
+	/**
+	 * Number of words reachable from the node, counting the node itself if
+	 * it's final, or -1 if they're not counted yet.
+	 */
+	private int wordCount = -1;
+
+	/**
+	 * Number of edges leading to the node. A node with more than one is
+	 * shared by several prefixes, so it must be copied before it's changed
+	 * for one of them.
+	 */
+	private int inDegree;
+
 	public DawgNode(long id) {
 		this.id = id;
-		children = new HashMap<Character, DawgNode>();
+		edges = NO_EDGES;
+		children = NO_CHILDREN;
 		isFinal = false;
 	}
 
 	public boolean containsEdge(char edge) {
-		return children.containsKey(edge);
+		return indexOf(edge) >= 0;
 	}
 
+	/**
+	 * Add a child node, or replace the child of an existing edge.
+	 * 
+	 * @param edge
+	 *            the edge
+	 * @param child
+	 *            the child node
+	 */
 	void addChild(char edge, DawgNode child) {
-		children.put(edge, child);
+		int index = indexOf(edge);
+		if (index >= 0) {
+			children[index].inDegree--;
+			children[index] = child;
+			child.inDegree++;
+			return;
+		}
+
+		if (childCount == edges.length) {
+			int capacity = Math.max(2, childCount * 2);
+			edges = Arrays.copyOf(edges, capacity);
+			children = Arrays.copyOf(children, capacity);
+		}
+
+		// words are added in order, so the new edge is usually the last one
+		index = -index - 1;
+		System.arraycopy(edges, index, edges, index + 1, childCount - index);
+		System.arraycopy(children, index, children, index + 1, childCount - index);
+		edges[index] = edge;
+		children[index] = child;
+		childCount++;
+		child.inDegree++;
+	}
+
+	/**
+	 * Remove an edge and the reference to its child.
+	 * 
+	 * @param edge
+	 *            the edge, which must exist
+	 */
+	void removeChild(char edge) {
+		int index = indexOf(edge);
+		children[index].inDegree--;
+		System.arraycopy(edges, index + 1, edges, index, childCount - index - 1);
+		System.arraycopy(children, index + 1, children, index, childCount - index - 1);
+		childCount--;
+		children[childCount] = null;
+	}
+
+	/**
+	 * Create a node with the same final state and edges, leading to the same
+	 * children.
+	 * 
+	 * @param id
+	 *            the ID of the new node
+	 * @return the new node, which no edge leads to yet
+	 */
+	DawgNode copy(long id) {
+		DawgNode copy = new DawgNode(id);
+		copy.isFinal = isFinal;
+		copy.edges = Arrays.copyOf(edges, childCount);
+		copy.children = Arrays.copyOf(children, childCount);
+		copy.childCount = childCount;
+		for (int i = 0; i < childCount; i++) {
+			children[i].inDegree++;
+		}
+		return copy;
+	}
+
+	/**
+	 * Drop the references to the children of a node that's no longer part of
+	 * the graph.
+	 */
+	void release() {
+		for (int i = 0; i < childCount; i++) {
+			children[i].inDegree--;
+		}
+	}
+
+	/**
+	 * @return the number of edges leading to the node
+	 */
+	int getInDegree() {
+		return inDegree;
 	}
 
 	public IDawgNode getChild(char edge) {
-		return children.get(edge);
+		int index = indexOf(edge);
+		return index >= 0 ? children[index] : null;
+	}
+
+	/**
+	 * @param edge
+	 *            the edge
+	 * @return the index of the edge, or (-(insertion point) - 1) if there's
+	 *         no such edge.
+	 */
+	private int indexOf(char edge) {
+		return Arrays.binarySearch(edges, 0, childCount, edge);
+	}
+
+	/**
+	 * @return the number of edges of the node
+	 */
+	int getChildCount() {
+		return childCount;
+	}
+
+	/**
+	 * @param index
+	 *            the index of the edge, from 0 to {@link #getChildCount()} - 1
+	 * @return the edge. Edges are in ascending order.
+	 */
+	char getEdge(int index) {
+		return edges[index];
+	}
+
+	/**
+	 * @param index
+	 *            the index of the edge, from 0 to {@link #getChildCount()} - 1
+	 * @return the child node the edge leads to
+	 */
+	DawgNode getChildAt(int index) {
+		return children[index];
 	}
 
 	public boolean isFinal() {
 		return isFinal;
 	}
 
+	/**
+	 * Count the words reachable from the node. The graph must not change
+	 * afterwards, since the counts of shared nodes are only computed once.
+	 * 
+	 * @return the number of words, counting the node itself if it's final
+	 */
+	int countWords() {
+		if (wordCount < 0) {
+			int count = isFinal ? 1 : 0;
+			for (int i = 0; i < childCount; i++) {
+				count += children[i].countWords();
+			}
+			wordCount = count;
+		}
+		return wordCount;
+	}
+
+	/**
+	 * Forget the number of words reachable from the node, once the words
+	 * below it changed.
+	 */
+	void resetWordCount() {
+		wordCount = -1;
+	}
+
 	/**
 	 * Mark the node final and end of a word.
 	 */
@@ -55,23 +224,38 @@ public class DawgNode implements IDawgNode {
 	}
 
 	/**
-	 * Construct a string to be used for hashing purpose. The string is
-	 * constructed based on the final state and all edges and children's ID.
-	 * 
-	 * @return a hash string
+	 * @return the size of the node and its arrays in bytes, as
+	 *         {@link DawgFootprint#getByteSize()} counts it
 	 */
-	private String hashString() {
-		String hash = String.valueOf(isFinal);
-		for (Entry<Character, DawgNode> e : children.entrySet()) {
-			hash += e.getKey();
-			hash += e.getValue().id;
-		}
-		return hash;
+	long getByteSize() {
+		// header, id, two references, three ints and a boolean
+		long byteSize = 48;
+		if (edges != NO_EDGES)
+			byteSize += DawgFootprint.arrayBytes(edges.length, 2) + DawgFootprint.arrayBytes(children.length, 4);
+		return byteSize;
 	}
 
+	/**
+	 * Mark the node as not the end of a word.
+	 */
+	void clearFinal() {
+		isFinal = false;
+	}
+
+	/**
+	 * The hash is based on the final state and all edges and children's ID,
+	 * in the order of the edges, so equal nodes have equal hashes whatever
+	 * order their edges were added in.
+	 */
 	@Override
 	public int hashCode() {
-		return hashString().hashCode();
+		int hash = isFinal ? 1 : 0;
+		for (int i = 0; i < childCount; i++) {
+			long childId = children[i].id;
+			hash = 31 * hash + edges[i];
+			hash = 31 * hash + (int) (childId ^ (childId >>> 32));
+		}
+		return hash;
 	}
 
 	@Override
@@ -91,14 +275,20 @@ public class DawgNode implements IDawgNode {
 
 		// If their IDs are different but with the same final state, edges and
 		// children, they are considered the same node.
-		return hashString().equals(other.hashString());
+		if (isFinal != other.isFinal || childCount != other.childCount)
+			return false;
+		for (int i = 0; i < childCount; i++) {
+			if (edges[i] != other.edges[i] || children[i].id != other.children[i].id)
+				return false;
+		}
+		return true;
 	}
 
 	@Override
 	public String toString() {
-		return "DawgNode [id=" + id + ", edges=" + children.keySet()
-				+ ", isFinal="
-				+ isFinal + "]";
+		return "DawgNode [id=" + id + ", edges="
+				+ Arrays.toString(Arrays.copyOf(edges, childCount))
+				+ ", isFinal=" + isFinal + "]";
 	}
 
 }
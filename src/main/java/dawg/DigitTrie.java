@@ -0,0 +1,314 @@
+package dawg;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import image.ImageReader;
+import image.ImageWriter;
+
+/**
+ * {@link DigitTrie} indexes words by the digits they encode to. Every letter is
+ * replaced by its digit, so the edges of the trie are the digits 0 to 9 and a
+ * node lists all words whose letters encode to the digit path from the root
+ * to the node. For example, with the mapping of the phone number encoder,
+ * "mir" and "mix" both encode to "562" and are listed in the same node.
+ *
+ * A phone number can then be matched digit by digit, with a single child per
+ * digit instead of up to three letters per digit as in the {@link IDawg}.
+ *
+ * Words don't need to be added in any particular order. The trie is not
+ * minimized, since nodes with different word lists can't be merged anyway.
+ * To keep it small, nodes are stored in arrays: each node keeps its first
+ * child and its next sibling, and each word the next word of the same node.
+ * A word isn't kept as characters, only as the rank it's added with, which
+ * indexes its spelling wherever the spellings are kept, so a visitor lists
+ * ranks and the spellings are only looked up for the output.
+ *
+ * A trie can be written to an image with {@link #writeTo(ImageWriter)} in a
+ * packed form, about a fifth of its arrays, and read back to the heap with
+ * {@link #read(ImageReader, Map)} in a single pass over the nodes.
+ *
+ */
+public class DigitTrie implements IDigitTrie {
+	private static final int ROOT = 0;
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	/**
+	 * Bit of a packed node telling that it lists words. Bits 0 to 9 tell
+	 * which digits it has a child for.
+	 */
+	private static final int WORDS_BIT = 1 << 10;
+
+	/**
+	 * Digit of each letter, -1 for characters without a digit.
+	 */
+	private final byte[] characterToDigit;
+
+	private byte[] digits;
+	private int[] firstChild;
+	private int[] nextSibling;
+	private int[] firstWord;
+	private int nodeCount;
+
+	private int[] ranks;
+	private int[] nextWord;
+	private int wordCount;
+
+	public DigitTrie(Map<Integer, char[]> digitToCharacterMapping) {
+		characterToDigit = new byte[Character.MAX_VALUE + 1];
+		Arrays.fill(characterToDigit, (byte) -1);
+		for (Entry<Integer, char[]> e : digitToCharacterMapping.entrySet()) {
+			for (char ch : e.getValue()) {
+				characterToDigit[ch] = e.getKey().byteValue();
+			}
+		}
+
+		digits = new byte[INITIAL_CAPACITY];
+		firstChild = new int[INITIAL_CAPACITY];
+		nextSibling = new int[INITIAL_CAPACITY];
+		firstWord = new int[INITIAL_CAPACITY];
+		ranks = new int[INITIAL_CAPACITY];
+		nextWord = new int[INITIAL_CAPACITY];
+
+		// the root node
+		newNode(-1);
+	}
+
+	/**
+	 * Add a word to the trie, ranked by the number of words added before it.
+	 *
+	 * @param word
+	 *            the word, which must only contain mapped characters
+	 * @throws IllegalArgumentException
+	 *             when a character of the word has no digit
+	 */
+	public void add(String word) {
+		add(word, wordCount);
+	}
+
+	/**
+	 * Add a word to the trie. The words of a node are listed in the order
+	 * they're added, and a word added twice is listed twice.
+	 *
+	 * @param word
+	 *            the word, which must only contain mapped characters
+	 * @param rank
+	 *            the rank of the word, which identifies its spelling
+	 * @throws IllegalArgumentException
+	 *             when a character of the word has no digit
+	 */
+	public void add(CharSequence word, int rank) {
+		int node = ROOT;
+		for (int i = 0; i < word.length(); i++) {
+			byte digit = characterToDigit[word.charAt(i)];
+			if (digit < 0) {
+				throw new IllegalArgumentException("No digit for '"
+						+ word.charAt(i) + "' in " + word);
+			}
+
+			int child = getChildIndex(node, digit);
+			if (child == NONE) {
+				child = newNode(digit);
+				nextSibling[child] = firstChild[node];
+				firstChild[node] = child;
+			}
+			node = child;
+		}
+		addWordToNode(node, rank);
+	}
+
+	private int newNode(int digit) {
+		if (nodeCount == digits.length) {
+			int capacity = nodeCount * 2;
+			digits = Arrays.copyOf(digits, capacity);
+			firstChild = Arrays.copyOf(firstChild, capacity);
+			nextSibling = Arrays.copyOf(nextSibling, capacity);
+			firstWord = Arrays.copyOf(firstWord, capacity);
+		}
+		digits[nodeCount] = (byte) digit;
+		firstChild[nodeCount] = NONE;
+		nextSibling[nodeCount] = NONE;
+		firstWord[nodeCount] = NONE;
+		return nodeCount++;
+	}
+
+	private void addWordToNode(int node, int rank) {
+		if (wordCount == ranks.length) {
+			int capacity = wordCount * 2;
+			ranks = Arrays.copyOf(ranks, capacity);
+			nextWord = Arrays.copyOf(nextWord, capacity);
+		}
+		ranks[wordCount] = rank;
+
+		// keep the words of a node in the order they were added
+		nextWord[wordCount] = NONE;
+		if (firstWord[node] == NONE) {
+			firstWord[node] = wordCount;
+		} else {
+			int last = firstWord[node];
+			while (nextWord[last] != NONE) {
+				last = nextWord[last];
+			}
+			nextWord[last] = wordCount;
+		}
+		wordCount++;
+	}
+
+	/**
+	 * Write the trie to an image, in the format read by
+	 * {@link #read(ImageReader, Map)}. The nodes are written in breadth-first
+	 * order, the children of a node by ascending digit, each node as a char
+	 * of its child digits and {@link #WORDS_BIT}. The node indices follow
+	 * from that order, so only the ranks of the words are written besides,
+	 * node by node, with the last rank of every node inverted.
+	 *
+	 * @param image
+	 *            the image
+	 * @throws IOException
+	 *             when the image can't be written
+	 */
+	public void writeTo(ImageWriter image) throws IOException {
+		int[] order = new int[nodeCount];
+		char[] nodes = new char[nodeCount];
+		int[] words = new int[wordCount];
+		int[] children = new int[10];
+		order[0] = ROOT;
+		int count = 1;
+		int w = 0;
+		for (int i = 0; i < nodeCount; i++) {
+			int node = order[i];
+			Arrays.fill(children, NONE);
+			for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+				children[digits[child]] = child;
+			}
+
+			int packed = 0;
+			for (int digit = 0; digit < children.length; digit++) {
+				if (children[digit] != NONE) {
+					packed |= 1 << digit;
+					order[count++] = children[digit];
+				}
+			}
+			if (firstWord[node] != NONE) {
+				packed |= WORDS_BIT;
+				for (int word = firstWord[node]; word != NONE; word = nextWord[word]) {
+					words[w++] = nextWord[word] == NONE ? ~ranks[word] : ranks[word];
+				}
+			}
+			nodes[i] = (char) packed;
+		}
+
+		image.writeInt(nodeCount);
+		image.writeInt(wordCount);
+		image.writeChars(CharBuffer.wrap(nodes));
+		image.writeInts(words, wordCount);
+	}
+
+	/**
+	 * Read a trie written with {@link #writeTo(ImageWriter)}. Its nodes are
+	 * numbered in breadth-first order, so the indices differ from the trie
+	 * written, but every digit path lists the same ranks in the same order.
+	 *
+	 * @param image
+	 *            the image
+	 * @param digitToCharacterMapping
+	 *            the mapping of the trie written
+	 * @return the trie
+	 */
+	public static DigitTrie read(ImageReader image, Map<Integer, char[]> digitToCharacterMapping) {
+		int nodeCount = image.readInt();
+		int wordCount = image.readInt();
+		CharBuffer nodes = image.readChars(nodeCount);
+		IntBuffer words = image.readInts(wordCount);
+
+		DigitTrie trie = new DigitTrie(digitToCharacterMapping);
+		trie.digits = new byte[nodeCount];
+		trie.firstChild = new int[nodeCount];
+		trie.nextSibling = new int[nodeCount];
+		trie.firstWord = new int[nodeCount];
+		trie.ranks = new int[wordCount];
+		trie.nextWord = new int[wordCount];
+
+		trie.digits[ROOT] = -1;
+		trie.nextSibling[ROOT] = NONE;
+		int next = ROOT + 1;
+		int w = 0;
+		for (int node = 0; node < nodeCount; node++) {
+			char packed = nodes.get(node);
+			int previous = NONE;
+			trie.firstChild[node] = NONE;
+			for (int digit = 0; digit < 10; digit++) {
+				if ((packed & (1 << digit)) == 0)
+					continue;
+				int child = next++;
+				trie.digits[child] = (byte) digit;
+				trie.nextSibling[child] = NONE;
+				if (previous == NONE)
+					trie.firstChild[node] = child;
+				else
+					trie.nextSibling[previous] = child;
+				previous = child;
+			}
+
+			trie.firstWord[node] = NONE;
+			if ((packed & WORDS_BIT) != 0) {
+				trie.firstWord[node] = w;
+				int rank;
+				do {
+					rank = words.get(w);
+					trie.ranks[w] = rank < 0 ? ~rank : rank;
+					trie.nextWord[w] = rank < 0 ? NONE : w + 1;
+					w++;
+				} while (rank >= 0);
+			}
+		}
+		trie.nodeCount = nodeCount;
+		trie.wordCount = wordCount;
+		return trie;
+	}
+
+	public int getRootIndex() {
+		return ROOT;
+	}
+
+	public int getChildIndex(int node, int digit) {
+		for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+			if (digits[child] == digit) {
+				return child;
+			}
+		}
+		return NONE;
+	}
+
+	public int getFirstWord(int node) {
+		return firstWord[node];
+	}
+
+	public int getNextWord(int word) {
+		return nextWord[word];
+	}
+
+	public int getWordRank(int word) {
+		return ranks[word];
+	}
+
+	public int getSize() {
+		return nodeCount;
+	}
+
+	public int getWordCount() {
+		return wordCount;
+	}
+
+	public long getByteSize() {
+		return DawgFootprint.arrayBytes(characterToDigit.length, 1) + DawgFootprint.arrayBytes(digits.length, 1)
+				+ DawgFootprint.arrayBytes(firstChild.length, 4) + DawgFootprint.arrayBytes(nextSibling.length, 4)
+				+ DawgFootprint.arrayBytes(firstWord.length, 4) + DawgFootprint.arrayBytes(ranks.length, 4)
+				+ DawgFootprint.arrayBytes(nextWord.length, 4);
+	}
+}
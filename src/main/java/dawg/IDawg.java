@@ -6,6 +6,12 @@ package dawg;
  */
 public interface IDawg {
 
+	/**
+	 * Index returned by {@link #getWordIndex(char[], int, int)} if there's no
+	 * such word.
+	 */
+	int NO_WORD = -1;
+
 	/**
 	 * Add a word to the graph.
 	 * 
@@ -33,4 +39,43 @@ public interface IDawg {
 	 */
 	int getSize();
 
+	/**
+	 * 
+	 * @return the number of words in the graph.
+	 */
+	int getWordCount();
+
+	/**
+	 * 
+	 * @return the number of times the graph has changed since it was
+	 *         constructed, so that data derived from it can tell whether
+	 *         it's still valid. A graph that can't change once it's
+	 *         constructed always returns 0.
+	 */
+	long getModificationCount();
+
+	/**
+	 * 
+	 * @return the size of the graph in bytes, as
+	 *         {@link DawgFootprint#getByteSize()} counts it.
+	 */
+	long getByteSize();
+
+	/**
+	 * Find the index of a word among all words of the graph in alphabetical
+	 * order. The indices are dense, from 0 to {@link #getWordCount()} - 1, so
+	 * they can index arrays of per-word data without any hash table. The
+	 * graph must be constructed.
+	 * 
+	 * @param characters
+	 *            the characters
+	 * @param start
+	 *            the index of the first character of the word
+	 * @param length
+	 *            the length of the word
+	 * @return the index of the word, or {@link #NO_WORD} if it's not in the
+	 *         graph.
+	 */
+	int getWordIndex(char[] characters, int start, int length);
+
 }
\ No newline at end of file
@@ -0,0 +1,77 @@
+package dawg;
+
+/**
+ * {@link IDigitTrie} provides an interface of a trie of words indexed by the
+ * digits they encode to. Nodes and words are identified by int indices, so
+ * a trie can be walked without creating any object. The trie doesn't keep
+ * the characters of the words, only the rank each word was added with, so
+ * the spellings are looked up by rank wherever they're kept.
+ *
+ */
+public interface IDigitTrie {
+	/**
+	 * Index returned by {@link #getChildIndex(int, int)} and
+	 * {@link #getFirstWord(int)} / {@link #getNextWord(int)} if there's no such
+	 * node or word.
+	 */
+	int NONE = -1;
+
+	/**
+	 * @return the index of the root node
+	 */
+	int getRootIndex();
+
+	/**
+	 * Find the child of a node with the specified digit.
+	 *
+	 * @param node
+	 *            the node index
+	 * @param digit
+	 *            the digit
+	 * @return the index of the child node, or {@link #NONE} if there's no such
+	 *         edge.
+	 */
+	int getChildIndex(int node, int digit);
+
+	/**
+	 * @param node
+	 *            the node index
+	 * @return the index of the first word listed in the node, or {@link #NONE}
+	 *         if the node lists no word.
+	 */
+	int getFirstWord(int node);
+
+	/**
+	 * @param word
+	 *            the word index
+	 * @return the index of the next word listed in the same node, or
+	 *         {@link #NONE} if it's the last one.
+	 */
+	int getNextWord(int word);
+
+	/**
+	 * @param word
+	 *            the word index
+	 * @return the rank the word was added with
+	 */
+	int getWordRank(int word);
+
+	/**
+	 *
+	 * @return the number of nodes in the trie.
+	 */
+	int getSize();
+
+	/**
+	 *
+	 * @return the number of words in the trie.
+	 */
+	int getWordCount();
+
+	/**
+	 *
+	 * @return the size of the trie in bytes, as
+	 *         {@link DawgFootprint#getByteSize()} counts it.
+	 */
+	long getByteSize();
+}
@@ -0,0 +1,140 @@
+package dawg;
+
+import java.util.Arrays;
+
+/**
+ * {@link NodeRegistry} holds the unique nodes of a {@link Dawg}, like a
+ * {@code HashMap<DawgNode, DawgNode>} from a node to its equal registered
+ * node.
+ * 
+ * A node's hash is computed once when it's looked up, since a node is only
+ * looked up after its children are final, and a registered node must be
+ * removed before it changes.
+ * The hashes are kept in an int array next to the nodes, so a lookup only
+ * compares the structure of nodes with the same hash. Collisions are resolved
+ * by linear probing in a table that's kept at most half full, and removals
+ * shift the following nodes back so that no probe sequence is broken.
+ * 
+ */
+class NodeRegistry {
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private DawgNode[] nodes;
+	private int[] hashes;
+	private int size;
+
+	public NodeRegistry() {
+		nodes = new DawgNode[INITIAL_CAPACITY];
+		hashes = new int[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Find the registered node equal to a node, or register the node if
+	 * there's none.
+	 * 
+	 * @param node
+	 *            the node, whose children are all registered already
+	 * @return the registered node, which is the node itself if it's new
+	 */
+	public DawgNode register(DawgNode node) {
+		int hash = spread(node.hashCode());
+		int mask = nodes.length - 1;
+		int slot = hash & mask;
+		while (nodes[slot] != null) {
+			if (hashes[slot] == hash && nodes[slot].equals(node)) {
+				return nodes[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		nodes[slot] = node;
+		hashes[slot] = hash;
+		if (++size * 2 > nodes.length) {
+			resize();
+		}
+		return node;
+	}
+
+	/**
+	 * Remove a registered node. The node must not have changed since it was
+	 * registered.
+	 * 
+	 * @param node
+	 *            the node
+	 * @return true if the node was registered
+	 */
+	public boolean remove(DawgNode node) {
+		int mask = nodes.length - 1;
+		int slot = spread(node.hashCode()) & mask;
+		while (nodes[slot] != node) {
+			if (nodes[slot] == null)
+				return false;
+			slot = (slot + 1) & mask;
+		}
+
+		// move back every following node that would no longer be found
+		// from its home slot
+		int next = slot;
+		while (true) {
+			next = (next + 1) & mask;
+			if (nodes[next] == null)
+				break;
+			int home = hashes[next] & mask;
+			boolean reachable = slot <= next ? slot < home && home <= next : slot < home || home <= next;
+			if (!reachable) {
+				nodes[slot] = nodes[next];
+				hashes[slot] = hashes[next];
+				slot = next;
+			}
+		}
+		nodes[slot] = null;
+		size--;
+		return true;
+	}
+
+	/**
+	 * @return the size of the registry and its nodes in bytes, as
+	 *         {@link DawgFootprint#getByteSize()} counts it
+	 */
+	public long getByteSize() {
+		long byteSize = DawgFootprint.arrayBytes(nodes.length, 4) + DawgFootprint.arrayBytes(hashes.length, 4);
+		for (DawgNode node : nodes) {
+			if (node != null)
+				byteSize += node.getByteSize();
+		}
+		return byteSize;
+	}
+
+	/**
+	 * @return the number of registered nodes
+	 */
+	public int size() {
+		return size;
+	}
+
+	private static int spread(int hash) {
+		// the hash mixes ids, which are small and sequential, so the high
+		// bits need to reach the slot index
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	private void resize() {
+		DawgNode[] oldNodes = nodes;
+		int[] oldHashes = hashes;
+		nodes = new DawgNode[oldNodes.length * 2];
+		hashes = new int[oldNodes.length * 2];
+
+		int mask = nodes.length - 1;
+		for (int i = 0; i < oldNodes.length; i++) {
+			if (oldNodes[i] != null) {
+				int slot = oldHashes[i] & mask;
+				while (nodes[slot] != null) {
+					slot = (slot + 1) & mask;
+				}
+				nodes[slot] = oldNodes[i];
+				hashes[slot] = oldHashes[i];
+			}
+		}
+	}
+}
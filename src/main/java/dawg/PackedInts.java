@@ -0,0 +1,85 @@
+package dawg;
+
+import java.nio.LongBuffer;
+
+/**
+ * {@link PackedInts} is an immutable array of non-negative ints that all take
+ * the same number of bits, just enough for the largest one, packed into
+ * longs in a direct buffer.
+ */
+final class PackedInts {
+	private final int size;
+	private final int bitsPerValue;
+	private final long mask;
+	private final LongBuffer words;
+
+	/**
+	 * @param values
+	 *            the values, none of them negative
+	 */
+	PackedInts(int[] values) {
+		int max = 0;
+		for (int value : values) {
+			max = Math.max(max, value);
+		}
+		this.size = values.length;
+		this.bitsPerValue = bitsFor(max);
+		this.mask = (1L << bitsPerValue) - 1;
+
+		long[] bits = new long[(int) (((long) values.length * bitsPerValue + 63) >>> 6)];
+		for (int i = 0; i < values.length; i++) {
+			long position = (long) i * bitsPerValue;
+			int word = (int) (position >>> 6);
+			int shift = (int) (position & 63);
+			bits[word] |= (long) values[i] << shift;
+			if (shift + bitsPerValue > 64)
+				bits[word + 1] |= (long) values[i] >>> (64 - shift);
+		}
+		this.words = BitVector.directLongs(bits);
+	}
+
+	/**
+	 * @param max
+	 *            a non-negative value
+	 * @return the number of bits needed for the value, at least 1
+	 */
+	static int bitsFor(int max) {
+		return Math.max(1, 32 - Integer.numberOfLeadingZeros(max));
+	}
+
+	/**
+	 * @return the number of values
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of bits of every value
+	 */
+	int getBitsPerValue() {
+		return bitsPerValue;
+	}
+
+	/**
+	 * @param index
+	 *            the index
+	 * @return the value at the index
+	 */
+	int get(int index) {
+		long position = (long) index * bitsPerValue;
+		int word = (int) (position >>> 6);
+		int shift = (int) (position & 63);
+		long value = words.get(word) >>> shift;
+		if (shift + bitsPerValue > 64)
+			value |= words.get(word + 1) << (64 - shift);
+		return (int) (value & mask);
+	}
+
+	/**
+	 * @return the size of the packed values in bytes
+	 */
+	long getByteSize() {
+		return words.capacity() * 8L;
+	}
+}
@@ -0,0 +1,174 @@
+package dawg;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import dawg.Dawg.WordsNotAddedInAlphabeticOrderException;
+
+/**
+ * {@link ParallelDawgBuilder} builds the same graph as adding the words to a
+ * {@link Dawg} one by one, on all the threads of a fork-join pool.
+ * 
+ * The sorted words are split into shards by their first character, and every
+ * shard builds a minimized graph of the rest of its words on its own. The
+ * root of a shard's graph becomes the child of the first character of the
+ * whole graph. Equal suffixes in different shards are then merged by
+ * registering every node again in a single registry, from the leaves up, so
+ * that a node's children are merged before the node itself is compared.
+ * 
+ * Every shard numbers its nodes from its own range of IDs, since nodes are
+ * told apart by the IDs of their children.
+ */
+public class ParallelDawgBuilder {
+	/**
+	 * The bits of a node ID numbering the nodes within a shard.
+	 */
+	private static final int SHARD_ID_BITS = 40;
+
+	private final ForkJoinPool pool;
+
+	/**
+	 * Build on the common fork-join pool.
+	 */
+	public ParallelDawgBuilder() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param pool
+	 *            the pool to build the shards on
+	 */
+	public ParallelDawgBuilder(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Build and construct the graph of some words.
+	 * 
+	 * @param words
+	 *            the words in alphabetical order
+	 * @return the constructed graph, which can still be changed like any
+	 *         constructed {@link Dawg}
+	 * @throws WordsNotAddedInAlphabeticOrderException
+	 *             when the words are not in alphabetical order
+	 */
+	public Dawg build(List<String> words) {
+		return pool.invoke(new Build(words));
+	}
+
+	/**
+	 * {@link Build} forks a task per shard and merges their graphs.
+	 */
+	private static class Build extends RecursiveTask<Dawg> {
+		private static final long serialVersionUID = 1L;
+
+		private final List<String> words;
+
+		public Build(List<String> words) {
+			this.words = words;
+		}
+
+		@Override
+		protected Dawg compute() {
+			DawgNode root = new DawgNode(0);
+			int start = 0;
+			if (!words.isEmpty() && words.get(0).isEmpty()) {
+				root.setFinal();
+				start = 1;
+			}
+
+			List<Shard> shards = new ArrayList<Shard>();
+			while (start < words.size()) {
+				String word = words.get(start);
+				if (word.isEmpty() || (!shards.isEmpty() && shards.get(shards.size() - 1).character > word.charAt(0)))
+					throw new WordsNotAddedInAlphabeticOrderException();
+				int end = start + 1;
+				while (end < words.size() && !words.get(end).isEmpty() && words.get(end).charAt(0) == word.charAt(0)) {
+					end++;
+				}
+				shards.add(new Shard(words.subList(start, end), (long) (shards.size() + 1) << SHARD_ID_BITS));
+				start = end;
+			}
+			invokeAll(shards);
+
+			Merge merge = new Merge();
+			for (Shard shard : shards) {
+				root.addChild(shard.character, merge.register(shard.getRawResult()));
+			}
+			Dawg dawg = new Dawg(root, merge.uniqueNodes, (long) (shards.size() + 1) << SHARD_ID_BITS);
+			dawg.construct();
+			return dawg;
+		}
+	}
+
+	/**
+	 * {@link Shard} builds the graph of the words starting with the same
+	 * character, without that character.
+	 */
+	private static class Shard extends RecursiveTask<DawgNode> {
+		private static final long serialVersionUID = 1L;
+
+		private final List<String> words;
+		private final char character;
+		private final long firstNodeId;
+
+		public Shard(List<String> words, long firstNodeId) {
+			this.words = words;
+			this.character = words.get(0).charAt(0);
+			this.firstNodeId = firstNodeId;
+		}
+
+		@Override
+		protected DawgNode compute() {
+			Dawg dawg = new Dawg(firstNodeId);
+			for (String word : words) {
+				dawg.add(word.substring(1));
+			}
+			dawg.construct();
+			return (DawgNode) dawg.getRoot();
+		}
+	}
+
+	/**
+	 * {@link Merge} registers the nodes of all shards in a shared registry.
+	 */
+	private static class Merge {
+		private final NodeRegistry uniqueNodes = new NodeRegistry();
+
+		/**
+		 * The registered node of every node visited, since a node can be
+		 * reached by several paths of its shard.
+		 */
+		private final Map<DawgNode, DawgNode> registered = new IdentityHashMap<DawgNode, DawgNode>();
+
+		/**
+		 * Register a node and its descendants, merging them with the equal
+		 * nodes registered already.
+		 * 
+		 * @param node
+		 *            the node
+		 * @return the registered node equal to the node
+		 */
+		public DawgNode register(DawgNode node) {
+			DawgNode known = registered.get(node);
+			if (known != null)
+				return known;
+
+			for (int i = 0; i < node.getChildCount(); i++) {
+				DawgNode child = node.getChildAt(i);
+				DawgNode uniqueChild = register(child);
+				if (uniqueChild != child)
+					node.addChild(node.getEdge(i), uniqueChild);
+			}
+			DawgNode uniqueNode = uniqueNodes.register(node);
+			if (uniqueNode != node)
+				node.release();
+			registered.put(node, uniqueNode);
+			return uniqueNode;
+		}
+	}
+}
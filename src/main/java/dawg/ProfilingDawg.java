@@ -0,0 +1,107 @@
+package dawg;
+
+/**
+ * {@link ProfilingDawg} counts the visits of every node of a
+ * {@link CompiledDawg} through an {@link IDawgNode} view, for
+ * {@link CompiledDawg#reorder(long[])}. A visitor walks the profiling graph
+ * while a sample is encoded, and the compiled graph is then reordered by the
+ * counts. The view of the compiled graph itself counts nothing, so only the
+ * sample pays for the profile.
+ *
+ * Visits from several threads at once may be lost, which only makes the
+ * counts less exact. Once the compiled graph is reordered, the profiling
+ * graph must not be walked any more, since its node indices don't hold.
+ *
+ */
+public class ProfilingDawg implements IDawg {
+	private final CompiledDawg dawg;
+
+	private final long[] visits;
+
+	/**
+	 * @param dawg
+	 *            the constructed graph to profile
+	 * @throws IllegalStateException
+	 *             when the graph is not constructed yet
+	 */
+	public ProfilingDawg(CompiledDawg dawg) {
+		this.dawg = dawg;
+		this.visits = new long[dawg.getSize()];
+	}
+
+	/**
+	 *
+	 * @return the number of visits of every node so far, indexed by node
+	 */
+	public long[] getVisits() {
+		return visits;
+	}
+
+	public void add(String word) {
+		dawg.add(word);
+	}
+
+	public void construct() {
+		dawg.construct();
+	}
+
+	public IDawgNode getRoot() {
+		int root = dawg.getRootIndex();
+		visits[root]++;
+		return new Node(root);
+	}
+
+	public int getSize() {
+		return dawg.getSize();
+	}
+
+	public int getWordCount() {
+		return dawg.getWordCount();
+	}
+
+	public long getModificationCount() {
+		return dawg.getModificationCount();
+	}
+
+	public long getByteSize() {
+		return dawg.getByteSize();
+	}
+
+	public int getWordIndex(char[] characters, int start, int length) {
+		return dawg.getWordIndex(characters, start, length);
+	}
+
+	/**
+	 * {@link Node} is a view of a node index that counts the visits of its
+	 * children.
+	 *
+	 */
+	private class Node implements IDawgNode {
+		private final int index;
+
+		public Node(int index) {
+			this.index = index;
+		}
+
+		public boolean containsEdge(char edge) {
+			return dawg.getChildIndex(index, edge) != CompiledDawg.NO_NODE;
+		}
+
+		public IDawgNode getChild(char edge) {
+			int child = dawg.getChildIndex(index, edge);
+			if (child == CompiledDawg.NO_NODE)
+				return null;
+			visits[child]++;
+			return new Node(child);
+		}
+
+		public boolean isFinal() {
+			return dawg.isFinal(index);
+		}
+
+		@Override
+		public String toString() {
+			return "ProfilingDawg.Node [index=" + index + ", visits=" + visits[index] + "]";
+		}
+	}
+}
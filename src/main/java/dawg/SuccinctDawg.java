@@ -0,0 +1,397 @@
+package dawg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link SuccinctDawg} implements {@link IDawg} interface with a few bits per
+ * edge, for lexicons of millions of words. Words are added to an internal
+ * {@link Dawg} and minimized as usual, then {@link #construct()} encodes the
+ * graph into bit vectors and packed arrays in direct buffers, so the graph
+ * neither takes heap nor gives the garbage collector anything to trace.
+ * 
+ * The nodes are numbered in breadth-first order, like {@link CompiledDawg}
+ * does, and the number of edges of every node is written in unary, as the
+ * level-order unary degree sequence (LOUDS) of a tree: one 1 per edge and a
+ * 0 to end the node. The edges of node n then start after its n-th 0, found
+ * with a select. The edges that first reach a node, in breadth-first order,
+ * form a spanning tree of the graph, and the k-th of those edges leads to
+ * node k + 1, so its target is a rank. Only the targets of the other edges,
+ * the ones shared suffixes add to the tree, are stored, each with just
+ * enough bits for a node index.
+ * 
+ * An edge label is stored as its index in the sorted alphabet of the graph.
+ * The edges of a node are sorted, so a child is found with a binary search
+ * over at most the size of the alphabet, whatever the size of the lexicon.
+ * 
+ * The graph is walked with int node indices through {@link #getRootIndex()},
+ * {@link #getChildIndex(int, char)} and {@link #isFinal(int)}, or through the
+ * {@link IDawgNode} view.
+ * 
+ */
+public class SuccinctDawg implements IDawg {
+	/**
+	 * Index returned by {@link #getChildIndex(int, char)} if there's no such
+	 * edge.
+	 */
+	public static final int NO_NODE = -1;
+
+	private static final int ROOT = 0;
+
+	/**
+	 * The graph words are added to. It's released once the graph is encoded.
+	 */
+	private Dawg builder;
+
+	private int nodeCount;
+
+	/**
+	 * The distinct edge labels, sorted.
+	 */
+	private char[] alphabet;
+
+	/**
+	 * The number of edges of every node in unary, a 1 per edge and a 0 per
+	 * node.
+	 */
+	private BitVector degrees;
+
+	/**
+	 * The index in the alphabet of the label of each edge.
+	 */
+	private PackedInts labels;
+
+	/**
+	 * Whether each edge is the first to reach its target.
+	 */
+	private BitVector treeEdges;
+
+	/**
+	 * The target of each edge that isn't a tree edge.
+	 */
+	private PackedInts otherTargets;
+
+	/**
+	 * Final state of each node.
+	 */
+	private BitVector finals;
+
+	/**
+	 * Number of words reachable from each node, counting the node itself if
+	 * it's final.
+	 */
+	private PackedInts wordCounts;
+
+	public SuccinctDawg() {
+		builder = new Dawg();
+	}
+
+	/**
+	 * Encode a constructed {@link Dawg}. The {@link Dawg} isn't modified.
+	 * 
+	 * @param dawg
+	 *            the constructed graph
+	 * @return the encoded graph
+	 */
+	public static SuccinctDawg compile(Dawg dawg) {
+		SuccinctDawg succinctDawg = new SuccinctDawg();
+		succinctDawg.builder = null;
+		succinctDawg.compile((DawgNode) dawg.getRoot());
+		return succinctDawg;
+	}
+
+	/**
+	 * Add a word to the graph. Words must be added in alphabetical order or a
+	 * WordsNotAddedInAlphabeticOrderException is thrown.
+	 * 
+	 * @param word
+	 *            the word
+	 * @throws IllegalStateException
+	 *             when the graph is already constructed
+	 */
+	public void add(String word) {
+		if (builder == null) {
+			throw new IllegalStateException("graph is already constructed");
+		}
+		builder.add(word);
+	}
+
+	public void construct() {
+		if (builder == null) {
+			throw new IllegalStateException("graph is already constructed");
+		}
+		builder.construct();
+		compile((DawgNode) builder.getRoot());
+
+		// the node objects aren't needed any more
+		builder = null;
+	}
+
+	/**
+	 * Number the nodes in breadth-first order and encode their edges and
+	 * final states.
+	 * 
+	 * @param root
+	 *            the root of a constructed graph
+	 */
+	private void compile(DawgNode root) {
+		// the graph is minimized, so identity is enough to tell nodes apart
+		Map<DawgNode, Integer> indices = new IdentityHashMap<DawgNode, Integer>();
+		List<DawgNode> nodes = new ArrayList<DawgNode>();
+		BitSet labelSet = new BitSet();
+		int edgeCount = 0;
+
+		indices.put(root, ROOT);
+		nodes.add(root);
+		for (int i = 0; i < nodes.size(); i++) {
+			DawgNode node = nodes.get(i);
+			for (int c = 0; c < node.getChildCount(); c++) {
+				DawgNode child = node.getChildAt(c);
+				labelSet.set(node.getEdge(c));
+				edgeCount++;
+				if (!indices.containsKey(child)) {
+					indices.put(child, nodes.size());
+					nodes.add(child);
+				}
+			}
+		}
+
+		alphabet = new char[labelSet.cardinality()];
+		for (int ch = labelSet.nextSetBit(0), a = 0; ch >= 0; ch = labelSet.nextSetBit(ch + 1), a++) {
+			alphabet[a] = (char) ch;
+		}
+
+		int degreeLength = edgeCount + nodes.size();
+		long[] degreeBits = new long[(degreeLength + 63) >>> 6];
+		long[] treeBits = new long[(edgeCount + 63) >>> 6];
+		long[] finalBits = new long[(nodes.size() + 63) >>> 6];
+		int[] labelCodes = new int[edgeCount];
+		int[] others = new int[edgeCount - (nodes.size() - 1)];
+		int[] counts = new int[nodes.size()];
+
+		// the edges that reach a node first are met in the same order as
+		// when the nodes were numbered
+		boolean[] reached = new boolean[nodes.size()];
+		reached[ROOT] = true;
+		int edge = 0;
+		int other = 0;
+		for (int i = 0; i < nodes.size(); i++) {
+			DawgNode node = nodes.get(i);
+			if (node.isFinal())
+				finalBits[i >>> 6] |= 1L << i;
+			counts[i] = node.countWords();
+
+			for (int c = 0; c < node.getChildCount(); c++) {
+				int position = edge + i;
+				degreeBits[position >>> 6] |= 1L << position;
+				labelCodes[edge] = Arrays.binarySearch(alphabet, node.getEdge(c));
+				int target = indices.get(node.getChildAt(c));
+				if (reached[target]) {
+					others[other++] = target;
+				} else {
+					reached[target] = true;
+					treeBits[edge >>> 6] |= 1L << edge;
+				}
+				edge++;
+			}
+		}
+
+		this.nodeCount = nodes.size();
+		this.degrees = new BitVector(degreeBits, degreeLength);
+		this.labels = new PackedInts(labelCodes);
+		this.treeEdges = new BitVector(treeBits, edgeCount);
+		this.otherTargets = new PackedInts(others);
+		this.finals = new BitVector(finalBits, nodes.size());
+		this.wordCounts = new PackedInts(counts);
+	}
+
+	private void checkConstructed() {
+		if (builder != null) {
+			throw new IllegalStateException("graph is not constructed yet");
+		}
+	}
+
+	/**
+	 * @return the index of the root node
+	 */
+	public int getRootIndex() {
+		return ROOT;
+	}
+
+	/**
+	 * @return the position of the first bit of a node in the degrees
+	 */
+	private int degreesStart(int node) {
+		return node == ROOT ? 0 : degrees.select0(node - 1) + 1;
+	}
+
+	private int getTarget(int edge) {
+		int treeRank = treeEdges.rank1(edge);
+		return treeEdges.get(edge) ? treeRank + 1 : otherTargets.get(edge - treeRank);
+	}
+
+	/**
+	 * Find the child of a node with the specified edge.
+	 * 
+	 * @param node
+	 *            the node index
+	 * @param edge
+	 *            the edge
+	 * @return the index of the child node, or {@link #NO_NODE} if there's no
+	 *         such edge.
+	 */
+	public int getChildIndex(int node, char edge) {
+		int code = Arrays.binarySearch(alphabet, edge);
+		if (code < 0)
+			return NO_NODE;
+
+		int start = degreesStart(node);
+		int low = start - node;
+		int high = degrees.nextZero(start) - node - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int label = labels.get(middle);
+			if (label < code) {
+				low = middle + 1;
+			} else if (label > code) {
+				high = middle - 1;
+			} else {
+				return getTarget(middle);
+			}
+		}
+		return NO_NODE;
+	}
+
+	/**
+	 * @param node
+	 *            the node index
+	 * @return true if the node is the last node of a word.
+	 */
+	public boolean isFinal(int node) {
+		return finals.get(node);
+	}
+
+	public int getWordCount() {
+		checkConstructed();
+		return wordCounts.get(ROOT);
+	}
+
+	public long getModificationCount() {
+		return 0;
+	}
+
+	public int getWordIndex(char[] characters, int start, int length) {
+		checkConstructed();
+		int node = ROOT;
+		int index = 0;
+		for (int i = start; i < start + length; i++) {
+			if (isFinal(node))
+				index++;
+
+			int code = Arrays.binarySearch(alphabet, characters[i]);
+			if (code < 0)
+				return NO_WORD;
+
+			// the words behind smaller edges come first
+			int degreesStart = degreesStart(node);
+			int edge = degreesStart - node;
+			int end = degrees.nextZero(degreesStart) - node;
+			// the tree edges are counted along, instead of a rank per edge
+			int treeRank = treeEdges.rank1(edge);
+			while (edge < end && labels.get(edge) < code) {
+				if (treeEdges.get(edge)) {
+					index += wordCounts.get(++treeRank);
+				} else {
+					index += wordCounts.get(otherTargets.get(edge - treeRank));
+				}
+				edge++;
+			}
+			if (edge == end || labels.get(edge) != code)
+				return NO_WORD;
+			node = treeEdges.get(edge) ? treeRank + 1 : otherTargets.get(edge - treeRank);
+		}
+		return isFinal(node) ? index : NO_WORD;
+	}
+
+	public IDawgNode getRoot() {
+		checkConstructed();
+		return new Node(ROOT);
+	}
+
+	public int getSize() {
+		checkConstructed();
+		return nodeCount;
+	}
+
+	public long getByteSize() {
+		checkConstructed();
+		return alphabet.length * 2L + degrees.getByteSize() + labels.getByteSize() + treeEdges.getByteSize()
+				+ otherTargets.getByteSize() + finals.getByteSize() + wordCounts.getByteSize();
+	}
+
+	/**
+	 * 
+	 * @return the number of edges in the graph.
+	 */
+	public int getEdgeCount() {
+		checkConstructed();
+		return labels.size();
+	}
+
+	/**
+	 * {@link Node} is a light-weight {@link IDawgNode} view of a node index.
+	 * 
+	 */
+	private class Node implements IDawgNode {
+		private final int index;
+
+		public Node(int index) {
+			this.index = index;
+		}
+
+		public boolean containsEdge(char edge) {
+			return getChildIndex(index, edge) != NO_NODE;
+		}
+
+		public IDawgNode getChild(char edge) {
+			int child = getChildIndex(index, edge);
+			return child == NO_NODE ? null : new Node(child);
+		}
+
+		public boolean isFinal() {
+			return SuccinctDawg.this.isFinal(index);
+		}
+
+		private SuccinctDawg owner() {
+			return SuccinctDawg.this;
+		}
+
+		@Override
+		public int hashCode() {
+			return index;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null)
+				return false;
+			if (getClass() != obj.getClass())
+				return false;
+
+			Node other = (Node) obj;
+			return index == other.index && owner() == other.owner();
+		}
+
+		@Override
+		public String toString() {
+			return "SuccinctDawg.Node [index=" + index + ", isFinal="
+					+ isFinal() + "]";
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package encoder;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import dawg.CompiledDawg;
+import dawg.DigitTrie;
+import image.ImageReader;
+import image.ImageWriter;
+import visitors.MemoizedDigitTrieVisitor;
+
+/**
+ * {@link DictionaryImage} saves a prepared {@link NumberEncoder} to a binary
+ * file and loads it back, so that a process doesn't have to format the words
+ * and build the graphs again every time it starts.
+ *
+ * The image holds the digit to character mapping, the {@link CompiledDawg}
+ * and the table of original words, each as the primitive arrays the
+ * structure already uses, with the characters of the spellings one byte
+ * each. Loading maps the file into memory and the structures read their
+ * arrays right from the mapping, and the pages are shared by all processes
+ * using the same image.
+ *
+ * The arrays of the digit trie would take more than the rest of the image
+ * together, so the trie is written packed, and rebuilt on the heap from
+ * there in a single pass when the image is loaded.
+ *
+ * The image starts with a zero byte, which can't occur in a dictionary text
+ * file, so {@link #isImage(String)} tells the two apart.
+ */
+public final class DictionaryImage {
+    private static final int MAGIC = 0x004E4544;
+    private static final int VERSION = 5;
+
+    private DictionaryImage() {
+    }
+
+    /**
+     * Write a prepared encoder to a file. The encoder must be built like
+     * {@code NumberEncoderApp.newEncoder()} builds it, with a
+     * {@link CompiledDawg} and a digit trie, and the spellings must be
+     * ISO-8859-1 characters. An existing file is replaced atomically, so
+     * processes still using it aren't disturbed.
+     *
+     * @param encoder the prepared encoder
+     * @param path    the image file path
+     * @throws IOException when the file can't be written
+     * @throws IllegalArgumentException when the encoder can't be written to an
+     *                                  image
+     */
+    public static void write(NumberEncoder encoder, String path) throws IOException {
+        if (!(encoder.getDawg() instanceof CompiledDawg) || encoder.getDigitTrie() == null
+                || !(encoder.getDictionary() instanceof OriginalWordTable))
+            throw new IllegalArgumentException("Only an encoder with a compiled graph and a digit trie can be written");
+
+        Path target = Paths.get(path);
+        Path temporary = Paths.get(path + ".tmp");
+        try {
+            ImageWriter image = new ImageWriter(new FileOutputStream(temporary.toFile()));
+            try {
+                image.writeInt(MAGIC);
+                image.writeInt(VERSION);
+                writeMapping(encoder.getDigitToCharacters(), image);
+                ((CompiledDawg) encoder.getDawg()).writeTo(image);
+                encoder.getDigitTrie().writeTo(image);
+                ((OriginalWordTable) encoder.getDictionary()).writeTo(image);
+            } finally {
+                image.close();
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Load an encoder from an image. The encoder is already prepared and
+     * encodes like the one the image was written from. No word can be added
+     * to it.
+     *
+     * @param path the image file path
+     * @return the encoder
+     * @throws IOException when the file can't be read or isn't an image
+     */
+    public static NumberEncoder load(String path) throws IOException {
+        ImageReader image = ImageReader.map(path);
+        if (image.readInt() != MAGIC)
+            throw new IOException(path + " is not a dictionary image");
+        int version = image.readInt();
+        if (version != VERSION)
+            throw new IOException("Unsupported dictionary image version " + version + " in " + path);
+
+        char[][] digitToCharacters = readMapping(image);
+        Map<Integer, char[]> digitToCharacterMapping = new HashMap<Integer, char[]>();
+        for (int digit = 0; digit < digitToCharacters.length; digit++) {
+            digitToCharacterMapping.put(digit, digitToCharacters[digit]);
+        }
+        CompiledDawg dawg = CompiledDawg.read(image);
+        DigitTrie digitTrie = DigitTrie.read(image, digitToCharacterMapping);
+        MappedWordTable dictionary = MappedWordTable.read(image);
+        return new NumberEncoder(digitToCharacters, dawg, digitTrie, dictionary,
+                new MemoizedDigitTrieVisitor(digitTrie), true);
+    }
+
+    /**
+     * @param path the file path
+     * @return true if the file is a dictionary image rather than a text file
+     * @throws IOException when the file can't be read
+     */
+    public static boolean isImage(String path) throws IOException {
+        DataInputStream in = new DataInputStream(new FileInputStream(path));
+        try {
+            return in.readInt() == MAGIC;
+        } catch (EOFException e) {
+            return false;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void writeMapping(char[][] digitToCharacters, ImageWriter image) throws IOException {
+        int[] lengths = new int[digitToCharacters.length];
+        String[] characters = new String[digitToCharacters.length];
+        for (int digit = 0; digit < digitToCharacters.length; digit++) {
+            characters[digit] = digitToCharacters[digit] == null ? "" : new String(digitToCharacters[digit]);
+            lengths[digit] = characters[digit].length();
+        }
+
+        image.writeInt(digitToCharacters.length);
+        image.writeInts(lengths, lengths.length);
+        image.writeChars(characters, characters.length);
+    }
+
+    private static char[][] readMapping(ImageReader image) {
+        int digits = image.readInt();
+        IntBuffer lengths = image.readInts(digits);
+        int total = 0;
+        for (int digit = 0; digit < digits; digit++) {
+            total += lengths.get(digit);
+        }
+        CharBuffer characters = image.readChars(total);
+
+        char[][] digitToCharacters = new char[digits][];
+        for (int digit = 0; digit < digits; digit++) {
+            digitToCharacters[digit] = new char[lengths.get(digit)];
+            characters.get(digitToCharacters[digit]);
+        }
+        return digitToCharacters;
+    }
+}
@@ -0,0 +1,315 @@
+package encoder;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import reader.AsciiLineReader;
+
+/**
+ * {@link DictionarySorter} puts the words of a dictionary in the order
+ * {@link NumberEncoder#addWord(String)} needs them: by their formatted
+ * spelling, and then by their original spelling. Duplicate words are
+ * dropped.
+ *
+ * The words are kept in memory up to a chunk size. Once a chunk is full,
+ * it's sorted and spilled to a temporary file as a run, and the runs are
+ * merged while they're added to the encoder, so only the graph and one line
+ * per run are in memory at the end. Too many runs to be read at once are
+ * merged into fewer runs first. A dictionary that fits in a chunk is sorted
+ * in memory without any file.
+ *
+ * The temporary files are deleted by {@link #close()}. A sorter is not
+ * thread-safe.
+ */
+public class DictionarySorter implements Closeable {
+    public static final long DEFAULT_CHUNK_SIZE = 64L << 20;
+
+    /**
+     * The maximum number of runs read at once.
+     */
+    static final int DEFAULT_MAX_MERGED_RUNS = 64;
+
+    /**
+     * The estimated bytes of a word in a chunk besides its characters: the
+     * entry, two Strings, their arrays and the reference in the chunk.
+     */
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final long chunkSize;
+    private final int maxMergedRuns;
+    private final Path directory;
+
+    private final List<Entry> chunk = new ArrayList<Entry>();
+    private long chunkBytes;
+
+    /**
+     * The files of the runs, in the order they were written.
+     */
+    private final List<Path> runs = new ArrayList<Path>();
+
+    /**
+     * Sort in chunks of {@link #DEFAULT_CHUNK_SIZE}, or an eighth of the
+     * heap if that's smaller, in the default temporary directory.
+     */
+    public DictionarySorter() {
+        this(Math.min(DEFAULT_CHUNK_SIZE, Runtime.getRuntime().maxMemory() / 8),
+                Paths.get(System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * @param chunkSize the estimated bytes of the words kept in memory
+     *                  before they're spilled to a run
+     * @param directory the directory of the temporary files
+     */
+    public DictionarySorter(long chunkSize, Path directory) {
+        this(chunkSize, directory, DEFAULT_MAX_MERGED_RUNS);
+    }
+
+    DictionarySorter(long chunkSize, Path directory, int maxMergedRuns) {
+        if (chunkSize <= 0 || maxMergedRuns < 2)
+            throw new IllegalArgumentException("Chunk size must be positive and at least two runs merged");
+
+        this.chunkSize = chunkSize;
+        this.directory = directory;
+        this.maxMergedRuns = maxMergedRuns;
+    }
+
+    /**
+     * Add a word of the dictionary, in any order.
+     *
+     * @param word the original word
+     * @throws IOException when a run can't be written
+     */
+    public void add(CharSequence word) throws IOException {
+        String original = word.toString();
+        Entry entry = new Entry(NumberEncoder.formatWord(original), original);
+        chunk.add(entry);
+        chunkBytes += ENTRY_OVERHEAD + 2L * (original.length() + entry.formatted.length());
+        if (chunkBytes >= chunkSize)
+            spill();
+    }
+
+    /**
+     * Add the words to an encoder in order, each once. The encoder still
+     * needs to be prepared.
+     *
+     * @param encoder the encoder
+     * @return the number of words added
+     * @throws IOException when a run can't be read or written
+     */
+    public long sortTo(final NumberEncoder encoder) throws IOException {
+        Output output = new Output() {
+            public void add(String original) {
+                encoder.addWord(original);
+            }
+        };
+        if (runs.isEmpty())
+            return writeChunk(output);
+
+        spill();
+        while (runs.size() > maxMergedRuns) {
+            mergeRuns();
+        }
+        return merge(runs, output);
+    }
+
+    /**
+     * @return the number of runs spilled so far
+     */
+    public int getRunCount() {
+        return runs.size();
+    }
+
+    /**
+     * Sort the chunk and write it to a new run.
+     */
+    private void spill() throws IOException {
+        if (chunk.isEmpty())
+            return;
+
+        Path run = newRun();
+        RunWriter writer = new RunWriter(run);
+        try {
+            writeChunk(writer);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private long writeChunk(Output output) throws IOException {
+        Collections.sort(chunk);
+        long count = 0;
+        Entry previous = null;
+        for (Entry entry : chunk) {
+            if (previous == null || previous.compareTo(entry) != 0) {
+                output.add(entry.original);
+                count++;
+            }
+            previous = entry;
+        }
+        chunk.clear();
+        chunkBytes = 0;
+        return count;
+    }
+
+    /**
+     * Merge the oldest runs into a new one, so that there are fewer runs
+     * to read at once.
+     */
+    private void mergeRuns() throws IOException {
+        List<Path> merged = new ArrayList<Path>(runs.subList(0, maxMergedRuns));
+        runs.subList(0, maxMergedRuns).clear();
+
+        try {
+            Path run = newRun();
+            RunWriter writer = new RunWriter(run);
+            try {
+                merge(merged, writer);
+            } finally {
+                writer.close();
+            }
+        } finally {
+            for (Path path : merged) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private Path newRun() throws IOException {
+        Path run = Files.createTempFile(directory, "dictionary", ".run");
+        runs.add(run);
+        return run;
+    }
+
+    /**
+     * Merge sorted runs into an output, each word once.
+     *
+     * @return the number of words written
+     */
+    private static long merge(List<Path> paths, Output output) throws IOException {
+        PriorityQueue<Run> queue = new PriorityQueue<Run>(paths.size());
+        List<Run> opened = new ArrayList<Run>(paths.size());
+        try {
+            for (Path path : paths) {
+                Run run = new Run(AsciiLineReader.open(path.toString()));
+                opened.add(run);
+                if (run.next())
+                    queue.add(run);
+            }
+
+            long count = 0;
+            Entry previous = null;
+            while (!queue.isEmpty()) {
+                Run run = queue.poll();
+                if (previous == null || previous.compareTo(run.current) != 0) {
+                    output.add(run.current.original);
+                    count++;
+                }
+                previous = run.current;
+                if (run.next())
+                    queue.add(run);
+            }
+            return count;
+        } finally {
+            for (Run run : opened) {
+                run.reader.close();
+            }
+        }
+    }
+
+    /**
+     * Delete the runs.
+     *
+     * @throws IOException when a run can't be deleted
+     */
+    public void close() throws IOException {
+        chunk.clear();
+        for (Path run : runs) {
+            Files.deleteIfExists(run);
+        }
+        runs.clear();
+    }
+
+    /**
+     * {@link Output} takes the original words in order.
+     */
+    private interface Output {
+        void add(String original) throws IOException;
+    }
+
+    /**
+     * {@link RunWriter} writes a run, one original word per line.
+     */
+    private static class RunWriter implements Output {
+        private final Writer writer;
+
+        public RunWriter(Path run) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(run),
+                    StandardCharsets.ISO_8859_1), 1 << 16);
+        }
+
+        public void add(String original) throws IOException {
+            writer.write(original);
+            writer.write('\n');
+        }
+
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    /**
+     * {@link Run} reads a run one word at a time, and orders the runs by
+     * their current word.
+     */
+    private static class Run implements Comparable<Run> {
+        private final AsciiLineReader reader;
+        private Entry current;
+
+        public Run(AsciiLineReader reader) {
+            this.reader = reader;
+        }
+
+        public boolean next() throws IOException {
+            if (!reader.nextLine())
+                return false;
+            String original = reader.lineAsString();
+            current = new Entry(NumberEncoder.formatWord(original), original);
+            return true;
+        }
+
+        public int compareTo(Run other) {
+            return current.compareTo(other.current);
+        }
+    }
+
+    /**
+     * {@link Entry} is a word with its formatted spelling, ordered like the
+     * graph needs them.
+     */
+    private static class Entry implements Comparable<Entry> {
+        private final String formatted;
+        private final String original;
+
+        public Entry(String formatted, String original) {
+            this.formatted = formatted;
+            this.original = original;
+        }
+
+        public int compareTo(Entry other) {
+            int order = formatted.compareTo(other.formatted);
+            return order != 0 ? order : original.compareTo(other.original);
+        }
+    }
+}
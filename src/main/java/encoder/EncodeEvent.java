@@ -0,0 +1,35 @@
+package encoder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * {@link EncodeEvent} is the Flight Recorder event of a single encoded
+ * number. It's only loaded when {@link EncoderMetrics#ENABLED}, so the
+ * encoder still runs on JVMs without Flight Recorder.
+ */
+@Name("encoder.Encode")
+@Label("Encode")
+@Category("Number Encoder")
+@Description("A phone number encoded into words")
+@StackTrace(false)
+class EncodeEvent extends Event {
+    @Label("Phone Number")
+    String phoneNumber;
+
+    @Label("Encodings")
+    int encodings;
+
+    @Label("Nodes Visited")
+    long nodesVisited;
+
+    @Label("Digit Fallbacks")
+    long digitFallbacks;
+
+    @Label("Dead Branches")
+    long deadBranches;
+}
@@ -0,0 +1,174 @@
+package encoder;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import visitors.VisitStatistics;
+import dawg.DawgFootprint;
+
+/**
+ * {@link EncoderMetrics} adds up the work of every number an encoder
+ * encodes: the encodings found, the visit counts of
+ * {@link VisitStatistics}, and a histogram of the latencies. Every number is
+ * also recorded as an {@link EncodeEvent} when Flight Recorder is recording,
+ * so the slow numbers can be told apart. The footprint of the dictionary is
+ * measured when it's asked for.
+ *
+ * Nothing is recorded unless {@link #ENABLED}, and then the encoder doesn't
+ * even read the clock. The metrics can be published through JMX with
+ * {@link #register()}.
+ */
+public class EncoderMetrics implements EncoderMetricsMBean {
+
+    /**
+     * Whether the encoders record metrics, switched on with the system
+     * property {@code encoder.instrumentation} like {@link VisitStatistics}.
+     */
+    public static final boolean ENABLED = VisitStatistics.ENABLED;
+
+    public static final String OBJECT_NAME = "encoder:type=EncoderMetrics";
+
+    private final NumberEncoder encoder;
+
+    private final LongAdder encodes = new LongAdder();
+    private final LongAdder encodings = new LongAdder();
+    private final LongAdder nodesVisited = new LongAdder();
+    private final LongAdder digitFallbacks = new LongAdder();
+    private final LongAdder deadBranches = new LongAdder();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    EncoderMetrics(NumberEncoder encoder) {
+        this.encoder = encoder;
+    }
+
+    /**
+     * Record an encoded number. The visit statistics of the thread must have
+     * been reset before the number was encoded.
+     *
+     * @param event       the event begun before the number was encoded
+     * @param phoneNumber the phone number
+     * @param nanos       the time it took to encode the number
+     * @param count       the number of encodings
+     */
+    void record(EncodeEvent event, CharSequence phoneNumber, long nanos, int count) {
+        VisitStatistics statistics = VisitStatistics.current();
+        encodes.increment();
+        encodings.add(count);
+        nodesVisited.add(statistics.getNodesVisited());
+        digitFallbacks.add(statistics.getDigitFallbacks());
+        deadBranches.add(statistics.getDeadBranches());
+        latencies.record(nanos);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.phoneNumber = phoneNumber.toString();
+            event.encodings = count;
+            event.nodesVisited = statistics.getNodesVisited();
+            event.digitFallbacks = statistics.getDigitFallbacks();
+            event.deadBranches = statistics.getDeadBranches();
+            event.commit();
+        }
+    }
+
+    /**
+     * Publish the metrics on the platform MBean server as
+     * {@link #OBJECT_NAME}, replacing the metrics published before.
+     *
+     * @throws JMException when the metrics can't be published
+     */
+    public void register() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (server.isRegistered(name))
+            server.unregisterMBean(name);
+        server.registerMBean(this, name);
+    }
+
+    /**
+     * @return the latencies of the encoded numbers
+     */
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * Measure the graph of the current dictionary by walking it.
+     *
+     * @return the footprint of the graph
+     */
+    public DawgFootprint getFootprint() {
+        return DawgFootprint.of(encoder.getDawg(), encoder.getDigitToCharacters());
+    }
+
+    public long getEncodes() {
+        return encodes.sum();
+    }
+
+    public long getEncodings() {
+        return encodings.sum();
+    }
+
+    public long getNodesVisited() {
+        return nodesVisited.sum();
+    }
+
+    public long getDigitFallbacks() {
+        return digitFallbacks.sum();
+    }
+
+    public long getDeadBranches() {
+        return deadBranches.sum();
+    }
+
+    public long getLatencyP50Nanos() {
+        return latencies.getPercentile(50);
+    }
+
+    public long getLatencyP99Nanos() {
+        return latencies.getPercentile(99);
+    }
+
+    public long getLatencyMaxNanos() {
+        return latencies.getMax();
+    }
+
+    public int getDawgNodes() {
+        return getFootprint().getNodeCount();
+    }
+
+    public int getDawgEdges() {
+        return getFootprint().getEdgeCount();
+    }
+
+    public long getTrieNodes() {
+        return getFootprint().getTrieNodeCount();
+    }
+
+    public double getSuffixSharingRatio() {
+        return getFootprint().getSuffixSharingRatio();
+    }
+
+    public long getDawgBytes() {
+        return encoder.getDawg().getByteSize();
+    }
+
+    public long getDigitTrieBytes() {
+        return encoder.getDigitTrie() == null ? 0 : encoder.getDigitTrie().getByteSize();
+    }
+
+    public long getDictionaryBytes() {
+        return encoder.getDictionary().getByteSize();
+    }
+
+    @Override
+    public String toString() {
+        return "EncoderMetrics [encodes=" + getEncodes() + ", encodings=" + getEncodings() + ", nodesVisited="
+                + getNodesVisited() + ", digitFallbacks=" + getDigitFallbacks() + ", deadBranches="
+                + getDeadBranches() + ", p50=" + getLatencyP50Nanos() + "ns, p99=" + getLatencyP99Nanos()
+                + "ns, max=" + getLatencyMaxNanos() + "ns]";
+    }
+}
@@ -0,0 +1,37 @@
+package encoder;
+
+/**
+ * {@link EncoderMetricsMBean} is the JMX view of {@link EncoderMetrics}.
+ */
+public interface EncoderMetricsMBean {
+
+    long getEncodes();
+
+    long getEncodings();
+
+    long getNodesVisited();
+
+    long getDigitFallbacks();
+
+    long getDeadBranches();
+
+    long getLatencyP50Nanos();
+
+    long getLatencyP99Nanos();
+
+    long getLatencyMaxNanos();
+
+    int getDawgNodes();
+
+    int getDawgEdges();
+
+    long getTrieNodes();
+
+    double getSuffixSharingRatio();
+
+    long getDawgBytes();
+
+    long getDigitTrieBytes();
+
+    long getDictionaryBytes();
+}
@@ -0,0 +1,174 @@
+package encoder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import visitors.DigitKey;
+
+/**
+ * {@link EncodingCache} keeps the encodings of recently encoded numbers, so
+ * that a number that shows up again, even with different dashes and slashes,
+ * isn't encoded again.
+ *
+ * The encodings are keyed by the digits of the number, packed 16 per long.
+ * The cache is split into segments by the hash of the digits, and every
+ * segment evicts its least recently used entry when it's full, so the cache
+ * never holds more than its capacity. Each segment is locked on its own,
+ * which keeps threads encoding different numbers from waiting for each
+ * other.
+ *
+ * Plain LRU keeps none of the numbers when a phone book cycles through more
+ * different numbers than the cache holds, and pays for an insertion and an
+ * eviction on every miss. So, like TinyLFU, a {@link FrequencySketch} counts
+ * how often every number was looked up recently, and a full segment only
+ * admits a number that was looked up more often than the entry it would
+ * evict. Numbers that show up once are then never cached.
+ */
+public class EncodingCache {
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Segment[] segments;
+    private final int capacity;
+    private final FrequencySketch sketch;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param capacity the maximum number of cached numbers
+     * @throws IllegalArgumentException when the capacity isn't positive
+     */
+    public EncodingCache(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+
+        int segmentCount = Math.min(MAX_SEGMENTS, Integer.highestOneBit(capacity));
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            // spread the capacity so that the segments add up to it
+            segments[i] = new Segment(capacity / segmentCount + (i < capacity % segmentCount ? 1 : 0));
+        }
+        this.capacity = capacity;
+        this.sketch = new FrequencySketch(capacity);
+    }
+
+    /**
+     * Find the encodings of a digit sequence.
+     *
+     * @param key the digits, packed by {@link DigitKey#set(int[], int)}
+     * @return the cached encodings, or null if the digits are not cached
+     */
+    String[] get(DigitKey key) {
+        sketch.increment(key.hashCode());
+        String[] encodings = segmentOf(key).get(key);
+        if (encodings == null)
+            misses.incrementAndGet();
+        else
+            hits.incrementAndGet();
+        return encodings;
+    }
+
+    /**
+     * Cache the encodings of a digit sequence, unless the cache is full and
+     * the digits were looked up less often than the entry they would replace.
+     *
+     * @param key       the digits, which are copied if they're cached
+     * @param encodings the encodings, which are copied if they're cached
+     * @return true if the encodings were cached
+     */
+    boolean put(DigitKey key, String[] encodings) {
+        return segmentOf(key).put(key, encodings);
+    }
+
+    private Segment segmentOf(DigitKey key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    /**
+     * @return the maximum number of cached numbers
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of cached numbers
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return the number of lookups that found the encodings
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of lookups that didn't find the encodings
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of numbers removed to make room for others
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return "EncodingCache [size=" + size() + ", capacity=" + capacity + ", hits=" + getHits()
+                + ", misses=" + getMisses() + ", evictions=" + getEvictions() + "]";
+    }
+
+    /**
+     * {@link Segment} is a part of the cache with its own lock and its own
+     * least recently used order.
+     */
+    private class Segment {
+        private final int capacity;
+        private final LinkedHashMap<DigitKey, String[]> entries;
+
+        public Segment(int capacity) {
+            this.capacity = capacity;
+            this.entries = new LinkedHashMap<DigitKey, String[]>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<DigitKey, String[]> eldest) {
+                    if (size() <= Segment.this.capacity)
+                        return false;
+                    evictions.incrementAndGet();
+                    return true;
+                }
+            };
+        }
+
+        public synchronized String[] get(DigitKey key) {
+            return entries.get(key);
+        }
+
+        public synchronized boolean put(DigitKey key, String[] encodings) {
+            if (entries.size() >= capacity) {
+                DigitKey victim = entries.keySet().iterator().next();
+                if (sketch.frequency(key.hashCode()) <= sketch.frequency(victim.hashCode()))
+                    return false;
+            }
+            entries.put(key.copy(), encodings.clone());
+            return true;
+        }
+
+        public synchronized int size() {
+            return entries.size();
+        }
+    }
+}
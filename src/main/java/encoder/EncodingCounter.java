@@ -0,0 +1,185 @@
+package encoder;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import dawg.IDawg;
+import dawg.IDawgNode;
+
+/**
+ * {@link EncodingCounter} counts the encodings of a digit sequence, or tells
+ * whether there's any, without listing them.
+ *
+ * The encodings of the digits from a position only depend on the position
+ * and on whether the previous token was a digit, so the counts are computed
+ * from the end of the digits backwards, once per position:
+ * <ul>
+ * <li>starting with a word, the sum over the words that match from the
+ * position of their original spellings times the encodings after their
+ * end</li>
+ * <li>after a word, the encodings starting with a word, or if there's none,
+ * the encodings starting with a word after the digit kept</li>
+ * </ul>
+ * The words from every position are found by walking the graph, like
+ * {@link visitors.DawgVisitor} does from the root, so the work grows with the
+ * number of digits times the words that match, not with the number of
+ * encodings. The counts may outgrow a long, so they're {@link BigInteger}s.
+ *
+ * A counter holds the buffers of one thread.
+ */
+final class EncodingCounter {
+    private int[] digits;
+    private int length;
+    private char[][] digitToCharacters;
+    private IDawg dawg;
+    private WordTable dictionary;
+
+    /**
+     * The characters from the start position to the current node.
+     */
+    private char[] word = new char[64];
+
+    /**
+     * The number of encodings of the digits from a position starting with a
+     * word, and right after a word. The end of the digits has one encoding
+     * starting with a word, the empty one.
+     */
+    private BigInteger[] byWord = new BigInteger[64];
+    private BigInteger[] afterWord = new BigInteger[64];
+
+    /**
+     * Whether the digits from a position can be encoded starting with a
+     * word, and right after a word.
+     */
+    private boolean[] encodableByWord = new boolean[64];
+    private boolean[] encodable = new boolean[64];
+
+    /**
+     * The sum of the words found from the current start position.
+     */
+    private BigInteger sum;
+
+    /**
+     * Count the encodings of the digits, like the number of encodings
+     * {@link NumberEncoder#encode(CharSequence)} returns.
+     *
+     * @param digits            the digits
+     * @param length            the number of digits
+     * @param digitToCharacters the characters each digit can be encoded with
+     * @param dawg              the graph of the formatted words
+     * @param dictionary        the original spellings of the words
+     * @return the number of encodings
+     */
+    public BigInteger count(int[] digits, int length, char[][] digitToCharacters, IDawg dawg, WordTable dictionary) {
+        start(digits, length, digitToCharacters, dawg);
+        this.dictionary = dictionary;
+        if (byWord.length < length + 1) {
+            byWord = new BigInteger[Math.max(byWord.length * 2, length + 1)];
+            afterWord = new BigInteger[byWord.length];
+        }
+        try {
+            byWord[length] = BigInteger.ONE;
+            afterWord[length] = BigInteger.ZERO;
+            for (int position = length - 1; position >= 0; position--) {
+                sum = BigInteger.ZERO;
+                countWords(dawg.getRoot(), position, 0);
+                byWord[position] = sum;
+                // a digit is only kept if no word fits
+                afterWord[position] = sum.signum() > 0 ? sum : byWord[position + 1];
+            }
+            // nothing to encode has one empty encoding
+            return length == 0 ? BigInteger.ONE : afterWord[0];
+        } finally {
+            this.dawg = null;
+            this.dictionary = null;
+            this.sum = null;
+            // the counts may be large, so they're not kept for the next call
+            Arrays.fill(byWord, 0, length + 1, null);
+            Arrays.fill(afterWord, 0, length + 1, null);
+        }
+    }
+
+    /**
+     * Tell whether the digits have any encoding, like
+     * {@link NumberEncoder#encode(CharSequence)} returning any.
+     *
+     * @param digits            the digits
+     * @param length            the number of digits
+     * @param digitToCharacters the characters each digit can be encoded with
+     * @param dawg              the graph of the formatted words
+     * @return true if there's an encoding
+     */
+    public boolean exists(int[] digits, int length, char[][] digitToCharacters, IDawg dawg) {
+        start(digits, length, digitToCharacters, dawg);
+        if (encodable.length < length + 1) {
+            encodableByWord = new boolean[Math.max(encodable.length * 2, length + 1)];
+            encodable = new boolean[encodableByWord.length];
+        }
+        try {
+            encodableByWord[length] = true;
+            encodable[length] = false;
+            for (int position = length - 1; position >= 0; position--) {
+                encodableByWord[position] = findWord(dawg.getRoot(), position, 0);
+                encodable[position] = encodableByWord[position] || encodableByWord[position + 1];
+            }
+            return length == 0 || encodable[0];
+        } finally {
+            this.dawg = null;
+        }
+    }
+
+    private void start(int[] digits, int length, char[][] digitToCharacters, IDawg dawg) {
+        this.digits = digits;
+        this.length = length;
+        this.digitToCharacters = digitToCharacters;
+        this.dawg = dawg;
+    }
+
+    /**
+     * Add the encodings of every word that goes on from a node to
+     * {@link #sum}.
+     *
+     * @param node     the node
+     * @param position the position of the next digit
+     * @param depth    the number of characters from the start position
+     */
+    private void countWords(IDawgNode node, int position, int depth) {
+        if (depth > 0 && node.isFinal()) {
+            BigInteger after = position == length ? BigInteger.ONE : afterWord[position];
+            if (after.signum() > 0) {
+                int originals = dictionary.getOriginalCount(dawg.getWordIndex(word, 0, depth));
+                sum = sum.add(originals == 1 ? after : after.multiply(BigInteger.valueOf(originals)));
+            }
+        }
+        if (position == length)
+            return;
+
+        if (word.length == depth)
+            word = Arrays.copyOf(word, depth * 2);
+        for (char ch : digitToCharacters[digits[position]]) {
+            IDawgNode child = node.getChild(ch);
+            if (child != null) {
+                word[depth] = ch;
+                countWords(child, position + 1, depth + 1);
+            }
+        }
+    }
+
+    /**
+     * @return true if a word that goes on from a node is followed by an
+     *         encoding
+     */
+    private boolean findWord(IDawgNode node, int position, int depth) {
+        if (depth > 0 && node.isFinal() && (position == length || encodable[position]))
+            return true;
+        if (position == length)
+            return false;
+
+        for (char ch : digitToCharacters[digits[position]]) {
+            IDawgNode child = node.getChild(ch);
+            if (child != null && findWord(child, position + 1, depth + 1))
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,18 @@
+package encoder;
+
+/**
+ * {@link EncodingSink} receives the encodings of a number one at a time, as
+ * {@link NumberEncoder#encode(CharSequence, int, EncodingSink)} finds them.
+ */
+public interface EncodingSink {
+
+    /**
+     * Called for every encoding of the number.
+     *
+     * @param encoding the original words of the encoding, separated by single
+     *                 spaces. The sequence is reused and only valid until this
+     *                 method returns.
+     * @return true to receive more encodings, false to stop the encoding
+     */
+    boolean accept(CharSequence encoding);
+}
@@ -0,0 +1,107 @@
+package encoder;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link FrequencySketch} estimates how often a key was seen recently, in a
+ * fixed amount of memory. It's a count-min sketch of 4-bit counters, 16 to a
+ * long: a key increments one counter in each of four rows and its frequency
+ * is the smallest of them, so collisions can only make a key look more
+ * frequent.
+ *
+ * All counters are halved after a number of increments proportional to the
+ * size of the sketch, so that keys that were frequent a long time ago fade
+ * out.
+ *
+ * The sketch is thread-safe without locks: each long of counters is
+ * updated with a compare-and-set, so a counter never goes past 15 into its
+ * neighbour. The halving is done one long at a time, so an increment during
+ * it may be halved or not.
+ */
+class FrequencySketch {
+    private static final int[] SEEDS = { 0x97CB3127, 0xB9A38C6F, 0x6EA8C95B, 0xD3F2E5A1 };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_COUNT = 15;
+
+    private final AtomicLongArray table;
+    private final int sampleSize;
+    private final AtomicInteger increments = new AtomicInteger();
+
+    /**
+     * @param capacity the number of keys the sketch should tell apart
+     */
+    public FrequencySketch(int capacity) {
+        int size = Integer.highestOneBit(Math.max(64, capacity) - 1) << 1;
+        table = new AtomicLongArray(size);
+        sampleSize = 10 * size;
+    }
+
+    /**
+     * Count one more occurrence of a key.
+     *
+     * @param hash the hash of the key
+     */
+    public void increment(int hash) {
+        boolean incremented = false;
+        for (int row = 0; row < SEEDS.length; row++) {
+            int index = indexOf(hash, row);
+            incremented |= increment(index >>> 4, (index & 15) << 2);
+        }
+
+        // only the increment reaching the sample size halves the counters
+        if (incremented && increments.incrementAndGet() == sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * @return true if the counter was below the maximum and incremented
+     */
+    private boolean increment(int slot, int shift) {
+        while (true) {
+            long counters = table.get(slot);
+            if (((counters >>> shift) & MAX_COUNT) == MAX_COUNT)
+                return false;
+            if (table.compareAndSet(slot, counters, counters + (1L << shift)))
+                return true;
+        }
+    }
+
+    /**
+     * @param hash the hash of the key
+     * @return the estimated number of recent occurrences of the key, at most
+     *         15
+     */
+    public int frequency(int hash) {
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < SEEDS.length; row++) {
+            int index = indexOf(hash, row);
+            int count = (int) ((table.get(index >>> 4) >>> ((index & 15) << 2)) & MAX_COUNT);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * @return the index of the key's counter in a row, the upper bits giving
+     *         the long and the lower 4 bits the counter in the long
+     */
+    private int indexOf(int hash, int row) {
+        int h = (hash + SEEDS[row]) * SEEDS[row];
+        h ^= h >>> 15;
+        return h & ((table.length() << 4) - 1);
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length(); i++) {
+            while (true) {
+                long counters = table.get(i);
+                if (table.compareAndSet(i, counters, (counters >>> 1) & RESET_MASK))
+                    break;
+            }
+        }
+        // increments counted during the halving go towards the next one
+        increments.addAndGet(-sampleSize);
+    }
+}
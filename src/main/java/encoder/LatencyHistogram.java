@@ -0,0 +1,69 @@
+package encoder;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link LatencyHistogram} counts latencies in buckets of powers of two
+ * nanoseconds, so recording is a single atomic increment and a percentile is
+ * known within a factor of two. Bucket b holds the latencies from 2^(b-1) to
+ * 2^b - 1 nanoseconds, and bucket 0 the latencies of 0.
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos) {
+        long latency = Math.max(0, nanos);
+        counts.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(latency));
+        long previous = max.get();
+        while (latency > previous && !max.compareAndSet(previous, latency)) {
+            previous = max.get();
+        }
+    }
+
+    /**
+     * @return the number of latencies recorded
+     */
+    public long getCount() {
+        long count = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            count += counts.get(b);
+        }
+        return count;
+    }
+
+    /**
+     * @param percent the percentile, from 0 to 100
+     * @return the upper bound of the bucket holding the percentile in
+     *         nanoseconds, or 0 if nothing was recorded
+     */
+    public long getPercentile(double percent) {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            snapshot[b] = counts.get(b);
+            count += snapshot[b];
+        }
+        long rank = Math.max(1, (long) Math.ceil(percent / 100 * count));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += snapshot[b];
+            if (seen >= rank && snapshot[b] > 0)
+                return Math.min(getMax(), (1L << b) - 1);
+        }
+        return 0;
+    }
+
+    /**
+     * @return the highest latency recorded in nanoseconds
+     */
+    public long getMax() {
+        return max.get();
+    }
+}
@@ -0,0 +1,82 @@
+package encoder;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+import image.ImageReader;
+
+/**
+ * {@link MappedWordTable} is a read-only {@link WordTable} over the arrays
+ * written by {@link OriginalWordTable#writeTo(image.ImageWriter)}. The arrays
+ * are views of the image, so no String is created for the words.
+ *
+ * The spellings of word w are the spellings firstOriginal[w] to
+ * firstOriginal[w + 1] - 1, and spelling s spans originalStarts[s] to
+ * originalStarts[s + 1] - 1 of the characters, which are ISO-8859-1 bytes.
+ * The spelling of rank r is spelling spellingsByRank[r].
+ */
+class MappedWordTable implements WordTable {
+	private final IntBuffer firstOriginal;
+	private final IntBuffer originalStarts;
+	private final ByteBuffer characters;
+	private final IntBuffer spellingsByRank;
+
+	private MappedWordTable(ImageReader image) {
+		int size = image.readInt();
+		int originalCount = image.readInt();
+		firstOriginal = image.readInts(size + 1);
+		originalStarts = image.readInts(originalCount + 1);
+		characters = image.readBytes(originalStarts.get(originalCount));
+		spellingsByRank = image.readInts(originalCount);
+	}
+
+	/**
+	 * Read a table written with
+	 * {@link OriginalWordTable#writeTo(image.ImageWriter)}.
+	 *
+	 * @param image the image
+	 * @return the table
+	 */
+	public static MappedWordTable read(ImageReader image) {
+		return new MappedWordTable(image);
+	}
+
+	/**
+	 * @throws IllegalStateException always, since the table is read-only
+	 */
+	public void put(String formattedWord, String originalWord) {
+		throw new IllegalStateException("table is read-only");
+	}
+
+	public int getOriginalCount(int word) {
+		return firstOriginal.get(word + 1) - firstOriginal.get(word);
+	}
+
+	public void appendOriginal(int word, int original, StringBuilder destination) {
+		appendCharacters(firstOriginal.get(word) + original, destination);
+	}
+
+	public int getSpellingCount() {
+		return spellingsByRank.limit();
+	}
+
+	public void appendSpelling(int rank, StringBuilder destination) {
+		appendCharacters(spellingsByRank.get(rank), destination);
+	}
+
+	private void appendCharacters(int spelling, StringBuilder destination) {
+		int end = originalStarts.get(spelling + 1);
+		for (int i = originalStarts.get(spelling); i < end; i++) {
+			destination.append((char) (characters.get(i) & 0xFF));
+		}
+	}
+
+	public int size() {
+		return firstOriginal.limit() - 1;
+	}
+
+	public long getByteSize() {
+		return (firstOriginal.capacity() + originalStarts.capacity() + spellingsByRank.capacity()) * 4L
+				+ characters.capacity();
+	}
+}
@@ -1,122 +1,764 @@
 package encoder;
 
+import dawg.DigitTrie;
 import dawg.IDawg;
+import visitors.BatchPathListener;
+import visitors.DigitKey;
+import visitors.EncodingPath;
+import visitors.PathListener;
+import visitors.VisitStatistics;
 import visitors.Visitor;
 
-import java.util.AbstractMap.SimpleEntry;
+import java.math.BigInteger;
 import java.util.*;
-import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * {@link NumberEncoder} encodes a number into words from a dictionary.
+ *
+ * Encoding doesn't create any object per digit or per partial encoding: the
+ * digits are parsed into a reusable buffer, the visitor walks the graph with
+ * a reusable path, and a String is only created for every complete encoding.
+ *
+ * Words must be added and {@link #prepare()} called from a single thread.
+ * After that, no more words can be added, and
+ * {@link #encode(CharSequence)} is thread-safe and may be called
+ * concurrently: the graph and the dictionary are only read, and every thread
+ * has its own buffers.
+ *
+ * The graphs, the dictionary and the cache are held by a single immutable
+ * snapshot, which {@link #replaceDictionary(NumberEncoder)} swaps atomically
+ * for one prepared on another thread. Every encoding reads the snapshot once
+ * and finishes with it, so encodings running during a swap still use the
+ * old dictionary, the next ones use the new one, and no encoding waits for a
+ * lock.
  */
 public class NumberEncoder {
-    private final Map<Integer, char[]> digitToCharacterMapping;
+    /**
+     * Limit of {@link #encode(CharSequence, int, EncodingSink)} to pass all
+     * encodings.
+     */
+    public static final int NO_LIMIT = Integer.MAX_VALUE;
+
+    /**
+     * The maximum number of encodings of a number that
+     * {@link #encode(CharSequence, int, EncodingSink)} collects for the
+     * cache. Numbers with more encodings are only cached by
+     * {@link #encode(CharSequence)}.
+     */
+    static final int MAX_STREAMED_ENCODINGS_CACHED = 256;
+
+    /**
+     * The number of numbers {@link #encodeAll(Iterable)} visits at once.
+     */
+    static final int BATCH_SIZE = 256;
+
+    /**
+     * The dictionary and cache every encoding starts with.
+     */
+    private final AtomicReference<Snapshot> snapshot;
 
     /**
-     * The Directed Acyclic Word Graph to store all the words.
+     * The metrics of all encodings, only recorded if
+     * {@link EncoderMetrics#ENABLED}.
      */
-    private final IDawg dawg;
+    private final EncoderMetrics metrics = new EncoderMetrics(this);
 
     /**
-     * The dictionary maps the formatted words to the original words.
+     * The buffers of each thread, reused for every encoding.
      */
-    private final Map<String, String> dictionary;
+    private final ThreadLocal<Encoding> encodings = new ThreadLocal<Encoding>() {
+        @Override
+        protected Encoding initialValue() {
+            return new Encoding();
+        }
+    };
 
     /**
-     * Visitor to find all matching words for a characters queue.
+     * The counters of each thread, reused for every count.
      */
-    private final Visitor visitor;
+    private final ThreadLocal<EncodingCounter> counters = new ThreadLocal<EncodingCounter>() {
+        @Override
+        protected EncodingCounter initialValue() {
+            return new EncodingCounter();
+        }
+    };
 
     public NumberEncoder(Map<Integer, char[]> digitToCharacterMapping, IDawg dawg, Visitor visitor) {
-        this.digitToCharacterMapping = digitToCharacterMapping;
-        this.dawg = dawg;
-        this.visitor = visitor;
-        this.dictionary = new HashMap<String, String>();
+        this(digitToCharacterMapping, dawg, null, visitor);
+    }
+
+    public NumberEncoder(Map<Integer, char[]> digitToCharacterMapping, IDawg dawg, DigitTrie digitTrie, Visitor visitor) {
+        this(toArray(digitToCharacterMapping), dawg, digitTrie, new OriginalWordTable(), visitor, false);
+    }
+
+    NumberEncoder(char[][] digitToCharacters, IDawg dawg, DigitTrie digitTrie, WordTable dictionary, Visitor visitor,
+            boolean prepared) {
+        this.snapshot = new AtomicReference<Snapshot>(
+                new Snapshot(digitToCharacters, dawg, digitTrie, dictionary, visitor, prepared, null));
+    }
+
+    private static char[][] toArray(Map<Integer, char[]> digitToCharacterMapping) {
+        char[][] digitToCharacters = new char[10][];
+        for (Map.Entry<Integer, char[]> e : digitToCharacterMapping.entrySet()) {
+            digitToCharacters[e.getKey()] = e.getValue();
+        }
+        return digitToCharacters;
     }
 
     /**
-     * Add a word to the DAWG and dictionary.
+     * Add a word to the DAWG and dictionary. The digit trie is filled by
+     * {@link #prepare()}.
      *
      * @param word the word
+     * @throws IllegalStateException when the encoder is already prepared
      */
     public void addWord(String word) {
+        Snapshot current = snapshot.get();
+        // the digit trie and the ranks of the spellings are only built once
+        if (current.prepared)
+            throw new IllegalStateException("Words can't be added once the encoder is prepared");
+
         // remove all invalid characters and change cases to lower
-        String formattedWord = word.replaceAll("(\"|-)", "").toLowerCase();
-        dictionary.put(formattedWord, word);
-        dawg.add(formattedWord);
+        String formattedWord = formatWord(word);
+        current.dawg.add(formattedWord);
+        current.dictionary.put(formattedWord, word);
+    }
+
+    static String formatWord(CharSequence word) {
+        StringBuilder formattedWord = new StringBuilder(word.length());
+        for (int i = 0; i < word.length(); i++) {
+            char ch = word.charAt(i);
+            if (ch != '"' && ch != '-')
+                formattedWord.append(Character.toLowerCase(ch));
+        }
+        return formattedWord.toString();
     }
 
     /**
-     * Prepare the DAWG. This method must be called after all words are added
-     * and before any encoding.
+     * Prepare the DAWG, and fill the digit trie with every original spelling
+     * by its rank in the dictionary. This method must be called after all
+     * words are added and before any encoding.
+     *
+     * @throws IllegalStateException when the encoder is already prepared
      */
     public void prepare() {
-        dawg.construct();
+        Snapshot current = snapshot.get();
+        if (current.prepared)
+            throw new IllegalStateException("The encoder is already prepared");
+
+        current.dawg.construct();
+        // the dictionary is indexed by the word indices of the graph
+        if (current.dawg.getWordCount() != current.dictionary.size())
+            throw new IllegalStateException("The dictionary has " + current.dictionary.size()
+                    + " words but the graph has " + current.dawg.getWordCount());
+
+        if (current.digitTrie != null) {
+            // sorting the ranks of a position sorts the spellings
+            OriginalWordTable dictionary = (OriginalWordTable) current.dictionary;
+            dictionary.rankSpellings();
+            StringBuilder spelling = new StringBuilder();
+            for (int rank = 0; rank < dictionary.getSpellingCount(); rank++) {
+                spelling.setLength(0);
+                dictionary.appendSpelling(rank, spelling);
+                current.digitTrie.add(formatWord(spelling), rank);
+            }
+        }
+
+        Snapshot next;
+        do {
+            current = snapshot.get();
+            next = current.asPrepared();
+        } while (!snapshot.compareAndSet(current, next));
+    }
+
+    /**
+     * Encode with the dictionary of another encoder from now on. The swap is
+     * atomic: encodings already running finish with the old dictionary, and
+     * the following ones use the new one. If there's a cache, it's replaced
+     * by an empty one of the same capacity, since the cached encodings came
+     * from the old dictionary.
+     *
+     * The other encoder is typically loaded and prepared on a background
+     * thread, and it must not be changed any more.
+     *
+     * @param prepared the prepared encoder whose dictionary to use
+     */
+    public void replaceDictionary(NumberEncoder prepared) {
+        Snapshot words = prepared.snapshot.get();
+        Snapshot current;
+        Snapshot next;
+        do {
+            current = snapshot.get();
+            EncodingCache cache = current.cache == null ? null : new EncodingCache(current.cache.getCapacity());
+            next = words.withCache(cache);
+        } while (!snapshot.compareAndSet(current, next));
+    }
+
+    /**
+     * Cache the encodings of recently encoded numbers. Numbers with the same
+     * digits are only encoded once while they stay in the cache.
+     *
+     * @param cache the cache, or null to encode every number
+     */
+    public void setCache(EncodingCache cache) {
+        Snapshot current;
+        do {
+            current = snapshot.get();
+        } while (!snapshot.compareAndSet(current, current.withCache(cache)));
+    }
+
+    /**
+     * @return the cache of encodings, or null if there's none
+     */
+    public EncodingCache getCache() {
+        return snapshot.get().cache;
+    }
+
+    /**
+     * @return the metrics of the encodings, which stay empty unless
+     *         {@link EncoderMetrics#ENABLED}
+     */
+    public EncoderMetrics getMetrics() {
+        return metrics;
+    }
+
+    char[][] getDigitToCharacters() {
+        return snapshot.get().digitToCharacters;
+    }
+
+    IDawg getDawg() {
+        return snapshot.get().dawg;
+    }
+
+    DigitTrie getDigitTrie() {
+        return snapshot.get().digitTrie;
+    }
+
+    WordTable getDictionary() {
+        return snapshot.get().dictionary;
     }
 
     /**
      * Encode a number string to matching words.
      *
+     * This is an adapter of {@link #encode(CharSequence, int, EncodingSink)},
+     * which collects all encodings and sorts them, unless the visitor already
+     * lists them in order.
+     *
      * @param numberTobeEncoded the number
      * @return a list of words.
      */
-    public String[] encode(String numberTobeEncoded) {
-        List<Entry<Integer, char[]>> characterQueue = mapNumberToCharacterQueue(numberTobeEncoded);
-        List<String> formattedWords = searchForWordsComposedWithCharacters(characterQueue);
-        List<String> originalWords = translateWordsToOriginal(formattedWords);
+    public String[] encode(CharSequence numberTobeEncoded) {
+        if (!EncoderMetrics.ENABLED)
+            return encodeWords(numberTobeEncoded);
 
-        return sortWords(originalWords);
+        EncodeEvent event = new EncodeEvent();
+        event.begin();
+        VisitStatistics.current().reset();
+        long start = System.nanoTime();
+        String[] words = encodeWords(numberTobeEncoded);
+        metrics.record(event, numberTobeEncoded, System.nanoTime() - start, words.length);
+        return words;
     }
 
-    private List<Entry<Integer, char[]>> mapNumberToCharacterQueue(String numberToBeEncoded) {
-        int[] digits = toDigitSequence(numberToBeEncoded.replaceAll("(/|-)", ""));
+    private String[] encodeWords(CharSequence numberTobeEncoded) {
+        Snapshot current = snapshot.get();
+        Encoding encoding = encodings.get();
+        int length = encoding.parseDigits(numberTobeEncoded);
 
-        List<Entry<Integer, char[]>> characterQueue = new ArrayList<Entry<Integer, char[]>>(digits.length);
-        for (int digit : digits) {
-            characterQueue.add(new SimpleEntry<Integer, char[]>(digit, digitToCharacterMapping.get(digit)));
+        EncodingCache cache = current.cache;
+        boolean cacheable = cache != null && encoding.key.set(encoding.digits, length);
+        if (cacheable) {
+            String[] cached = cache.get(encoding.key);
+            if (cached != null)
+                // the cached array is shared, so the caller gets its own
+                return cached.clone();
         }
-        return characterQueue;
+
+        encoding.originalWords.clear();
+        encoding.visit(current, length, NO_LIMIT, encoding);
+
+        String[] words = toSortedArray(current, encoding.originalWords);
+        if (cacheable)
+            cache.put(encoding.key, words);
+        return words;
     }
 
-    private int[] toDigitSequence(String numbers) {
-        int[] digits = new int[numbers.length()];
+    /**
+     * Encode many numbers, like {@link #encode(CharSequence)} encodes each
+     * of them, but visiting the numbers of a window together so that the
+     * visitor can share the work on the digits they start with. That only
+     * pays off for long common prefixes, so the visitor may still visit the
+     * numbers of a window one by one. Every window of {@link #BATCH_SIZE}
+     * numbers reads the dictionary once, so a dictionary replaced meanwhile
+     * is used from the next window on.
+     *
+     * If {@link EncoderMetrics#ENABLED}, the numbers are encoded one by one
+     * so that every number is measured.
+     *
+     * @param numbers the numbers
+     * @return the words of every number, in the order of the numbers
+     */
+    public List<String[]> encodeAll(Iterable<? extends CharSequence> numbers) {
+        List<String[]> words = new ArrayList<String[]>();
+        if (EncoderMetrics.ENABLED) {
+            for (CharSequence number : numbers) {
+                words.add(encode(number));
+            }
+            return words;
+        }
 
-        for (int i = 0; i < numbers.length(); i++) {
-            digits[i] = Character.getNumericValue(numbers.charAt(i));
+        Encoding encoding = encodings.get();
+        List<CharSequence> batch = new ArrayList<CharSequence>(BATCH_SIZE);
+        for (CharSequence number : numbers) {
+            batch.add(number);
+            if (batch.size() == BATCH_SIZE) {
+                encoding.encodeBatch(snapshot.get(), batch, words);
+                batch.clear();
+            }
         }
-        return digits;
+        if (!batch.isEmpty())
+            encoding.encodeBatch(snapshot.get(), batch, words);
+        return words;
     }
 
-    private List<String> searchForWordsComposedWithCharacters(List<Entry<Integer, char[]>> characterQueue) {
-        return visitor.visit(characterQueue);
+    /**
+     * Encode a number and pass all encodings to a sink.
+     *
+     * @param numberTobeEncoded the number
+     * @param sink              the sink of the encodings
+     * @return the number of encodings passed to the sink
+     * @see #encode(CharSequence, int, EncodingSink)
+     */
+    public int encode(CharSequence numberTobeEncoded, EncodingSink sink) {
+        return encode(numberTobeEncoded, NO_LIMIT, sink);
     }
 
-    private List<String> translateWordsToOriginal(List<String> formattedWords) {
-        List<String> originalWords = new ArrayList<String>(formattedWords.size());
+    /**
+     * Encode a number and pass every encoding to a sink as soon as it's
+     * found, so that the encodings of a number are never held in memory all
+     * at once. The encoding stops after the limit or as soon as the sink asks
+     * to stop, without searching any further.
+     *
+     * If the visitor lists the original words in order, the encodings are
+     * passed in the same order as {@link #encode(CharSequence)} returns them.
+     * Otherwise they're passed in no particular order. The sink is called on
+     * the calling thread and must not encode with this encoder itself.
+     *
+     * Cached encodings are passed from the cache. Encodings found by this
+     * method are only added to it if the sink took all of them and there are
+     * at most {@link #MAX_STREAMED_ENCODINGS_CACHED}, so that memory stays
+     * bounded for numbers with many encodings.
+     *
+     * @param numberTobeEncoded the number
+     * @param limit             the maximum number of encodings to pass, or
+     *                          {@link #NO_LIMIT}
+     * @param sink              the sink of the encodings
+     * @return the number of encodings passed to the sink
+     */
+    public int encode(CharSequence numberTobeEncoded, int limit, EncodingSink sink) {
+        if (limit <= 0)
+            return 0;
+        if (!EncoderMetrics.ENABLED)
+            return encodeTo(numberTobeEncoded, limit, sink);
 
-        for (String word : formattedWords) {
-            originalWords.add(originalWord(word));
-        }
-        return originalWords;
+        // the time the sink takes is part of the latency
+        EncodeEvent event = new EncodeEvent();
+        event.begin();
+        VisitStatistics.current().reset();
+        long start = System.nanoTime();
+        int count = encodeTo(numberTobeEncoded, limit, sink);
+        metrics.record(event, numberTobeEncoded, System.nanoTime() - start, count);
+        return count;
     }
 
-    private String originalWord(String word) {
-        String originalWord = "";
-        for (String s : word.split(" ")) {
-            originalWord += " ";
+    private int encodeTo(CharSequence numberTobeEncoded, int limit, EncodingSink sink) {
+        Snapshot current = snapshot.get();
+        Encoding encoding = encodings.get();
+        int length = encoding.parseDigits(numberTobeEncoded);
 
-            if (dictionary.containsKey(s))
-                originalWord += dictionary.get(s);
-            else
-                originalWord += s;
+        EncodingCache cache = current.cache;
+        boolean cacheable = cache != null && encoding.key.set(encoding.digits, length);
+        if (cacheable) {
+            String[] cached = cache.get(encoding.key);
+            if (cached != null) {
+                int count = 0;
+                while (count < cached.length && count < limit) {
+                    if (!sink.accept(cached[count++]))
+                        break;
+                }
+                return count;
+            }
         }
-        return originalWord.trim();
+
+        if (!cacheable)
+            return encoding.visit(current, length, limit, sink);
+
+        encoding.originalWords.clear();
+        encoding.collecting = true;
+        int count = encoding.visit(current, length, limit, sink);
+        if (encoding.collecting && !encoding.stopped)
+            cache.put(encoding.key, toSortedArray(current, encoding.originalWords));
+        encoding.collecting = false;
+        encoding.originalWords.clear();
+        return count;
+    }
+
+    /**
+     * Count the encodings of a number without listing them. The count is the
+     * length of the array {@link #encode(CharSequence)} returns, but it's
+     * computed by dynamic programming over the positions of the digits, so
+     * it takes polynomial time however many encodings there are. The cache
+     * is neither read nor filled.
+     *
+     * @param numberTobeEncoded the number
+     * @return the number of encodings
+     */
+    public BigInteger countEncodings(CharSequence numberTobeEncoded) {
+        Snapshot current = snapshot.get();
+        Encoding encoding = encodings.get();
+        int length = encoding.parseDigits(numberTobeEncoded);
+        return counters.get().count(encoding.digits, length, current.digitToCharacters, current.dawg,
+                current.dictionary);
+    }
+
+    /**
+     * Tell whether a number has any encoding without listing them, like
+     * {@link #countEncodings(CharSequence)} but without counting either.
+     *
+     * @param numberTobeEncoded the number
+     * @return true if {@link #encode(CharSequence)} returns any encoding
+     */
+    public boolean hasEncoding(CharSequence numberTobeEncoded) {
+        Snapshot current = snapshot.get();
+        Encoding encoding = encodings.get();
+        int length = encoding.parseDigits(numberTobeEncoded);
+        return counters.get().exists(encoding.digits, length, current.digitToCharacters, current.dawg);
     }
 
-    private String[] sortWords(List<String> originalWords) {
+    private static String[] toSortedArray(Snapshot current, List<String> originalWords) {
         String[] array = originalWords.toArray(new String[originalWords.size()]);
-        Arrays.sort(array);
+        if (!current.ordered)
+            Arrays.sort(array);
         return array;
     }
+
+    /**
+     * {@link Snapshot} is a dictionary ready to encode with, and the cache of
+     * its encodings. It's never changed once it's published, only replaced.
+     */
+    private static final class Snapshot {
+        /**
+         * The characters each digit can be encoded with, indexed by digit.
+         */
+        private final char[][] digitToCharacters;
+
+        /**
+         * The Directed Acyclic Word Graph to store all the words.
+         */
+        private final IDawg dawg;
+
+        /**
+         * The words indexed by the digits they encode to, or null if the
+         * visitor doesn't need it.
+         */
+        private final DigitTrie digitTrie;
+
+        /**
+         * The dictionary holds the original words of every formatted word, by
+         * the index of the formatted word in the graph.
+         */
+        private final WordTable dictionary;
+
+        /**
+         * Visitor to find all matching words for a digit sequence.
+         */
+        private final Visitor visitor;
+
+        /**
+         * Whether the visitor lists the original words in order, so that the
+         * encodings need neither a lookup in the dictionary nor sorting.
+         */
+        private final boolean ordered;
+
+        /**
+         * Whether the words are all added and prepared, so that no more can
+         * be added.
+         */
+        private final boolean prepared;
+
+        /**
+         * The encodings of recently encoded numbers, or null if they're not
+         * cached.
+         */
+        private final EncodingCache cache;
+
+        public Snapshot(char[][] digitToCharacters, IDawg dawg, DigitTrie digitTrie, WordTable dictionary,
+                Visitor visitor, boolean prepared, EncodingCache cache) {
+            this.digitToCharacters = digitToCharacters;
+            this.dawg = dawg;
+            this.digitTrie = digitTrie;
+            this.dictionary = dictionary;
+            this.visitor = visitor;
+            this.ordered = visitor.listsOriginalWordsInOrder();
+            this.prepared = prepared;
+            this.cache = cache;
+        }
+
+        public Snapshot withCache(EncodingCache cache) {
+            return new Snapshot(digitToCharacters, dawg, digitTrie, dictionary, visitor, prepared, cache);
+        }
+
+        public Snapshot asPrepared() {
+            return new Snapshot(digitToCharacters, dawg, digitTrie, dictionary, visitor, true, cache);
+        }
+    }
+
+    /**
+     * {@link Encoding} holds the buffers to encode a number and translates
+     * every path found by the visitor to the original words for a sink. It's
+     * also the sink that collects the encodings for
+     * {@link NumberEncoder#encode(CharSequence)}, and it collects the
+     * encodings streamed to another sink while they may still be cached.
+     */
+    private class Encoding implements PathListener, BatchPathListener, EncodingSink {
+        private int[] digits = new int[64];
+        private final StringBuilder originalWord = new StringBuilder();
+        private final List<String> originalWords = new ArrayList<String>();
+        private final DigitKey key = new DigitKey();
+        private int[] wordIndices = new int[16];
+
+        /**
+         * The digits of the numbers of a batch that aren't cached, the index
+         * of each in the batch, and the range of its encodings in
+         * {@link #originalWords}.
+         */
+        private int[][] batchDigits = new int[BATCH_SIZE][];
+        private int[] batchLengths = new int[BATCH_SIZE];
+        private int[] batchNumbers = new int[BATCH_SIZE];
+        private int[] batchFirstWords = new int[BATCH_SIZE];
+        private int[] batchEndWords = new int[BATCH_SIZE];
+
+        private Snapshot current;
+        private EncodingSink sink;
+        private int limit;
+        private int count;
+
+        /**
+         * Whether the encodings passed to the sink are collected too.
+         */
+        private boolean collecting;
+
+        /**
+         * Whether the sink or the limit stopped the last visit.
+         */
+        private boolean stopped;
+
+        /**
+         * Copy the digits of a number to the digit buffer. Dashes and slashes
+         * are skipped.
+         *
+         * @param number the number
+         * @return the number of digits
+         */
+        private int parseDigits(CharSequence number) {
+            if (digits.length < number.length()) {
+                digits = new int[number.length()];
+            }
+            return parseDigits(number, digits);
+        }
+
+        private int parseDigits(CharSequence number, int[] digits) {
+            int length = 0;
+            for (int i = 0; i < number.length(); i++) {
+                char ch = number.charAt(i);
+                if (ch != '/' && ch != '-')
+                    digits[length++] = Character.getNumericValue(ch);
+            }
+            return length;
+        }
+
+        /**
+         * Visit the parsed digits and pass the encodings to a sink.
+         *
+         * @param current the dictionary to encode with
+         * @param length  the number of digits
+         * @param limit   the maximum number of encodings to pass
+         * @param sink    the sink
+         * @return the number of encodings passed to the sink
+         */
+        private int visit(Snapshot current, int length, int limit, EncodingSink sink) {
+            this.current = current;
+            this.sink = sink;
+            this.limit = limit;
+            this.count = 0;
+            this.stopped = false;
+            try {
+                current.visitor.visit(digits, length, current.digitToCharacters, this);
+            } finally {
+                this.current = null;
+                this.sink = null;
+            }
+            return count;
+        }
+
+        /**
+         * Encode the numbers of a batch that aren't cached together, and add
+         * the words of every number of the batch to a list.
+         *
+         * @param current the dictionary to encode with
+         * @param batch   the numbers
+         * @param words   the list of the words of every number
+         */
+        private void encodeBatch(Snapshot current, List<CharSequence> batch, List<String[]> words) {
+            int first = words.size();
+            int count = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                CharSequence number = batch.get(i);
+                if (batchDigits[count] == null || batchDigits[count].length < number.length())
+                    batchDigits[count] = new int[Math.max(number.length(), 16)];
+                int length = parseDigits(number, batchDigits[count]);
+
+                String[] cached = null;
+                if (current.cache != null && key.set(batchDigits[count], length))
+                    cached = current.cache.get(key);
+                words.add(cached == null ? null : cached.clone());
+                if (cached == null) {
+                    batchLengths[count] = length;
+                    batchNumbers[count] = i;
+                    batchFirstWords[count] = 0;
+                    batchEndWords[count] = 0;
+                    count++;
+                }
+            }
+
+            this.current = current;
+            this.sink = this;
+            this.limit = NO_LIMIT;
+            this.collecting = false;
+            originalWords.clear();
+            try {
+                current.visitor.visitAll(batchDigits, batchLengths, count, current.digitToCharacters, this);
+            } finally {
+                this.current = null;
+                this.sink = null;
+            }
+
+            for (int n = 0; n < count; n++) {
+                String[] numberWords = toSortedArray(current,
+                        originalWords.subList(batchFirstWords[n], batchEndWords[n]));
+                words.set(first + batchNumbers[n], numberWords);
+                if (current.cache != null && key.set(batchDigits[n], batchLengths[n]))
+                    current.cache.put(key, numberWords);
+            }
+            originalWords.clear();
+        }
+
+        public boolean onPath(int number, EncodingPath path) {
+            // the encodings of a number come one after the other
+            if (batchEndWords[number] == 0)
+                batchFirstWords[number] = originalWords.size();
+            count = 0;
+            boolean goOn = onPath(path);
+            batchEndWords[number] = originalWords.size();
+            return goOn;
+        }
+
+        public boolean onPath(EncodingPath path) {
+            char[] characters = path.getCharacters();
+            originalWord.setLength(0);
+
+            if (current.ordered) {
+                // the path already holds the original words or their ranks
+                for (int word = 0; word < path.getWordCount(); word++) {
+                    if (word > 0)
+                        originalWord.append(' ');
+                    appendWord(path, word);
+                }
+                return pass();
+            }
+
+            if (wordIndices.length < path.getWordCount())
+                wordIndices = new int[Math.max(wordIndices.length * 2, path.getWordCount())];
+            for (int word = 0; word < path.getWordCount(); word++) {
+                int start = path.getWordStart(word);
+                wordIndices[word] = path.isDigit(word) || path.getWordRank(word) != EncodingPath.NO_RANK
+                        ? IDawg.NO_WORD
+                        : current.dawg.getWordIndex(characters, start, path.getWordEnd(word) - start);
+            }
+            return appendOriginalWords(path, 0);
+        }
+
+        /**
+         * Append a word of the path as it's spelled, looking up the spelling
+         * of a rank in the dictionary.
+         */
+        private void appendWord(EncodingPath path, int word) {
+            int rank = path.getWordRank(word);
+            if (rank != EncodingPath.NO_RANK) {
+                current.dictionary.appendSpelling(rank, originalWord);
+                return;
+            }
+            int start = path.getWordStart(word);
+            originalWord.append(path.getCharacters(), start, path.getWordEnd(word) - start);
+        }
+
+        /**
+         * Append every original spelling of a word of the path, and of the
+         * words after it, and pass the encodings to the sink.
+         *
+         * @return false if the encoding stops
+         */
+        private boolean appendOriginalWords(EncodingPath path, int word) {
+            if (word == path.getWordCount())
+                return pass();
+
+            if (word > 0)
+                originalWord.append(' ');
+            int length = originalWord.length();
+            int index = wordIndices[word];
+            if (index == IDawg.NO_WORD) {
+                // a kept digit, or a spelling by its rank
+                appendWord(path, word);
+                return appendOriginalWords(path, word + 1);
+            }
+
+            WordTable dictionary = current.dictionary;
+            for (int original = 0; original < dictionary.getOriginalCount(index); original++) {
+                originalWord.setLength(length);
+                dictionary.appendOriginal(index, original, originalWord);
+                if (!appendOriginalWords(path, word + 1))
+                    return false;
+            }
+            return true;
+        }
+
+        /**
+         * Pass the encoding built in {@link #originalWord} to the sink.
+         *
+         * @return false if the encoding stops
+         */
+        private boolean pass() {
+            count++;
+            boolean goOn;
+            if (collecting) {
+                String encoding = originalWord.toString();
+                if (originalWords.size() < MAX_STREAMED_ENCODINGS_CACHED)
+                    originalWords.add(encoding);
+                else
+                    collecting = false;
+                goOn = sink.accept(encoding);
+            } else {
+                goOn = sink.accept(originalWord);
+            }
+            stopped = !goOn || count >= limit;
+            return !stopped;
+        }
+
+        public boolean accept(CharSequence encoding) {
+            originalWords.add(encoding.toString());
+            return true;
+        }
+    }
 }
@@ -0,0 +1,224 @@
+package encoder;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import dawg.DawgFootprint;
+import image.ImageWriter;
+
+/**
+ * {@link OriginalWordTable} keeps the original spellings of the formatted
+ * words in a single char array. The formatted words themselves aren't kept:
+ * a word is identified by its index in the graph, which numbers the words in
+ * alphabetical order, so the spellings are stored in the order they're
+ * added.
+ *
+ * The spellings of word w are the spellings firstOriginal[w] to
+ * firstOriginal[w + 1] - 1, and spelling s spans originalStarts[s] to
+ * originalStarts[s + 1] - 1 of the characters. Once all words are put,
+ * {@link #rankSpellings()} sorts the spellings of all words, and the
+ * spelling of rank r is spelling spellingsByRank[r]. The table can be
+ * written to an image with {@link #writeTo(ImageWriter)} and used from
+ * there as a {@link MappedWordTable}.
+ */
+class OriginalWordTable implements WordTable {
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private int[] firstOriginal;
+	private int size;
+
+	private int[] originalStarts;
+	private int originalCount;
+
+	private char[] characters;
+
+	/**
+	 * The spellings in the order of their characters, or null if they're not
+	 * ranked yet.
+	 */
+	private int[] spellingsByRank;
+
+	/**
+	 * The last formatted word added, to tell whether the next spelling
+	 * belongs to the same word.
+	 */
+	private String lastFormattedWord;
+
+	public OriginalWordTable() {
+		firstOriginal = new int[INITIAL_CAPACITY + 1];
+		originalStarts = new int[INITIAL_CAPACITY + 1];
+		characters = new char[INITIAL_CAPACITY * 8];
+	}
+
+	/**
+	 * Add the original spelling of the next formatted word. A spelling that
+	 * was already added for the same formatted word is ignored.
+	 *
+	 * @param formattedWord
+	 *            the formatted word
+	 * @param originalWord
+	 *            the original word
+	 * @throws IllegalArgumentException
+	 *             when the formatted word comes before the last one
+	 */
+	public void put(String formattedWord, String originalWord) {
+		int order = lastFormattedWord == null ? 1 : formattedWord.compareTo(lastFormattedWord);
+		if (order < 0) {
+			throw new IllegalArgumentException("Words not added in alphabetical order: " + formattedWord);
+		}
+		if (order == 0 && contains(size - 1, originalWord)) {
+			return;
+		}
+
+		if (order > 0) {
+			if (size + 1 == firstOriginal.length) {
+				firstOriginal = Arrays.copyOf(firstOriginal, size * 2 + 1);
+			}
+			firstOriginal[size++] = originalCount;
+			lastFormattedWord = formattedWord;
+		}
+
+		if (originalCount + 1 == originalStarts.length) {
+			originalStarts = Arrays.copyOf(originalStarts, originalCount * 2 + 1);
+		}
+		int start = originalStarts[originalCount];
+		if (start + originalWord.length() > characters.length) {
+			characters = Arrays.copyOf(characters, Math.max(characters.length * 2, start + originalWord.length()));
+		}
+		originalWord.getChars(0, originalWord.length(), characters, start);
+		originalStarts[++originalCount] = start + originalWord.length();
+		firstOriginal[size] = originalCount;
+		spellingsByRank = null;
+	}
+
+	/**
+	 * Rank the spellings of all words in the order of
+	 * {@link String#compareTo(String)}, for
+	 * {@link #appendSpelling(int, StringBuilder)}.
+	 */
+	public void rankSpellings() {
+		Integer[] order = new Integer[originalCount];
+		for (int s = 0; s < originalCount; s++) {
+			order[s] = s;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer spelling1, Integer spelling2) {
+				int start1 = originalStarts[spelling1];
+				int start2 = originalStarts[spelling2];
+				int length1 = originalStarts[spelling1 + 1] - start1;
+				int length2 = originalStarts[spelling2 + 1] - start2;
+				for (int i = 0; i < Math.min(length1, length2); i++) {
+					if (characters[start1 + i] != characters[start2 + i])
+						return characters[start1 + i] - characters[start2 + i];
+				}
+				return length1 - length2;
+			}
+		});
+
+		spellingsByRank = new int[originalCount];
+		for (int rank = 0; rank < originalCount; rank++) {
+			spellingsByRank[rank] = order[rank];
+		}
+	}
+
+	private boolean contains(int word, String originalWord) {
+		for (int s = firstOriginal[word]; s < firstOriginal[word + 1]; s++) {
+			if (matches(originalStarts[s], originalStarts[s + 1], originalWord)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean matches(int start, int end, String originalWord) {
+		if (end - start != originalWord.length())
+			return false;
+		for (int i = 0; i < originalWord.length(); i++) {
+			if (characters[start + i] != originalWord.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
+	public int getOriginalCount(int word) {
+		return firstOriginal[word + 1] - firstOriginal[word];
+	}
+
+	public void appendOriginal(int word, int original, StringBuilder destination) {
+		int s = firstOriginal[word] + original;
+		destination.append(characters, originalStarts[s], originalStarts[s + 1] - originalStarts[s]);
+	}
+
+	public int getSpellingCount() {
+		return originalCount;
+	}
+
+	/**
+	 * @throws IllegalStateException
+	 *             when the spellings aren't ranked
+	 */
+	public void appendSpelling(int rank, StringBuilder destination) {
+		if (spellingsByRank == null)
+			throw new IllegalStateException("The spellings are not ranked");
+		int s = spellingsByRank[rank];
+		destination.append(characters, originalStarts[s], originalStarts[s + 1] - originalStarts[s]);
+	}
+
+	/**
+	 * @param word
+	 *            the index of the formatted word
+	 * @param original
+	 *            the index of the spelling
+	 * @return the original spelling
+	 */
+	public String get(int word, int original) {
+		StringBuilder builder = new StringBuilder();
+		appendOriginal(word, original, builder);
+		return builder.toString();
+	}
+
+	/**
+	 * @return the number of formatted words
+	 */
+	public int size() {
+		return size;
+	}
+
+	public long getByteSize() {
+		return DawgFootprint.arrayBytes(firstOriginal.length, 4) + DawgFootprint.arrayBytes(originalStarts.length, 4)
+				+ DawgFootprint.arrayBytes(characters.length, 2)
+				+ (spellingsByRank == null ? 0 : DawgFootprint.arrayBytes(spellingsByRank.length, 4));
+	}
+
+	/**
+	 * Write the table to an image, in the format read by
+	 * {@link MappedWordTable#read(image.ImageReader)}. The spellings are
+	 * ranked first if they aren't yet.
+	 *
+	 * @param image
+	 *            the image
+	 * @throws IOException
+	 *             when the image can't be written
+	 * @throws IllegalArgumentException
+	 *             when a spelling isn't ISO-8859-1
+	 */
+	public void writeTo(ImageWriter image) throws IOException {
+		int length = originalStarts[originalCount];
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			if (characters[i] > 0xFF)
+				throw new IllegalArgumentException("Only ISO-8859-1 spellings can be written: " + characters[i]);
+			bytes[i] = (byte) characters[i];
+		}
+
+		image.writeInt(size);
+		image.writeInt(originalCount);
+		image.writeInts(firstOriginal, size + 1);
+		image.writeInts(originalStarts, originalCount + 1);
+		image.writeBytes(bytes, length);
+		if (spellingsByRank == null)
+			rankSpellings();
+		image.writeInts(spellingsByRank, originalCount);
+	}
+}
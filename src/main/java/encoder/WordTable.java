@@ -0,0 +1,61 @@
+package encoder;
+
+/**
+ * {@link WordTable} holds the original spellings of the formatted words,
+ * indexed by the index of the formatted word in the graph. A formatted word
+ * may have several original spellings.
+ */
+interface WordTable {
+
+	/**
+	 * Add the original spelling of the next formatted word. Formatted words
+	 * must be added in alphabetical order, like they're added to the graph,
+	 * so that the n-th distinct formatted word gets index n.
+	 *
+	 * @param formattedWord the formatted word
+	 * @param originalWord  the original word
+	 */
+	void put(String formattedWord, String originalWord);
+
+	/**
+	 * @param word the index of the formatted word
+	 * @return the number of original spellings of the word
+	 */
+	int getOriginalCount(int word);
+
+	/**
+	 * Append an original spelling of a formatted word.
+	 *
+	 * @param word        the index of the formatted word
+	 * @param original    the index of the spelling, from 0 to
+	 *                    {@link #getOriginalCount(int)} - 1
+	 * @param destination the builder to append the original word to
+	 */
+	void appendOriginal(int word, int original, StringBuilder destination);
+
+	/**
+	 * @return the number of original spellings of all words
+	 */
+	int getSpellingCount();
+
+	/**
+	 * Append an original spelling by its rank among the spellings of all
+	 * words, in the order of {@link String#compareTo(String)}.
+	 *
+	 * @param rank        the rank of the spelling, from 0 to
+	 *                    {@link #getSpellingCount()} - 1
+	 * @param destination the builder to append the original word to
+	 */
+	void appendSpelling(int rank, StringBuilder destination);
+
+	/**
+	 * @return the number of formatted words
+	 */
+	int size();
+
+	/**
+	 * @return the size of the table in bytes, as
+	 *         {@link dawg.DawgFootprint#getByteSize()} counts it
+	 */
+	long getByteSize();
+}
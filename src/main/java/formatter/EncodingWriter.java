@@ -0,0 +1,121 @@
+package formatter;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+
+/**
+ * {@link EncodingWriter} writes the phone numbers and matching words in the
+ * same format as {@link NumberEncodeFormatter}, but straight into a reusable
+ * byte buffer. The buffer is only written to the channel when it's full or
+ * flushed, so the output goes out in large chunks and no String is built per
+ * phone number.
+ *
+ * ASCII characters are copied to the buffer as they are. Other characters
+ * are encoded with the platform's default charset, like
+ * {@link System#out} does.
+ *
+ * An {@link EncodingWriter} is not thread-safe.
+ */
+public class EncodingWriter implements Flushable {
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private static final String NEW_LINE = System.getProperty("line.separator");
+
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+
+    public EncodingWriter(WritableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    public EncodingWriter(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    /**
+     * Write one line per word sequence: the phone number, a colon, a single
+     * space and the words.
+     *
+     * @param phoneNumber the phone number
+     * @param words       the matching words
+     * @throws IOException when the channel can't be written
+     */
+    public void write(CharSequence phoneNumber, String[] words) throws IOException {
+        for (String w : words) {
+            write(phoneNumber, w);
+        }
+    }
+
+    /**
+     * Write a single line: the phone number, a colon, a single space and the
+     * words of one encoding.
+     *
+     * @param phoneNumber the phone number
+     * @param words       the words, separated by spaces
+     * @throws IOException when the channel can't be written
+     */
+    public void write(CharSequence phoneNumber, CharSequence words) throws IOException {
+        append(phoneNumber);
+        append(": ");
+        append(words);
+        append(NEW_LINE);
+    }
+
+    /**
+     * Write an empty line.
+     *
+     * @throws IOException when the channel can't be written
+     */
+    public void newLine() throws IOException {
+        append(NEW_LINE);
+    }
+
+    private void append(CharSequence text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            if (ch >= 0x80) {
+                appendEncoded(text.subSequence(i, text.length()).toString());
+                return;
+            }
+            if (!buffer.hasRemaining())
+                writeBuffer();
+            buffer.put((byte) ch);
+        }
+    }
+
+    private void appendEncoded(String text) throws IOException {
+        byte[] bytes = text.getBytes(CHARSET);
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!buffer.hasRemaining())
+                writeBuffer();
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Write everything buffered so far to the channel.
+     *
+     * @throws IOException when the channel can't be written
+     */
+    public void flush() throws IOException {
+        if (buffer.position() > 0)
+            writeBuffer();
+    }
+}
@@ -0,0 +1,78 @@
+package image;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link ImageReader} reads an image written by an {@link ImageWriter}.
+ *
+ * Arrays are not copied: they are returned as read-only views of the
+ * underlying buffer, which is usually a memory-mapped file. The views can
+ * be shared between threads as long as only their absolute get methods are
+ * used.
+ */
+public class ImageReader {
+    private final ByteBuffer buffer;
+
+    public ImageReader(ByteBuffer buffer) {
+        this.buffer = buffer.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Map a file into memory. The file stays mapped until the reader and all
+     * views are garbage collected.
+     *
+     * @param path the file path
+     * @return the reader
+     * @throws IOException when the file can't be opened or mapped
+     */
+    public static ImageReader map(String path) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        try {
+            // the mapping stays valid after the channel is closed
+            return new ImageReader(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            channel.close();
+        }
+    }
+
+    public int readInt() {
+        return buffer.getInt();
+    }
+
+    public ByteBuffer readBytes(int count) {
+        return slice(count);
+    }
+
+    public IntBuffer readInts(int count) {
+        return slice(count * 4).asIntBuffer();
+    }
+
+    public LongBuffer readLongs(int count) {
+        return slice(count * 8).asLongBuffer();
+    }
+
+    public CharBuffer readChars(int count) {
+        return slice(count * 2).asCharBuffer();
+    }
+
+    private ByteBuffer slice(int length) {
+        align();
+        ByteBuffer array = buffer.slice();
+        array.limit(length);
+        buffer.position(buffer.position() + length);
+        return array;
+    }
+
+    private void align() {
+        int padding = (ImageWriter.ALIGNMENT - buffer.position() % ImageWriter.ALIGNMENT) % ImageWriter.ALIGNMENT;
+        buffer.position(buffer.position() + padding);
+    }
+}
@@ -0,0 +1,96 @@
+package image;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * {@link ImageWriter} writes the sections of a binary image that is read
+ * back with an {@link ImageReader}.
+ *
+ * Values are written big-endian. Every array starts at a multiple of 8
+ * bytes from the start of the image, so that the reader can view it as a
+ * typed buffer without copying it.
+ */
+public class ImageWriter implements Closeable {
+    static final int ALIGNMENT = 8;
+
+    private final DataOutputStream out;
+
+    public ImageWriter(OutputStream out) {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+    }
+
+    public void writeInt(int value) throws IOException {
+        out.writeInt(value);
+    }
+
+    public void writeBytes(byte[] values, int count) throws IOException {
+        align();
+        out.write(values, 0, count);
+    }
+
+    public void writeInts(int[] values, int count) throws IOException {
+        align();
+        for (int i = 0; i < count; i++) {
+            out.writeInt(values[i]);
+        }
+    }
+
+    /**
+     * Write the elements of a buffer up to its limit.
+     *
+     * @param values the buffer
+     * @throws IOException when the image can't be written
+     */
+    public void writeInts(IntBuffer values) throws IOException {
+        align();
+        for (int i = 0; i < values.limit(); i++) {
+            out.writeInt(values.get(i));
+        }
+    }
+
+    public void writeLongs(LongBuffer values) throws IOException {
+        align();
+        for (int i = 0; i < values.limit(); i++) {
+            out.writeLong(values.get(i));
+        }
+    }
+
+    public void writeChars(CharBuffer values) throws IOException {
+        align();
+        for (int i = 0; i < values.limit(); i++) {
+            out.writeChar(values.get(i));
+        }
+    }
+
+    /**
+     * Write the characters of several strings as a single array. The start
+     * of every string has to be written separately.
+     *
+     * @param values the strings
+     * @param count  the number of strings to write
+     * @throws IOException when the image can't be written
+     */
+    public void writeChars(String[] values, int count) throws IOException {
+        align();
+        for (int i = 0; i < count; i++) {
+            out.writeChars(values[i]);
+        }
+    }
+
+    private void align() throws IOException {
+        while (out.size() % ALIGNMENT != 0) {
+            out.writeByte(0);
+        }
+    }
+
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,128 @@
+package main;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import encoder.NumberEncoder;
+
+/**
+ * {@link DictionaryWatcher} reloads a dictionary on a background thread when
+ * its file changes, and swaps it into an encoder with
+ * {@link NumberEncoder#replaceDictionary(NumberEncoder)}. The encoder keeps
+ * encoding with the old dictionary while the new one is loaded, and keeps it
+ * if the new one can't be loaded.
+ *
+ * A dictionary being written still parses, so a changed file is only loaded
+ * once its size and modification time stay the same across two checks. The
+ * size tells a file completed within the same tick of the modification time
+ * apart from the partial file seen before.
+ */
+public class DictionaryWatcher implements Runnable, Closeable {
+    private final File dictionary;
+    private final NumberEncoder encoder;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * The modification time and size of the dictionary last loaded, and of
+     * the dictionary seen by the last check, only used by the scheduler
+     * thread.
+     */
+    private long loadedModified;
+    private long loadedSize;
+    private long seenModified;
+    private long seenSize;
+
+    private final AtomicInteger reloads = new AtomicInteger();
+
+    /**
+     * @param dictionary the dictionary text file or image path, which the
+     *                   encoder was loaded from
+     * @param encoder    the encoder
+     */
+    public DictionaryWatcher(String dictionary, NumberEncoder encoder) {
+        this.dictionary = new File(dictionary);
+        this.encoder = encoder;
+        this.loadedModified = this.seenModified = this.dictionary.lastModified();
+        this.loadedSize = this.seenSize = this.dictionary.length();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "dictionary-watcher");
+                // a watcher never keeps the application running
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Check the dictionary for changes periodically.
+     *
+     * @param interval the time between two checks
+     * @param unit     the unit of the interval
+     */
+    public void start(long interval, TimeUnit unit) {
+        scheduler.scheduleWithFixedDelay(this, interval, interval, unit);
+    }
+
+    /**
+     * Reload the dictionary if it was modified since it was last loaded, and
+     * hasn't changed since the previous check.
+     */
+    public void run() {
+        long modified = dictionary.lastModified();
+        long size = dictionary.length();
+        if (modified != seenModified || size != seenSize) {
+            // it may still be written, so it's checked again first
+            seenModified = modified;
+            seenSize = size;
+            return;
+        }
+        if (modified == loadedModified && size == loadedSize)
+            return;
+        loadedModified = modified;
+        loadedSize = size;
+        reload();
+    }
+
+    /**
+     * Load the dictionary and swap it into the encoder.
+     *
+     * @return false if the dictionary couldn't be loaded, in which case the
+     *         encoder keeps the old one
+     */
+    public boolean reload() {
+        NumberEncoder loaded;
+        try {
+            loaded = NumberEncoderApp.loadDictionary(dictionary.getPath());
+        } catch (IOException e) {
+            System.err.println("Keeping the old dictionary, can't read " + dictionary + ": " + e.getMessage());
+            return false;
+        } catch (RuntimeException e) {
+            System.err.println("Keeping the old dictionary, can't load " + dictionary + ": " + e);
+            return false;
+        }
+        encoder.replaceDictionary(loaded);
+        reloads.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * @return the number of times the dictionary was swapped into the encoder
+     */
+    public int getReloads() {
+        return reloads.get();
+    }
+
+    /**
+     * Stop checking the dictionary.
+     */
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,280 @@
+package main;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.channels.Channels;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import encoder.NumberEncoder;
+import formatter.EncodingWriter;
+import reader.AsciiLineReader;
+
+/**
+ * {@link EncodingServer} keeps a dictionary loaded and encodes the phone
+ * numbers sent to it over a loopback socket, so that callers don't pay for
+ * starting a JVM and loading the dictionary every time.
+ *
+ * The protocol is line based: a client sends one phone number per line, and
+ * gets back the encodings of every number in the order they were sent, in
+ * the same format as the batch output, each number followed by an empty
+ * line. A client may send many numbers before reading the answers.
+ *
+ * Every connection is served by its own thread, which only reads and
+ * writes. The numbers of all connections are queued to a few encoder threads
+ * that take them in batches, so a busy encoder thread picks up everything
+ * that's waiting in one go. The queue is bounded: when the clients send
+ * faster than the numbers are encoded, the connection threads wait to queue
+ * theirs and stop reading, until the socket buffers are full and the
+ * clients wait too.
+ */
+public class EncodingServer implements Closeable {
+    public static final int DEFAULT_PORT = 4711;
+
+    public static final int DEFAULT_BATCH_SIZE = 64;
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 4096;
+
+    /**
+     * Number of numbers a connection may have queued before it waits for
+     * their encodings and writes them.
+     */
+    private static final int MAX_PENDING_PER_CONNECTION = 256;
+
+    /**
+     * Number of bytes of a line, far more than any phone number, after which
+     * a connection is closed rather than buffering the line.
+     */
+    static final int MAX_LINE_LENGTH = 4096;
+
+    private final NumberEncoder encoder;
+    private final int threads;
+    private final int batchSize;
+    private final BlockingQueue<Request> queue;
+
+    private final ExecutorService encoders;
+    private final ExecutorService connections;
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private ServerSocket serverSocket;
+    private Thread acceptor;
+
+    /**
+     * @param encoder       the prepared encoder
+     * @param threads       the number of encoder threads
+     * @param batchSize     the maximum number of phone numbers an encoder
+     *                      thread takes at once
+     * @param queueCapacity the maximum number of phone numbers waiting to
+     *                      be encoded
+     */
+    public EncodingServer(NumberEncoder encoder, int threads, int batchSize, int queueCapacity) {
+        if (threads <= 0 || batchSize <= 0 || queueCapacity <= 0)
+            throw new IllegalArgumentException("Threads, batch size and queue capacity must be positive");
+
+        this.encoder = encoder;
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<Request>(queueCapacity);
+        this.encoders = Executors.newFixedThreadPool(threads, daemonThreads("encoder"));
+        this.connections = Executors.newCachedThreadPool(daemonThreads("connection"));
+    }
+
+    private static ThreadFactory daemonThreads(final String name) {
+        final AtomicInteger count = new AtomicInteger();
+        return new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    /**
+     * Listen on a loopback port and start serving.
+     *
+     * @param port the port, or 0 for any free port
+     * @throws IOException when the port can't be bound
+     */
+    public void start(int port) throws IOException {
+        serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+        for (int i = 0; i < threads; i++) {
+            encoders.execute(new Runnable() {
+                public void run() {
+                    encodeBatches();
+                }
+            });
+        }
+        acceptor = daemonThreads("acceptor").newThread(new Runnable() {
+            public void run() {
+                accept();
+            }
+        });
+        acceptor.start();
+    }
+
+    /**
+     * Wait until the server is closed.
+     *
+     * @throws InterruptedException when the waiting thread is interrupted
+     */
+    public void awaitClose() throws InterruptedException {
+        acceptor.join();
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return the number of phone numbers received so far
+     */
+    public int getRequests() {
+        return requests.get();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                // the server socket was closed
+                return;
+            }
+            sockets.add(socket);
+            connections.execute(new Runnable() {
+                public void run() {
+                    serve(socket);
+                }
+            });
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            AsciiLineReader reader = new AsciiLineReader(Channels.newChannel(socket.getInputStream()),
+                    AsciiLineReader.DEFAULT_BUFFER_SIZE, MAX_LINE_LENGTH);
+            EncodingWriter writer = new EncodingWriter(Channels.newChannel(socket.getOutputStream()));
+            Queue<Request> pending = new ArrayDeque<Request>();
+            while (reader.nextLine()) {
+                Request request = new Request(reader.lineAsString());
+                queue.put(request);
+                pending.add(request);
+
+                // the numbers the client sent together are queued together,
+                // and answered once they're all queued
+                if (pending.size() < MAX_PENDING_PER_CONNECTION && reader.hasBufferedLine())
+                    continue;
+                writePending(pending, writer);
+            }
+            // the client may stop sending before reading the last answers
+            writePending(pending, writer);
+        } catch (InterruptedException e) {
+            // the server is closed
+        } catch (SocketException e) {
+            // the client or the server closed the connection
+        } catch (IOException e) {
+            System.err.println("Closing connection: " + e);
+        } finally {
+            sockets.remove(socket);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // nothing left to do with it
+            }
+        }
+    }
+
+    private static void writePending(Queue<Request> pending, EncodingWriter writer)
+            throws IOException, InterruptedException {
+        while (!pending.isEmpty()) {
+            pending.remove().writeTo(writer);
+        }
+        writer.flush();
+    }
+
+    private void encodeBatches() {
+        List<Request> batch = new ArrayList<Request>(batchSize);
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+                requests.addAndGet(batch.size());
+                for (Request request : batch) {
+                    request.encode(encoder);
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            // the server is closed
+        }
+    }
+
+    /**
+     * Stop listening and close every connection.
+     *
+     * @throws IOException when the server socket can't be closed
+     */
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+        connections.shutdownNow();
+        encoders.shutdownNow();
+    }
+
+    /**
+     * {@link Request} is a phone number waiting to be encoded, and then
+     * waiting to be written.
+     */
+    private static class Request {
+        private final String phoneNumber;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private String[] encodings;
+        private RuntimeException failure;
+
+        public Request(String phoneNumber) {
+            this.phoneNumber = phoneNumber;
+        }
+
+        public void encode(NumberEncoder encoder) {
+            try {
+                encodings = encoder.encode(phoneNumber);
+            } catch (RuntimeException e) {
+                failure = e;
+            } finally {
+                done.countDown();
+            }
+        }
+
+        public void writeTo(EncodingWriter writer) throws IOException, InterruptedException {
+            done.await();
+            if (failure != null)
+                throw new IOException("Can't encode " + phoneNumber, failure);
+            writer.write(phoneNumber, encodings);
+            writer.newLine();
+        }
+    }
+}
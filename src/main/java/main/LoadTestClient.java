@@ -0,0 +1,183 @@
+package main;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import reader.AsciiLineReader;
+
+/**
+ * {@link LoadTestClient} sends phone numbers to an {@link EncodingServer} on
+ * the loopback interface from several connections at once, and measures the
+ * throughput and the latency of the answers.
+ *
+ * Every connection sends one number, waits for its encodings and sends the
+ * next, so the latency of every number is the time to its empty line. The
+ * numbers are taken from a list in turn, starting at a different place for
+ * every connection.
+ */
+public class LoadTestClient {
+    private final int port;
+    private final int connections;
+    private final int requestsPerConnection;
+
+    /**
+     * @param port                  the server port
+     * @param connections           the number of concurrent connections
+     * @param requestsPerConnection the number of phone numbers sent by every
+     *                              connection
+     */
+    public LoadTestClient(int port, int connections, int requestsPerConnection) {
+        this.port = port;
+        this.connections = connections;
+        this.requestsPerConnection = requestsPerConnection;
+    }
+
+    /**
+     * Send the phone numbers and wait for all the answers.
+     *
+     * @param phoneNumbers the phone numbers to send
+     * @return the results
+     * @throws IOException when the server can't be reached or closes a
+     *                     connection
+     */
+    public Result run(final List<String> phoneNumbers) throws IOException {
+        if (phoneNumbers.isEmpty())
+            throw new IllegalArgumentException("No phone numbers to send");
+
+        ExecutorService clients = Executors.newFixedThreadPool(connections);
+        try {
+            List<Future<long[]>> latencies = new ArrayList<Future<long[]>>();
+            long start = System.nanoTime();
+            for (int c = 0; c < connections; c++) {
+                final int first = c * phoneNumbers.size() / connections;
+                latencies.add(clients.submit(new Callable<long[]>() {
+                    public long[] call() throws IOException {
+                        return send(phoneNumbers, first);
+                    }
+                }));
+            }
+
+            long[] all = new long[connections * requestsPerConnection];
+            long encodings = 0;
+            for (int c = 0; c < connections; c++) {
+                long[] connectionLatencies = await(latencies.get(c));
+                // the last slot holds the number of encodings received
+                System.arraycopy(connectionLatencies, 0, all, c * requestsPerConnection, requestsPerConnection);
+                encodings += connectionLatencies[requestsPerConnection];
+            }
+            return new Result(all, encodings, System.nanoTime() - start);
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    private long[] send(List<String> phoneNumbers, int first) throws IOException {
+        long[] latencies = new long[requestsPerConnection + 1];
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        try {
+            socket.setTcpNoDelay(true);
+            OutputStream out = socket.getOutputStream();
+            AsciiLineReader in = new AsciiLineReader(Channels.newChannel(socket.getInputStream()));
+            for (int i = 0; i < requestsPerConnection; i++) {
+                String phoneNumber = phoneNumbers.get((first + i) % phoneNumbers.size());
+                long start = System.nanoTime();
+                out.write((phoneNumber + "\n").getBytes(StandardCharsets.ISO_8859_1));
+                out.flush();
+                while (true) {
+                    if (!in.nextLine())
+                        throw new IOException("The server closed the connection");
+                    if (in.line().length() == 0)
+                        break;
+                    latencies[requestsPerConnection]++;
+                }
+                latencies[i] = System.nanoTime() - start;
+            }
+        } finally {
+            socket.close();
+        }
+        return latencies;
+    }
+
+    private static long[] await(Future<long[]> latencies) throws IOException {
+        try {
+            return latencies.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the server", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * {@link Result} holds the latency of every phone number sent.
+     */
+    public static class Result {
+        private final long[] latencies;
+        private final long encodings;
+        private final long elapsedNanos;
+
+        public Result(long[] latencies, long encodings, long elapsedNanos) {
+            this.latencies = latencies.clone();
+            Arrays.sort(this.latencies);
+            this.encodings = encodings;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * @return the number of phone numbers answered
+         */
+        public int getRequests() {
+            return latencies.length;
+        }
+
+        /**
+         * @return the number of encodings received
+         */
+        public long getEncodings() {
+            return encodings;
+        }
+
+        /**
+         * @return the phone numbers answered per second
+         */
+        public double getThroughput() {
+            return latencies.length * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * @param percent the percentile, from 0 to 100
+         * @return the latency in nanoseconds that the given percentage of
+         *         the phone numbers didn't exceed
+         */
+        public long getLatencyPercentile(double percent) {
+            if (latencies.length == 0)
+                return 0;
+            int index = (int) Math.ceil(percent / 100 * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(latencies.length - 1, index))];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d requests, %d encodings in %.2f s: %.0f requests/s, p50 %.1f us, p99 %.1f us",
+                    getRequests(), encodings, elapsedNanos / 1e9, getThroughput(),
+                    getLatencyPercentile(50) / 1e3, getLatencyPercentile(99) / 1e3);
+        }
+    }
+}
@@ -1,16 +1,38 @@
 package main;
 
-import java.io.BufferedInputStream;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
-import visitors.DawgVisitor;
-import dawg.Dawg;
+import javax.management.JMException;
+
+import visitors.MemoizedDigitTrieVisitor;
+import dawg.CompiledDawg;
+import dawg.DigitTrie;
+import encoder.DictionaryImage;
+import encoder.DictionarySorter;
+import encoder.EncoderMetrics;
+import encoder.EncodingCache;
+import encoder.EncodingSink;
 import encoder.NumberEncoder;
-import formatter.NumberEncodeFormatter;
+import formatter.EncodingWriter;
+import reader.AsciiLineReader;
 
 public class NumberEncoderApp {
     private static final Map<Integer, char[]> digitToCharacterMapping = new HashMap<Integer, char[]>() {
@@ -28,62 +50,461 @@ public class NumberEncoderApp {
         }
     };
 
-    private final NumberEncoder encoder;
+    private static final int DEFAULT_BATCH_SIZE = 256;
+
+    private static final int DEFAULT_CACHE_SIZE = 10000;
+
+    /**
+     * Number of batches per worker thread that may be encoded or waiting to
+     * be written at the same time.
+     */
+    private static final int BATCHES_IN_FLIGHT_PER_THREAD = 2;
 
-    public NumberEncoderApp() {
-        Dawg dawg = new Dawg();
-        encoder = new NumberEncoder(digitToCharacterMapping, dawg, new DawgVisitor(dawg));
+    private NumberEncoder encoder;
 
+    /**
+     * Create an encoder configured like the one the application uses. No
+     * words are added yet.
+     *
+     * @return the encoder
+     */
+    public static NumberEncoder newEncoder() {
+        CompiledDawg dawg = new CompiledDawg();
+        DigitTrie digitTrie = new DigitTrie(digitToCharacterMapping);
+        return new NumberEncoder(digitToCharacterMapping, dawg, digitTrie, new MemoizedDigitTrieVisitor(digitTrie));
     }
 
-    public static void main(String[] args) throws FileNotFoundException {
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && args[0].equals("compile")) {
+            compile(args[1], args[2]);
+            return;
+        }
+        if (args.length >= 2 && args[0].equals("serve")) {
+            serve(args[1], Arrays.copyOfRange(args, 2, args.length));
+            return;
+        }
+        if (args.length >= 2 && args[0].equals("loadtest")) {
+            loadTest(args[1], Arrays.copyOfRange(args, 2, args.length));
+            return;
+        }
+        if (args.length == 3 && (args[0].equals("count") || args[0].equals("exists"))) {
+            count(args[1], args[2], args[0].equals("exists"));
+            return;
+        }
         if (args.length < 2) {
-            System.out.println("Usage: NumberEncoderApp <phonebook> <dictionary>");
+            System.out.println("Usage: NumberEncoderApp <phonebook> <dictionary> [--threads <count>] [--batch-size <count>] [--cache <entries>] [--output <file>] [--watch <seconds>]");
+            System.out.println("       NumberEncoderApp compile <dictionary> <image>");
+            System.out.println("       NumberEncoderApp serve <dictionary> [--port <port>] [--threads <count>] [--batch-size <count>] [--queue <count>] [--cache <entries>] [--watch <seconds>]");
+            System.out.println("       NumberEncoderApp count|exists <phonebook> <dictionary>");
+            System.out.println("       NumberEncoderApp loadtest <phonebook> [--port <port>] [--connections <count>] [--requests <count>]");
+            System.out.println("The dictionary may be a text file or an image written by compile.");
+            System.out.println("With --watch, the dictionary is reloaded in the background once it has changed and stopped changing.");
+            System.out.println("With -Dencoder.instrumentation=true, the encoder records metrics, JFR events and publishes them through JMX.");
             return;
         }
+
+        int threads = 1;
+        int batchSize = DEFAULT_BATCH_SIZE;
+        int cacheSize = DEFAULT_CACHE_SIZE;
+        String output = null;
+        int watchSeconds = 0;
+        for (int i = 2; i < args.length; i += 2) {
+            if (i + 1 == args.length)
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            if (args[i].equals("--threads"))
+                threads = Integer.parseInt(args[i + 1]);
+            else if (args[i].equals("--batch-size"))
+                batchSize = Integer.parseInt(args[i + 1]);
+            else if (args[i].equals("--cache"))
+                cacheSize = Integer.parseInt(args[i + 1]);
+            else if (args[i].equals("--output"))
+                output = args[i + 1];
+            else if (args[i].equals("--watch"))
+                watchSeconds = Integer.parseInt(args[i + 1]);
+            else
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+        }
+
         NumberEncoderApp app = new NumberEncoderApp();
 
         app.initialize(args[1]);
-        app.run(args[0]);
+        // numbers repeat a lot in phone books, so they're encoded once while
+        // they're in the cache
+        if (cacheSize > 0)
+            app.encoder.setCache(new EncodingCache(cacheSize));
+        if (EncoderMetrics.ENABLED)
+            publishMetrics(app.encoder);
+
+        DictionaryWatcher watcher = null;
+        if (watchSeconds > 0) {
+            watcher = new DictionaryWatcher(args[1], app.encoder);
+            watcher.start(watchSeconds, TimeUnit.SECONDS);
+        }
+
+        // standard output is written through System.out, so that it can
+        // still be redirected with System.setOut
+        WritableByteChannel channel = output == null ? Channels.newChannel(System.out)
+                : new FileOutputStream(output).getChannel();
+        try {
+            EncodingWriter writer = new EncodingWriter(channel);
+            if (threads > 1)
+                app.runInParallel(args[0], writer, threads, batchSize);
+            else
+                app.run(args[0], writer);
+            writer.flush();
+            if (EncoderMetrics.ENABLED) {
+                System.err.println(app.encoder.getMetrics());
+                System.err.println(app.encoder.getMetrics().getFootprint());
+            }
+        } finally {
+            if (watcher != null)
+                watcher.close();
+            if (output == null)
+                System.out.flush();
+            else
+                channel.close();
+        }
     }
 
     /**
-     * Initialize encoder with a dictionary.
+     * Serve the encodings of a dictionary on a loopback port until the
+     * process is stopped.
+     *
+     * @param dictionary the dictionary text file or image path
+     * @param options    the options after the dictionary
+     * @throws IOException when the dictionary can't be read or the port
+     *                     can't be bound
+     */
+    private static void serve(String dictionary, String[] options) throws IOException {
+        int port = EncodingServer.DEFAULT_PORT;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int batchSize = EncodingServer.DEFAULT_BATCH_SIZE;
+        int queueCapacity = EncodingServer.DEFAULT_QUEUE_CAPACITY;
+        int cacheSize = DEFAULT_CACHE_SIZE;
+        int watchSeconds = 0;
+        for (int i = 0; i < options.length; i += 2) {
+            if (i + 1 == options.length)
+                throw new IllegalArgumentException("Missing value for " + options[i]);
+            if (options[i].equals("--port"))
+                port = Integer.parseInt(options[i + 1]);
+            else if (options[i].equals("--threads"))
+                threads = Integer.parseInt(options[i + 1]);
+            else if (options[i].equals("--batch-size"))
+                batchSize = Integer.parseInt(options[i + 1]);
+            else if (options[i].equals("--queue"))
+                queueCapacity = Integer.parseInt(options[i + 1]);
+            else if (options[i].equals("--cache"))
+                cacheSize = Integer.parseInt(options[i + 1]);
+            else if (options[i].equals("--watch"))
+                watchSeconds = Integer.parseInt(options[i + 1]);
+            else
+                throw new IllegalArgumentException("Unknown option " + options[i]);
+        }
+
+        NumberEncoder encoder = loadDictionary(dictionary);
+        if (cacheSize > 0)
+            encoder.setCache(new EncodingCache(cacheSize));
+        if (EncoderMetrics.ENABLED)
+            publishMetrics(encoder);
+        final DictionaryWatcher watcher = new DictionaryWatcher(dictionary, encoder);
+        if (watchSeconds > 0)
+            watcher.start(watchSeconds, TimeUnit.SECONDS);
+
+        final EncodingServer server = new EncodingServer(encoder, threads, batchSize, queueCapacity);
+        server.start(port);
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                watcher.close();
+                try {
+                    server.close();
+                } catch (IOException e) {
+                    // the process is ending anyway
+                }
+            }
+        });
+        System.out.println("Listening on port " + server.getPort());
+        try {
+            server.awaitClose();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Publish the metrics of an encoder through JMX. The encoder works the
+     * same if they can't be published.
+     */
+    private static void publishMetrics(NumberEncoder encoder) {
+        try {
+            encoder.getMetrics().register();
+        } catch (JMException e) {
+            System.err.println("Can't publish the encoder metrics: " + e);
+        }
+    }
+
+    /**
+     * Send the numbers of a phone book to a server and print the throughput
+     * and latency.
+     *
+     * @param phonebook the phone book file path
+     * @param options   the options after the phone book
+     * @throws IOException when the phone book can't be read or the server
+     *                     can't be reached
+     */
+    private static void loadTest(String phonebook, String[] options) throws IOException {
+        int port = EncodingServer.DEFAULT_PORT;
+        int connections = Runtime.getRuntime().availableProcessors();
+        int requests = 10000;
+        for (int i = 0; i < options.length; i += 2) {
+            if (i + 1 == options.length)
+                throw new IllegalArgumentException("Missing value for " + options[i]);
+            if (options[i].equals("--port"))
+                port = Integer.parseInt(options[i + 1]);
+            else if (options[i].equals("--connections"))
+                connections = Integer.parseInt(options[i + 1]);
+            else if (options[i].equals("--requests"))
+                requests = Integer.parseInt(options[i + 1]);
+            else
+                throw new IllegalArgumentException("Unknown option " + options[i]);
+        }
+
+        List<String> phoneNumbers = new ArrayList<String>();
+        AsciiLineReader phonebookReader = AsciiLineReader.open(phonebook);
+        try {
+            while (phonebookReader.nextLine()) {
+                phoneNumbers.add(phonebookReader.lineAsString());
+            }
+        } finally {
+            phonebookReader.close();
+        }
+
+        LoadTestClient client = new LoadTestClient(port, connections, Math.max(1, requests / connections));
+        System.out.println(client.run(phoneNumbers));
+    }
+
+    /**
+     * Write the number of encodings of every number of a phone book, or
+     * whether it has any, without listing the encodings.
+     *
+     * @param phonebook  the phone book file path
+     * @param dictionary the dictionary text file or image path
+     * @param exists     whether to write if there's any encoding rather
+     *                   than how many
+     * @throws IOException when a file can't be read or the output can't be
+     *                     written
+     */
+    private static void count(String phonebook, String dictionary, boolean exists) throws IOException {
+        NumberEncoder encoder = loadDictionary(dictionary);
+        EncodingWriter writer = new EncodingWriter(Channels.newChannel(System.out));
+        AsciiLineReader phonebookReader = AsciiLineReader.open(phonebook);
+        try {
+            while (phonebookReader.nextLine()) {
+                CharSequence phoneNumber = phonebookReader.line();
+                String answer = exists ? String.valueOf(encoder.hasEncoding(phoneNumber))
+                        : encoder.countEncodings(phoneNumber).toString();
+                writer.write(phoneNumber, answer);
+            }
+            writer.flush();
+        } finally {
+            phonebookReader.close();
+            System.out.flush();
+        }
+    }
+
+    /**
+     * Write the image of a dictionary, to be loaded instead of the text
+     * file by later runs.
      *
      * @param dictionary the dictionary file path
-     * @throws FileNotFoundException when no such file is found
+     * @param image      the image file path
+     * @throws IOException when the dictionary can't be read or the image
+     *                     can't be written
+     */
+    private static void compile(String dictionary, String image) throws IOException {
+        DictionaryImage.write(readDictionary(dictionary), image);
+    }
+
+    /**
+     * Initialize encoder with a dictionary.
+     *
+     * @param dictionary the dictionary text file or image path
+     * @throws IOException when no such file is found or it can't be read
+     */
+    private void initialize(String dictionary) throws IOException {
+        encoder = loadDictionary(dictionary);
+    }
+
+    /**
+     * Load a dictionary into a new encoder, ready to encode.
+     *
+     * @param dictionary the dictionary text file or image path
+     * @return the encoder
+     * @throws IOException when no such file is found or it can't be read
+     */
+    static NumberEncoder loadDictionary(String dictionary) throws IOException {
+        if (DictionaryImage.isImage(dictionary))
+            return DictionaryImage.load(dictionary);
+        return readDictionary(dictionary);
+    }
+
+    /**
+     * Read a dictionary text file in any order, sorted in chunks of bounded
+     * size so that it may be larger than the memory.
      */
-    private void initialize(String dictionary) throws FileNotFoundException {
-        Scanner dictionaryScanner = new Scanner(new BufferedInputStream(
-                new FileInputStream(dictionary)));
+    private static NumberEncoder readDictionary(String dictionary) throws IOException {
+        NumberEncoder encoder = newEncoder();
+        AsciiLineReader dictionaryReader = AsciiLineReader.open(dictionary);
+        DictionarySorter sorter = new DictionarySorter();
         try {
-            while (dictionaryScanner.hasNextLine()) {
-                encoder.addWord(dictionaryScanner.nextLine());
+            while (dictionaryReader.nextLine()) {
+                sorter.add(dictionaryReader.line());
             }
+            sorter.sortTo(encoder);
             encoder.prepare();
         } finally {
-            dictionaryScanner.close();
+            sorter.close();
+            dictionaryReader.close();
         }
+        return encoder;
     }
 
     /**
-     * Run encoder through the phone book.
+     * Run encoder through the phone book. The encodings of a number are
+     * written as they're found, so they're never all held in memory.
      *
      * @param phonebook the phone book file path.
-     * @throws FileNotFoundException when no such file is found
+     * @param writer    the writer of the output
+     * @throws IOException when no such file is found or the output can't be
+     *                     written
      */
-    private void run(String phonebook) throws FileNotFoundException {
-        Scanner phonebookScanner = new Scanner(new BufferedInputStream(
-                new FileInputStream(phonebook)));
+    private void run(String phonebook, EncodingWriter writer) throws IOException {
+        AsciiLineReader phonebookReader = AsciiLineReader.open(phonebook);
+        LineSink sink = new LineSink(writer);
 
         try {
-            while (phonebookScanner.hasNextLine()) {
-                String phoneNumber = phonebookScanner.nextLine();
-                System.out.print(NumberEncodeFormatter.format(phoneNumber, encoder.encode(phoneNumber)));
+            while (phonebookReader.nextLine()) {
+                // the line is only valid until the next one is read, which
+                // is fine since it's written right away
+                sink.phoneNumber = phonebookReader.line();
+                encoder.encode(sink.phoneNumber, sink);
             }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         } finally {
-            phonebookScanner.close();
+            phonebookReader.close();
         }
     }
 
+    /**
+     * {@link LineSink} writes every encoding of the current phone number as
+     * a line. A sink can't throw an {@link IOException}, so it's wrapped and
+     * unwrapped by {@link #run(String, EncodingWriter)}.
+     */
+    private static class LineSink implements EncodingSink {
+        private final EncodingWriter writer;
+        private CharSequence phoneNumber;
+
+        public LineSink(EncodingWriter writer) {
+            this.writer = writer;
+        }
+
+        public boolean accept(CharSequence encoding) {
+            try {
+                writer.write(phoneNumber, encoding);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Run encoder through the phone book on a pool of worker threads.
+     *
+     * The phone numbers are read in batches and every batch is encoded by a
+     * worker. The encoded batches are written in the order they were read,
+     * so the output is the same as {@link #run(String, EncodingWriter)}'s.
+     * At most {@link #BATCHES_IN_FLIGHT_PER_THREAD} batches per thread are
+     * read ahead of the output, so memory stays bounded for any size of
+     * phone book.
+     *
+     * @param phonebook the phone book file path.
+     * @param writer    the writer of the output
+     * @param threads   the number of worker threads
+     * @param batchSize the number of phone numbers per batch
+     * @throws IOException when no such file is found, the output can't be
+     *                     written or the encoding is interrupted
+     */
+    private void runInParallel(String phonebook, EncodingWriter writer, int threads, int batchSize) throws IOException {
+        AsciiLineReader phonebookReader = AsciiLineReader.open(phonebook);
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        Queue<Future<BatchEncoding>> batches = new ArrayDeque<Future<BatchEncoding>>();
+
+        try {
+            List<String> phoneNumbers = new ArrayList<String>(batchSize);
+            boolean hasNextLine = phonebookReader.nextLine();
+            while (hasNextLine) {
+                phoneNumbers.add(phonebookReader.lineAsString());
+                hasNextLine = phonebookReader.nextLine();
+                if (phoneNumbers.size() < batchSize && hasNextLine)
+                    continue;
+
+                // wait for the oldest batch before reading further ahead
+                if (batches.size() == threads * BATCHES_IN_FLIGHT_PER_THREAD)
+                    await(batches.remove()).writeTo(writer);
+                batches.add(workers.submit(new BatchEncoding(phoneNumbers)));
+                phoneNumbers = new ArrayList<String>(batchSize);
+            }
+
+            while (!batches.isEmpty()) {
+                await(batches.remove()).writeTo(writer);
+            }
+        } finally {
+            workers.shutdownNow();
+            phonebookReader.close();
+        }
+    }
+
+    private static BatchEncoding await(Future<BatchEncoding> batch) throws IOException {
+        try {
+            return batch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while encoding the phone book");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * {@link BatchEncoding} encodes a batch of phone numbers. The encodings
+     * are written by the thread that owns the writer.
+     */
+    private class BatchEncoding implements Callable<BatchEncoding> {
+        private final List<String> phoneNumbers;
+        private final String[][] words;
+
+        public BatchEncoding(List<String> phoneNumbers) {
+            this.phoneNumbers = phoneNumbers;
+            this.words = new String[phoneNumbers.size()][];
+        }
+
+        public BatchEncoding call() {
+            for (int i = 0; i < words.length; i++) {
+                words[i] = encoder.encode(phoneNumbers.get(i));
+            }
+            return this;
+        }
+
+        public void writeTo(EncodingWriter writer) throws IOException {
+            for (int i = 0; i < words.length; i++) {
+                writer.write(phoneNumbers.get(i), words[i]);
+            }
+        }
+    }
 }
@@ -0,0 +1,245 @@
+package reader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * {@link AsciiLineReader} reads the lines of a channel with a single large
+ * buffer. Every byte is one character, so no charset decoding is needed, and
+ * the current line is handed out as a {@link CharSequence} view of the buffer
+ * instead of a new String.
+ *
+ * Lines end with "\n", "\r\n" or "\r", like {@link java.util.Scanner#nextLine()}
+ * sees them. The last line doesn't need a line terminator. Bytes above 0x7F
+ * are read as ISO-8859-1 characters.
+ *
+ * The buffer grows to hold the longest line, so a reader of input that isn't
+ * trusted can limit the length of the lines, and fails on a longer one
+ * before buffering it whole.
+ *
+ * An {@link AsciiLineReader} is not thread-safe.
+ */
+public class AsciiLineReader implements Closeable {
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Maximum line length of a reader that reads lines of any length.
+     */
+    public static final int NO_LIMIT = Integer.MAX_VALUE;
+
+    private final ReadableByteChannel channel;
+    private final int maxLineLength;
+
+    private byte[] bytes;
+    private ByteBuffer buffer;
+
+    /**
+     * Index of the first byte not yet returned as part of a line.
+     */
+    private int position;
+
+    /**
+     * Index after the last byte read from the channel.
+     */
+    private int limit;
+
+    private boolean endOfInput;
+
+    /**
+     * Whether the previous line ended with "\r", so a "\n" right after it
+     * belongs to the same line terminator.
+     */
+    private boolean skipLineFeed;
+
+    private final Line line = new Line();
+
+    public AsciiLineReader(ReadableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    public AsciiLineReader(ReadableByteChannel channel, int bufferSize) {
+        this(channel, bufferSize, NO_LIMIT);
+    }
+
+    /**
+     * @param channel       the channel
+     * @param bufferSize    the initial size of the buffer
+     * @param maxLineLength the maximum number of bytes of a line, without its
+     *                      line terminator
+     */
+    public AsciiLineReader(ReadableByteChannel channel, int bufferSize, int maxLineLength) {
+        this.channel = channel;
+        this.maxLineLength = maxLineLength;
+        this.bytes = new byte[bufferSize];
+        this.buffer = ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * Open a file for reading.
+     *
+     * @param path the file path
+     * @return the reader
+     * @throws IOException when the file can't be opened
+     */
+    public static AsciiLineReader open(String path) throws IOException {
+        return new AsciiLineReader(FileChannel.open(Paths.get(path), StandardOpenOption.READ));
+    }
+
+    /**
+     * Move to the next line.
+     *
+     * @return false if there's no more line
+     * @throws IOException when the channel can't be read, or the line is
+     *                     longer than the maximum line length
+     */
+    public boolean nextLine() throws IOException {
+        if (skipLineFeed) {
+            if (position == limit)
+                fill();
+            if (position < limit && bytes[position] == '\n')
+                position++;
+            skipLineFeed = false;
+        }
+
+        int end = position;
+        while (true) {
+            for (; end < limit; end++) {
+                byte b = bytes[end];
+                if (b == '\n' || b == '\r') {
+                    checkLineLength(end - position);
+                    line.set(position, end - position);
+                    position = end + 1;
+                    skipLineFeed = b == '\r';
+                    return true;
+                }
+            }
+            checkLineLength(limit - position);
+
+            if (endOfInput) {
+                if (position == limit)
+                    return false;
+
+                // the last line has no line terminator
+                line.set(position, limit - position);
+                position = limit;
+                return true;
+            }
+
+            end -= position;
+            fill();
+            end += position;
+        }
+    }
+
+    private void checkLineLength(int length) throws IOException {
+        if (length > maxLineLength)
+            throw new IOException("Line longer than " + maxLineLength + " bytes");
+    }
+
+    /**
+     * Tell whether the next line is already in the buffer, so that
+     * {@link #nextLine()} returns it without reading the channel, and
+     * without blocking if the channel is a socket.
+     *
+     * @return true if a whole line is buffered, or the end of the input was
+     *         reached
+     */
+    public boolean hasBufferedLine() {
+        if (endOfInput)
+            return true;
+        int end = position;
+        if (skipLineFeed && end < limit && bytes[end] == '\n')
+            end++;
+        for (; end < limit; end++) {
+            byte b = bytes[end];
+            if (b == '\n' || b == '\r')
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Read more bytes from the channel. The bytes not returned yet are moved
+     * to the front of the buffer, and the buffer grows if a single line
+     * doesn't fit.
+     */
+    private void fill() throws IOException {
+        if (position > 0) {
+            System.arraycopy(bytes, position, bytes, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        if (limit == bytes.length) {
+            bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            buffer = ByteBuffer.wrap(bytes);
+        }
+
+        buffer.limit(bytes.length).position(limit);
+        int read = channel.read(buffer);
+        while (read == 0) {
+            read = channel.read(buffer);
+        }
+        if (read < 0)
+            endOfInput = true;
+        else
+            limit += read;
+    }
+
+    /**
+     * @return the current line. The returned sequence is reused and only valid
+     *         until the next call to {@link #nextLine()}.
+     */
+    public CharSequence line() {
+        return line;
+    }
+
+    /**
+     * @return the current line as a new String
+     */
+    public String lineAsString() {
+        return line.toString();
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * {@link Line} is a view of the bytes of the current line.
+     */
+    private class Line implements CharSequence {
+        private int start;
+        private int length;
+
+        private void set(int start, int length) {
+            this.start = start;
+            this.length = length;
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public char charAt(int index) {
+            if (index < 0 || index >= length)
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            return (char) (bytes[start + index] & 0xFF);
+        }
+
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return new String(bytes, start, length, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
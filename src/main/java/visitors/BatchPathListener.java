@@ -0,0 +1,24 @@
+package visitors;
+
+/**
+ * {@link BatchPathListener} is notified of every complete encoding a
+ * {@link Visitor} finds for a batch of digit sequences.
+ *
+ */
+public interface BatchPathListener {
+
+	/**
+	 * Called when an encoding covers all digits of a sequence.
+	 *
+	 * @param number
+	 *            the index of the digit sequence in the batch
+	 * @param path
+	 *            the words of the encoding. It's only valid until this method
+	 *            returns.
+	 * @return true to go on with the sequence, false to stop it. No more
+	 *         encoding of the sequence is passed to the listener once it
+	 *         returns false.
+	 */
+	boolean onPath(int number, EncodingPath path);
+
+}
@@ -1,64 +1,289 @@
 package visitors;
 
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map.Entry;
+import java.util.Arrays;
 
 import dawg.IDawg;
 import dawg.IDawgNode;
 
+/**
+ * {@link DawgVisitor} finds the encodings of a digit sequence by walking the
+ * {@link IDawg} character by character, restarting from the root whenever a
+ * word ends.
+ *
+ * Visits are thread-safe once the graph is constructed: the graph is only
+ * read and every thread searches with its own path.
+ *
+ * With a {@link SuffixCache}, every restart from the root first looks up the
+ * encodings of the remaining digits, and replays them if another visit found
+ * them already. Otherwise the encodings found from there are recorded as they
+ * reach the end of the digits, and cached if the visit wasn't stopped. The
+ * cache is only valid for one graph and one mapping of digits to characters,
+ * and every visit clears it if the graph has changed since it was filled.
+ */
 public class DawgVisitor implements Visitor {
+	/**
+	 * Remaining digits shorter than this are searched rather than looked up.
+	 */
+	static final int MIN_CACHED_DIGITS = 3;
+
 	private final IDawg dawg;
 
+	/**
+	 * The encodings of the last digits of numbers, or null if they're not
+	 * cached.
+	 */
+	private final SuffixCache suffixes;
+
+	/**
+	 * The search state of each thread, reused for every visit.
+	 */
+	private final ThreadLocal<Search> searches = new ThreadLocal<Search>() {
+		@Override
+		protected Search initialValue() {
+			return new Search();
+		}
+	};
+
 	public DawgVisitor(IDawg dawg) {
+		this(dawg, null);
+	}
+
+	/**
+	 * @param dawg
+	 *            the graph
+	 * @param suffixes
+	 *            the cache of the encodings of the last digits of numbers, or
+	 *            null to search them every time
+	 */
+	public DawgVisitor(IDawg dawg, SuffixCache suffixes) {
 		this.dawg = dawg;
+		this.suffixes = suffixes;
 	}
 
-	public List<String> visit(List<Entry<Integer, char[]>> characterQueue) {
-		List<String> words = new LinkedList<String>();
-		searchForNextWordFromRoot(words, characterQueue, "");
-		return words;
+	public void visit(int[] digits, int length, char[][] digitToCharacters, PathListener listener) {
+		Search search = searches.get();
+		search.start(digits, length, digitToCharacters, listener);
+		search.searchForNextWordFromRoot(0);
 	}
 
-    private boolean searchForNextWordFromNode(List<String> words, List<Entry<Integer, char[]>> queue, IDawgNode node, String word) {
-        if (queue.isEmpty()) {
-			// when queue is empty and the node is final or root, all characters are matched to words.
-			if (node.isFinal() || node.equals(dawg.getRoot())) {
-				words.add(word.trim());
-				return true;
+	/**
+	 * {@link Search} holds the digits of a visit and the path to the current
+	 * node. Words are appended to and removed from the path as the search goes
+	 * deeper and back, instead of building new Strings and sub lists.
+	 *
+	 * Once the listener stops the visit, every search step returns at once
+	 * and counts as found, so that no digit alternative is tried either.
+	 */
+	private class Search {
+		private final EncodingPath path = new EncodingPath();
+		private int[] digits;
+		private int length;
+		private char[][] digitToCharacters;
+		private PathListener listener;
+		private IDawgNode root;
+		private boolean stopped;
+		private VisitStatistics statistics;
+
+		private final SuffixCache.Key key = new SuffixCache.Key();
+
+		/**
+		 * The modification count of the graph when the visit started.
+		 */
+		private long version;
+
+		/**
+		 * The encodings recorded for every restart from the root being
+		 * searched, and the word of the path each one starts at. A recording
+		 * is dropped once it's heavier than the cache can keep.
+		 */
+		private StringBuilder[] recordings = new StringBuilder[8];
+		private int[] recordingWords = new int[8];
+		private boolean[] recordingDropped = new boolean[8];
+		private int recordingCount;
+
+		public void start(int[] digits, int length, char[][] digitToCharacters, PathListener listener) {
+			this.digits = digits;
+			this.length = length;
+			this.digitToCharacters = digitToCharacters;
+			this.listener = listener;
+			this.root = dawg.getRoot();
+			this.stopped = false;
+			this.statistics = VisitStatistics.ENABLED ? VisitStatistics.current() : null;
+			this.recordingCount = 0;
+			if (suffixes != null) {
+				version = dawg.getModificationCount();
+				suffixes.validate(version);
 			}
-			return false;
+			path.clear();
 		}
 
-		boolean found = false;
-
-		// when queue is not empty and the node is final, a word is found to
-		// match previous parts of the character queue.
-		//
-		// start from the root node and find a matching word for the rest of the
-		// character queue.
-		if (node.isFinal())
-			found = searchForNextWordFromRoot(words, queue, word + " ");
-
-        // loop through the characters to see if the node contains such an edge.
-		for (char ch : queue.get(0).getValue()) {
-			if (node.containsEdge(ch)) {
-				// if a child node to which the character leads is found, visit
-				// the child node with the next characters
-				found = searchForNextWordFromNode(words, queue.subList(1, queue.size()), node.getChild(ch), word + ch) || found;
+		/**
+		 * Pass the path to the listener, and record its last words for every
+		 * restart they were found from.
+		 */
+		private void pass() {
+			for (int r = 0; r < recordingCount; r++) {
+				if (recordingDropped[r])
+					continue;
+				StringBuilder recording = recordings[r];
+				for (int word = recordingWords[r]; word < path.getWordCount(); word++) {
+					int start = path.getWordStart(word);
+					recording.append(path.getCharacters(), start, path.getWordEnd(word) - start).append(' ');
+				}
+				recording.append('\n');
+				if (recording.length() * 2L > suffixes.getMaximumEntryWeight()) {
+					recordingDropped[r] = true;
+					recording.setLength(0);
+				}
 			}
+			stopped = !listener.onPath(path);
 		}
 
-		return found;
-	}
+		private boolean searchForNextWordFromNode(int position, IDawgNode node) {
+			if (VisitStatistics.ENABLED)
+				statistics.addNodesVisited(1);
+			if (position == length) {
+				// when all digits are consumed and the node is final or root,
+				// all characters are matched to words.
+				if (node.isFinal()) {
+					int wordCount = path.getWordCount();
+					path.endWord();
+					pass();
+					path.truncate(path.length(), wordCount);
+					return true;
+				}
+				if (node == root) {
+					pass();
+					return true;
+				}
+				return false;
+			}
+
+			boolean found = false;
+
+			// when digits are left and the node is final, a word is found to
+			// match previous parts of the digits.
+			//
+			// start from the root node and find a matching word for the rest
+			// of the digits.
+			if (node.isFinal()) {
+				int wordCount = path.getWordCount();
+				path.endWord();
+				found = searchForNextWordFromRoot(position);
+				path.truncate(path.length(), wordCount);
+				if (stopped)
+					return true;
+			}
+
+			// loop through the characters to see if the node contains such an
+			// edge.
+			int length = path.length();
+			for (char ch : digitToCharacters[digits[position]]) {
+				if (node.containsEdge(ch)) {
+					// if a child node to which the character leads is found,
+					// visit the child node with the next digits
+					path.append(ch);
+					boolean branchFound = searchForNextWordFromNode(position + 1, node.getChild(ch));
+					if (VisitStatistics.ENABLED && !branchFound)
+						statistics.addDeadBranches(1);
+					found = branchFound || found;
+					path.truncate(length, path.getWordCount());
+					if (stopped)
+						return true;
+				}
+			}
 
-    private boolean searchForNextWordFromRoot(List<String> words, List<Entry<Integer, char[]>> queue, String word) {
-        boolean found = searchForNextWordFromNode(words, queue, dawg.getRoot(), word);
+			return found;
+		}
+
+		private boolean searchForNextWordFromRoot(int position) {
+			return search(position, false);
+		}
+
+		/**
+		 * Search the encodings of the digits from a position, starting from
+		 * the root, in the cache first if there's one.
+		 *
+		 * @param afterDigit
+		 *            whether the previous token is a digit, so that the
+		 *            digit at the position can't be kept
+		 */
+		private boolean search(int position, boolean afterDigit) {
+			if (suffixes == null || length - position < MIN_CACHED_DIGITS)
+				return afterDigit ? searchForNextWordFromNode(position, root) : searchWordOrDigit(position);
+
+			key.set(digits, position, length, afterDigit);
+			char[] encodings = suffixes.get(key);
+			if (encodings != null)
+				return replay(encodings);
 
-        // if no match found, store an integer alternative for the characters
-		// and start from root node and next characters in the queue
-		if (!found)
-			found = searchForNextWordFromNode(words, queue.subList(1, queue.size()), dawg.getRoot(), word + queue.get(0).getKey() + " ");
-		return found;
+			startRecording();
+			boolean found = afterDigit ? searchForNextWordFromNode(position, root) : searchWordOrDigit(position);
+			recordingCount--;
+			if (!stopped && !recordingDropped[recordingCount]) {
+				StringBuilder recording = recordings[recordingCount];
+				char[] recorded = new char[recording.length()];
+				recording.getChars(0, recorded.length, recorded, 0);
+				key.set(digits, position, length, afterDigit);
+				suffixes.put(key, recorded, version);
+			}
+			return found;
+		}
+
+		private void startRecording() {
+			if (recordingCount == recordings.length) {
+				recordings = Arrays.copyOf(recordings, recordingCount * 2);
+				recordingWords = Arrays.copyOf(recordingWords, recordingCount * 2);
+				recordingDropped = Arrays.copyOf(recordingDropped, recordingCount * 2);
+			}
+			if (recordings[recordingCount] == null)
+				recordings[recordingCount] = new StringBuilder();
+			recordings[recordingCount].setLength(0);
+			recordingWords[recordingCount] = path.getWordCount();
+			recordingDropped[recordingCount] = false;
+			recordingCount++;
+		}
+
+		/**
+		 * Pass the cached encodings of the remaining digits, each appended to
+		 * the path.
+		 *
+		 * @return true if there's any
+		 */
+		private boolean replay(char[] encodings) {
+			int length = path.length();
+			int wordCount = path.getWordCount();
+			for (char ch : encodings) {
+				if (ch == '\n') {
+					pass();
+					path.truncate(length, wordCount);
+					if (stopped)
+						return true;
+				} else if (ch == ' ') {
+					path.endWord();
+				} else {
+					path.append(ch);
+				}
+			}
+			return encodings.length > 0;
+		}
+
+		private boolean searchWordOrDigit(int position) {
+			boolean found = searchForNextWordFromNode(position, root);
+
+			// if no match found, store an integer alternative for the digit
+			// and start from root node and next digits
+			if (!found) {
+				if (VisitStatistics.ENABLED)
+					statistics.addDigitFallback();
+				int length = path.length();
+				int wordCount = path.getWordCount();
+				path.append(Character.forDigit(digits[position], 10));
+				path.endWord();
+				found = search(position + 1, true);
+				path.truncate(length, wordCount);
+			}
+			return found;
+		}
 	}
 }
@@ -0,0 +1,119 @@
+package visitors;
+
+import java.util.Arrays;
+
+/**
+ * {@link DigitKey} is a digit sequence packed into longs, 4 bits per digit.
+ * A key can be reused to look up many sequences, and it's copied when it's
+ * stored.
+ */
+public class DigitKey {
+	private static final int DIGITS_PER_WORD = 16;
+
+	private long[] words;
+	private int length;
+	private int hash;
+
+	public DigitKey() {
+		this.words = new long[4];
+	}
+
+	/**
+	 * Copy the digits of another key.
+	 * 
+	 * @param key
+	 *            the key
+	 */
+	protected DigitKey(DigitKey key) {
+		this.words = Arrays.copyOf(key.words, key.wordCount());
+		this.length = key.length;
+		this.hash = key.hash;
+	}
+
+	/**
+	 * Pack a digit sequence into the key.
+	 * 
+	 * @param digits
+	 *            the digits
+	 * @param length
+	 *            the number of digits
+	 * @return false if a digit isn't from 0 to 9, in which case the key can't
+	 *         be used
+	 */
+	public boolean set(int[] digits, int length) {
+		return set(digits, 0, length);
+	}
+
+	/**
+	 * Pack the digits from a position to the end of a sequence into the key.
+	 * 
+	 * @param digits
+	 *            the digits
+	 * @param start
+	 *            the position of the first digit to pack
+	 * @param end
+	 *            the number of digits of the sequence
+	 * @return false if a digit isn't from 0 to 9, in which case the key can't
+	 *         be used
+	 */
+	public boolean set(int[] digits, int start, int end) {
+		int length = end - start;
+		int wordCount = (length + DIGITS_PER_WORD - 1) / DIGITS_PER_WORD;
+		if (words.length < wordCount)
+			words = new long[Math.max(words.length * 2, wordCount)];
+		Arrays.fill(words, 0, wordCount, 0L);
+
+		for (int i = 0; i < length; i++) {
+			int digit = digits[start + i];
+			if (digit < 0 || digit > 9)
+				return false;
+			words[i / DIGITS_PER_WORD] |= (long) digit << ((i % DIGITS_PER_WORD) * 4);
+		}
+
+		int hash = length;
+		for (int i = 0; i < wordCount; i++) {
+			long word = words[i];
+			hash = 31 * hash + (int) (word ^ (word >>> 32));
+		}
+		this.length = length;
+		this.hash = hash;
+		return true;
+	}
+
+	/**
+	 * @return the number of longs the digits are packed into
+	 */
+	protected int wordCount() {
+		return (length + DIGITS_PER_WORD - 1) / DIGITS_PER_WORD;
+	}
+
+	/**
+	 * @return a key of the same digits, which doesn't change when this one is
+	 *         reused
+	 */
+	public DigitKey copy() {
+		return new DigitKey(this);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null || obj.getClass() != getClass())
+			return false;
+
+		DigitKey other = (DigitKey) obj;
+		if (length != other.length || hash != other.hash)
+			return false;
+		for (int i = 0; i < wordCount(); i++) {
+			if (words[i] != other.words[i])
+				return false;
+		}
+		return true;
+	}
+}
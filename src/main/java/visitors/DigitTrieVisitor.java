@@ -0,0 +1,119 @@
+package visitors;
+
+import dawg.DigitTrie;
+
+/**
+ * {@link DigitTrieVisitor} finds the words of a digit sequence in a
+ * {@link DigitTrie}. The trie is walked one digit per step and every node on
+ * the way lists the words that match the digits so far, so there's a single
+ * branch per digit instead of one per candidate character. The paths hold
+ * the ranks of the words.
+ *
+ * The encodings found are the same as {@link DawgVisitor}'s: a digit is kept
+ * only when no complete encoding starts with a word at its position, and
+ * never right after another digit.
+ */
+public class DigitTrieVisitor implements Visitor {
+	private final DigitTrie trie;
+
+	/**
+	 * The search state of each thread, reused for every visit.
+	 */
+	private final ThreadLocal<Search> searches = new ThreadLocal<Search>() {
+		@Override
+		protected Search initialValue() {
+			return new Search();
+		}
+	};
+
+	public DigitTrieVisitor(DigitTrie trie) {
+		this.trie = trie;
+	}
+
+	public void visit(int[] digits, int length, char[][] digitToCharacters, PathListener listener) {
+		Search search = searches.get();
+		search.start(digits, length, listener);
+		search.searchForNextWordFromRoot(0);
+	}
+
+	/**
+	 * {@link Search} holds the digits of a visit and the path found so far.
+	 * Once the listener stops the visit, every search step returns at once
+	 * and counts as found, so that no digit alternative is tried either.
+	 */
+	private class Search {
+		private final EncodingPath path = new EncodingPath();
+		private int[] digits;
+		private int length;
+		private PathListener listener;
+		private boolean stopped;
+		private VisitStatistics statistics;
+
+		public void start(int[] digits, int length, PathListener listener) {
+			this.digits = digits;
+			this.length = length;
+			this.listener = listener;
+			this.stopped = false;
+			this.statistics = VisitStatistics.ENABLED ? VisitStatistics.current() : null;
+			path.clear();
+		}
+
+		private boolean searchForNextWordFromRoot(int position) {
+			boolean found = searchForWordsFrom(position);
+
+			// if no match found, store an integer alternative for the digit and
+			// continue with a word from the next digit
+			if (!found) {
+				if (VisitStatistics.ENABLED)
+					statistics.addDigitFallback();
+				int pathLength = path.length();
+				int wordCount = path.getWordCount();
+				path.append(Character.forDigit(digits[position], 10));
+				path.endWord();
+				found = searchForWordsFrom(position + 1);
+				path.truncate(pathLength, wordCount);
+			}
+			return found;
+		}
+
+		private boolean searchForWordsFrom(int position) {
+			// all digits are matched to words
+			if (position == length) {
+				stopped = !listener.onPath(path);
+				return true;
+			}
+
+			boolean found = false;
+			int pathLength = path.length();
+			int wordCount = path.getWordCount();
+			int node = trie.getRootIndex();
+			for (int end = position; end < length; end++) {
+				node = trie.getChildIndex(node, digits[end]);
+				if (node == DigitTrie.NONE)
+					break;
+				if (VisitStatistics.ENABLED)
+					statistics.addNodesVisited(1);
+
+				// every word listed in the node matches the digits from
+				// position to end
+				for (int w = trie.getFirstWord(node); w != DigitTrie.NONE; w = trie.getNextWord(w)) {
+					path.endWord(trie.getWordRank(w));
+
+					if (end + 1 == length) {
+						stopped = !listener.onPath(path);
+						found = true;
+					} else {
+						boolean branchFound = searchForNextWordFromRoot(end + 1);
+						if (VisitStatistics.ENABLED && !branchFound)
+							statistics.addDeadBranches(1);
+						found = branchFound || found;
+					}
+					path.truncate(pathLength, wordCount);
+					if (stopped)
+						return true;
+				}
+			}
+			return found;
+		}
+	}
+}
@@ -0,0 +1,172 @@
+package visitors;
+
+import java.util.Arrays;
+
+/**
+ * {@link EncodingPath} is the partial encoding a {@link Visitor} is working
+ * on. The characters of all words are kept in a single array and the end of
+ * every word in a stack of indices, so words can be added and removed while
+ * searching without creating any String.
+ *
+ * A kept digit is stored as a word of a single digit character. Words from
+ * the dictionary never contain digits. A word may also be stored as a rank
+ * without any character, by a visitor that only knows the rank of the word
+ * and leaves it to the listener to look up its spelling.
+ *
+ * A path is reused for many searches, so a listener must copy whatever it
+ * needs before it returns.
+ */
+public class EncodingPath {
+	/**
+	 * Rank returned by {@link #getWordRank(int)} for a word stored as
+	 * characters.
+	 */
+	public static final int NO_RANK = -1;
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private char[] characters;
+	private int length;
+
+	private int[] wordEnds;
+	private int[] wordRanks;
+	private int wordCount;
+
+	public EncodingPath() {
+		characters = new char[INITIAL_CAPACITY];
+		wordEnds = new int[INITIAL_CAPACITY];
+		wordRanks = new int[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * @return the number of complete words in the path
+	 */
+	public int getWordCount() {
+		return wordCount;
+	}
+
+	/**
+	 * @param word
+	 *            the word index
+	 * @return the index of the first character of the word
+	 */
+	public int getWordStart(int word) {
+		return word == 0 ? 0 : wordEnds[word - 1];
+	}
+
+	/**
+	 * @param word
+	 *            the word index
+	 * @return the index after the last character of the word
+	 */
+	public int getWordEnd(int word) {
+		return wordEnds[word];
+	}
+
+	/**
+	 * @param word
+	 *            the word index
+	 * @return the rank of the word, or {@link #NO_RANK} if the word is
+	 *         stored as characters
+	 */
+	public int getWordRank(int word) {
+		return wordRanks[word];
+	}
+
+	/**
+	 * @param word
+	 *            the word index
+	 * @return true if the word is a kept digit
+	 */
+	public boolean isDigit(int word) {
+		int start = getWordStart(word);
+		return wordEnds[word] - start == 1 && Character.isDigit(characters[start]);
+	}
+
+	/**
+	 * @return the characters of the path. Only the characters up to the end of
+	 *         the last word are valid.
+	 */
+	public char[] getCharacters() {
+		return characters;
+	}
+
+	/**
+	 * @return the number of characters in the path, including those of a word
+	 *         not ended yet
+	 */
+	int length() {
+		return length;
+	}
+
+	void append(char ch) {
+		if (length == characters.length) {
+			characters = Arrays.copyOf(characters, length * 2);
+		}
+		characters[length++] = ch;
+	}
+
+	void append(char[] word, int start, int wordLength) {
+		if (length + wordLength > characters.length) {
+			characters = Arrays.copyOf(characters, Math.max(length * 2, length + wordLength));
+		}
+		System.arraycopy(word, start, characters, length, wordLength);
+		length += wordLength;
+	}
+
+	/**
+	 * Mark the characters appended since the last word as a word.
+	 */
+	void endWord() {
+		endWord(NO_RANK);
+	}
+
+	/**
+	 * Mark the characters appended since the last word as a word of a rank.
+	 * 
+	 * @param rank
+	 *            the rank, or {@link #NO_RANK} if the characters are the word
+	 */
+	void endWord(int rank) {
+		if (wordCount == wordEnds.length) {
+			wordEnds = Arrays.copyOf(wordEnds, wordCount * 2);
+			wordRanks = Arrays.copyOf(wordRanks, wordCount * 2);
+		}
+		wordRanks[wordCount] = rank;
+		wordEnds[wordCount++] = length;
+	}
+
+	/**
+	 * Remove characters and words added after a previous state.
+	 *
+	 * @param length
+	 *            the number of characters to keep
+	 * @param wordCount
+	 *            the number of words to keep
+	 */
+	void truncate(int length, int wordCount) {
+		this.length = length;
+		this.wordCount = wordCount;
+	}
+
+	void clear() {
+		truncate(0, 0);
+	}
+
+	/**
+	 * @return the words separated by single spaces, a word stored as a rank
+	 *         written as # and the rank
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder(length + wordCount);
+		for (int word = 0; word < wordCount; word++) {
+			if (word > 0)
+				builder.append(' ');
+			if (wordRanks[word] != NO_RANK)
+				builder.append('#').append(wordRanks[word]);
+			builder.append(characters, getWordStart(word), wordEnds[word] - getWordStart(word));
+		}
+		return builder.toString();
+	}
+}
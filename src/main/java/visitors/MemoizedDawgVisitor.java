@@ -0,0 +1,57 @@
+package visitors;
+
+import dawg.IDawg;
+import dawg.IDawgNode;
+
+/**
+ * {@link MemoizedDawgVisitor} is a {@link MemoizedVisitor} finding the words
+ * in an {@link IDawg}. The words at each position are found in the same order
+ * as {@link DawgVisitor} finds them, so the encodings are listed in the same
+ * order too.
+ */
+public class MemoizedDawgVisitor extends MemoizedVisitor {
+	private final IDawg dawg;
+
+	/**
+	 * The word being matched by each thread.
+	 */
+	private final ThreadLocal<StringBuilder> words = new ThreadLocal<StringBuilder>() {
+		@Override
+		protected StringBuilder initialValue() {
+			return new StringBuilder();
+		}
+	};
+
+	public MemoizedDawgVisitor(IDawg dawg) {
+		this.dawg = dawg;
+	}
+
+	@Override
+	protected void collectMatches(int[] digits, int length, char[][] digitToCharacters, int start, Matches matches) {
+		StringBuilder word = words.get();
+		word.setLength(0);
+		collectMatches(digits, length, digitToCharacters, dawg.getRoot(), start, word, matches);
+	}
+
+	/**
+	 * Record the words reachable from a node. A final node is recorded before
+	 * its children, like {@link DawgVisitor} restarts from the root before it
+	 * goes deeper.
+	 */
+	private void collectMatches(int[] digits, int length, char[][] digitToCharacters, IDawgNode node, int position, StringBuilder word, Matches matches) {
+		if (VisitStatistics.ENABLED)
+			matches.nodesVisited++;
+		if (node.isFinal())
+			matches.add(word, position);
+		if (position == length)
+			return;
+
+		for (char ch : digitToCharacters[digits[position]]) {
+			if (node.containsEdge(ch)) {
+				word.append(ch);
+				collectMatches(digits, length, digitToCharacters, node.getChild(ch), position + 1, word, matches);
+				word.setLength(word.length() - 1);
+			}
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package visitors;
+
+import dawg.IDigitTrie;
+
+/**
+ * {@link MemoizedDigitTrieVisitor} is a {@link MemoizedVisitor} finding the
+ * words in an {@link IDigitTrie}, one step per digit. The paths hold the
+ * ranks of the words, and the words of every position are sorted by rank,
+ * so the encodings are listed in ascending order when the ranks order the
+ * original spellings like {@link String#compareTo(String)}. Since the steps
+ * go digit by digit, batches of numbers with long common prefixes share the
+ * words of the digits they start with.
+ */
+public class MemoizedDigitTrieVisitor extends MemoizedVisitor implements MemoizedVisitor.DigitStepper {
+	private final IDigitTrie trie;
+
+	public MemoizedDigitTrieVisitor(IDigitTrie trie) {
+		this.trie = trie;
+	}
+
+	@Override
+	protected void collectMatches(int[] digits, int length, char[][] digitToCharacters, int start, Matches matches) {
+		int node = trie.getRootIndex();
+		for (int end = start; end < length; end++) {
+			node = trie.getChildIndex(node, digits[end]);
+			if (node == IDigitTrie.NONE)
+				break;
+			if (VisitStatistics.ENABLED)
+				matches.nodesVisited++;
+
+			for (int w = trie.getFirstWord(node); w != IDigitTrie.NONE; w = trie.getNextWord(w)) {
+				matches.add(trie.getWordRank(w), end + 1);
+			}
+		}
+		matches.sort();
+	}
+
+	@Override
+	public int getStartState() {
+		return trie.getRootIndex();
+	}
+
+	@Override
+	public int step(int state, int digit) {
+		int node = trie.getChildIndex(state, digit);
+		return node == IDigitTrie.NONE ? NO_STATE : node;
+	}
+
+	@Override
+	public void addWords(int state, int end, Matches matches) {
+		for (int w = trie.getFirstWord(state); w != IDigitTrie.NONE; w = trie.getNextWord(w)) {
+			matches.add(trie.getWordRank(w), end);
+		}
+	}
+
+	@Override
+	public boolean listsOriginalWordsInOrder() {
+		return true;
+	}
+}
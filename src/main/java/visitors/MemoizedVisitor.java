@@ -0,0 +1,668 @@
+package visitors;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * {@link MemoizedVisitor} finds the same encodings as {@link DawgVisitor}
+ * without exploring a suffix of the digits more than once.
+ *
+ * {@link DawgVisitor} restarts the search from the root every time a word
+ * ends, so a suffix is searched again for every different way its prefix can
+ * be encoded. But the encodings of a suffix only depend on where it starts
+ * and on whether the previous token was a digit. This visitor works in three
+ * steps:
+ * <ol>
+ * <li>For every position, find the words that start there and where they
+ * end. This is the only step that depends on how the words are stored, so
+ * it's left to the subclasses.</li>
+ * <li>From the end of the digits backwards, decide for every position whether
+ * the rest can be encoded starting with a word, and whether it can be encoded
+ * at all after a word. This also decides where a digit is kept.</li>
+ * <li>List the encodings by following only the words that lead to a complete
+ * encoding, so no branch dies and the work is bounded by the size of the
+ * output.</li>
+ * </ol>
+ *
+ * The encodings are listed in the order the words are found at each
+ * position, unless the subclass sorts the words of a position with
+ * {@link Matches#sort()}. Since a space sorts before any character of a
+ * word, listing the words of every position in ascending order lists the
+ * encodings in ascending order of their text. All sub-solutions are kept in
+ * flat arrays that are reused by the next visit of the same thread.
+ *
+ * The words of the first step only depend on the digits from their start to
+ * their end, so sequences that start with the same digits find the same
+ * words there. If a subclass is a {@link DigitStepper}, which finds the
+ * words one digit at a time, {@link #visitAll} walks a batch of sequences
+ * sorted by their digits, which is the digit trie of the batch in
+ * depth-first order: the words of the digits a sequence shares with the
+ * previous one are kept, and only the digits after them are walked. The
+ * last two steps depend on the end of the digits, so they're still done for
+ * every sequence.
+ *
+ * Keeping the walks of every depth costs more than walking the shared
+ * digits again, unless they're long: batches of numbers that only share an
+ * area code are slower this way than one by one. So a batch whose sequences
+ * share fewer than {@link #MIN_SHARED_DIGITS} digits with the previous one
+ * on average is visited one sequence at a time.
+ */
+public abstract class MemoizedVisitor implements Visitor {
+
+	/**
+	 * The average number of digits a sequence of a batch must share with the
+	 * previous one, once sorted, for {@link #visitAll} to walk them once.
+	 */
+	static final int MIN_SHARED_DIGITS = 12;
+
+	/**
+	 * The search state of each thread, reused for every visit.
+	 */
+	private final ThreadLocal<Search> searches = new ThreadLocal<Search>() {
+		@Override
+		protected Search initialValue() {
+			return new Search();
+		}
+	};
+
+	/**
+	 * The batch state of each thread, reused for every batch.
+	 */
+	private final ThreadLocal<Batch> batches = new ThreadLocal<Batch>() {
+		@Override
+		protected Batch initialValue() {
+			return new Batch();
+		}
+	};
+
+	public void visit(int[] digits, int length, char[][] digitToCharacters, PathListener listener) {
+		Search search = searches.get();
+		search.start(digits, length, digitToCharacters);
+		search.listEncodings(listener);
+	}
+
+	@Override
+	public void visitAll(int[][] digits, int[] lengths, int count, char[][] digitToCharacters,
+			BatchPathListener listener) {
+		if (!(this instanceof DigitStepper)
+				|| !batches.get().visit((DigitStepper) this, digits, lengths, count, listener))
+			Visitor.super.visitAll(digits, lengths, count, digitToCharacters, listener);
+	}
+
+	/**
+	 * Find all words matching the digits from a start position.
+	 *
+	 * @param digits
+	 *            the digits
+	 * @param length
+	 *            the number of digits
+	 * @param digitToCharacters
+	 *            the characters each digit can be encoded with
+	 * @param start
+	 *            the start position
+	 * @param matches
+	 *            the matches to add the words to
+	 */
+	protected abstract void collectMatches(int[] digits, int length, char[][] digitToCharacters, int start, Matches matches);
+
+	/**
+	 * {@link DigitStepper} is implemented by the subclasses that can find the
+	 * words one digit at a time, from {@link #getStartState()} on with
+	 * {@link #step(int, int)} and {@link #addWords(int, int, Matches)}. The
+	 * words of each position must be found in the same order as
+	 * {@link MemoizedVisitor#collectMatches} finds them, before it sorts
+	 * them.
+	 */
+	protected interface DigitStepper {
+		/**
+		 * State returned by {@link #step(int, int)} if no word goes on with
+		 * the digit.
+		 */
+		int NO_STATE = -1;
+
+		/**
+		 * @return the state of a walk that starts at a position, before any
+		 *         digit
+		 */
+		int getStartState();
+
+		/**
+		 * Go on with a walk by one digit.
+		 * 
+		 * @param state
+		 *            the state of the walk
+		 * @param digit
+		 *            the digit
+		 * @return the state after the digit, or {@link #NO_STATE} if no word
+		 *         starts with the digits walked
+		 */
+		int step(int state, int digit);
+
+		/**
+		 * Add the words that end at a state of a walk.
+		 * 
+		 * @param state
+		 *            the state of the walk
+		 * @param end
+		 *            the position after the last digit walked
+		 * @param matches
+		 *            the matches to add the words to
+		 */
+		void addWords(int state, int end, Matches matches);
+	}
+
+	/**
+	 * {@link Matches} stores the words matching the digits from each start
+	 * position up to but excluding an end position. A word is either its
+	 * characters, copied into a single pool for all words, or its rank.
+	 */
+	protected static class Matches {
+		private static final int INITIAL_CAPACITY = 64;
+
+		/**
+		 * Index of the first match of each start position. The matches of a
+		 * position end where the matches of the next one begin.
+		 */
+		private int[] firstMatch = new int[INITIAL_CAPACITY];
+
+		private int[] ends = new int[INITIAL_CAPACITY];
+		private int[] wordStarts = new int[INITIAL_CAPACITY];
+		private int[] wordLengths = new int[INITIAL_CAPACITY];
+		private int[] ranks = new int[INITIAL_CAPACITY];
+		private int count;
+
+		/**
+		 * Index of the first match of the current start position.
+		 */
+		private int first;
+
+		private char[] pool = new char[INITIAL_CAPACITY * 8];
+		private int poolLength;
+
+		/**
+		 * The number of nodes visited to find the matches, only counted if
+		 * {@link VisitStatistics#ENABLED}.
+		 */
+		int nodesVisited;
+
+		/**
+		 * Add a word matching the digits from the current start position.
+		 *
+		 * @param word
+		 *            the word
+		 * @param end
+		 *            the position after the last digit of the word
+		 */
+		public void add(CharSequence word, int end) {
+			reserve(word.length());
+			ends[count] = end;
+			wordStarts[count] = poolLength;
+			wordLengths[count] = word.length();
+			ranks[count] = EncodingPath.NO_RANK;
+			for (int i = 0; i < word.length(); i++) {
+				pool[poolLength++] = word.charAt(i);
+			}
+			count++;
+		}
+
+		/**
+		 * Add a word of a rank matching the digits from the current start
+		 * position.
+		 *
+		 * @param rank
+		 *            the rank of the word
+		 * @param end
+		 *            the position after the last digit of the word
+		 */
+		public void add(int rank, int end) {
+			reserve(0);
+			ends[count] = end;
+			wordStarts[count] = poolLength;
+			wordLengths[count] = 0;
+			ranks[count] = rank;
+			count++;
+		}
+
+		private void reserve(int wordLength) {
+			if (count == ends.length) {
+				ends = Arrays.copyOf(ends, count * 2);
+				wordStarts = Arrays.copyOf(wordStarts, count * 2);
+				wordLengths = Arrays.copyOf(wordLengths, count * 2);
+				ranks = Arrays.copyOf(ranks, count * 2);
+			}
+			if (poolLength + wordLength > pool.length) {
+				pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolLength + wordLength));
+			}
+		}
+
+		/**
+		 * Sort the words matching from the current start position in
+		 * ascending order, like {@link String#compareTo(String)}, or by rank
+		 * if they're ranks. There are only a few words per position, so
+		 * they're sorted by insertion.
+		 */
+		public void sort() {
+			sort(first, count);
+		}
+
+		private void sort(int first, int count) {
+			for (int i = first + 1; i < count; i++) {
+				int end = ends[i];
+				int wordStart = wordStarts[i];
+				int wordLength = wordLengths[i];
+				int rank = ranks[i];
+				int j = i - 1;
+				while (j >= first && compareTo(j, wordStart, wordLength, rank) > 0) {
+					ends[j + 1] = ends[j];
+					wordStarts[j + 1] = wordStarts[j];
+					wordLengths[j + 1] = wordLengths[j];
+					ranks[j + 1] = ranks[j];
+					j--;
+				}
+				ends[j + 1] = end;
+				wordStarts[j + 1] = wordStart;
+				wordLengths[j + 1] = wordLength;
+				ranks[j + 1] = rank;
+			}
+		}
+
+		/**
+		 * Compare a match with a word taken out of the matches.
+		 */
+		private int compareTo(int match, int wordStart, int wordLength, int rank) {
+			if (rank != EncodingPath.NO_RANK)
+				return Integer.compare(ranks[match], rank);
+			return compare(wordStarts[match], wordLengths[match], wordStart, wordLength);
+		}
+
+		private int compare(int start1, int length1, int start2, int length2) {
+			int length = Math.min(length1, length2);
+			for (int i = 0; i < length; i++) {
+				char ch1 = pool[start1 + i];
+				char ch2 = pool[start2 + i];
+				if (ch1 != ch2)
+					return ch1 - ch2;
+			}
+			return length1 - length2;
+		}
+
+		private void startPosition(int start) {
+			firstMatch[start] = count;
+			first = count;
+		}
+
+		/**
+		 * Take all matches of other matches, found in any order of their
+		 * start positions, grouped by start position. The characters of the
+		 * words are shared, not copied.
+		 * 
+		 * @param records
+		 *            the matches, all in one position
+		 * @param starts
+		 *            the start position of each match
+		 * @param length
+		 *            the number of digits
+		 * @param sorted
+		 *            whether to sort the words of every position
+		 */
+		private void gather(Matches records, int[] starts, int length, boolean sorted) {
+			clear(length);
+			if (ends.length < records.count) {
+				ends = new int[records.ends.length];
+				wordStarts = new int[records.ends.length];
+				wordLengths = new int[records.ends.length];
+				ranks = new int[records.ends.length];
+			}
+
+			// count the matches of each position, then place them in the
+			// order they were found
+			Arrays.fill(firstMatch, 0, length + 1, 0);
+			for (int match = 0; match < records.count; match++) {
+				firstMatch[starts[match] + 1]++;
+			}
+			for (int start = 0; start < length; start++) {
+				firstMatch[start + 1] += firstMatch[start];
+			}
+			for (int match = 0; match < records.count; match++) {
+				int index = firstMatch[starts[match]]++;
+				ends[index] = records.ends[match];
+				wordStarts[index] = records.wordStarts[match];
+				wordLengths[index] = records.wordLengths[match];
+				ranks[index] = records.ranks[match];
+			}
+			// every position now starts where the next one did
+			for (int start = length; start > 0; start--) {
+				firstMatch[start] = firstMatch[start - 1];
+			}
+			firstMatch[0] = 0;
+
+			count = records.count;
+			pool = records.pool;
+			poolLength = records.poolLength;
+			if (sorted) {
+				for (int start = 0; start < length; start++) {
+					sort(firstMatch[start], firstMatch[start + 1]);
+				}
+			}
+		}
+
+		private void clear(int length) {
+			if (firstMatch.length < length + 1) {
+				firstMatch = new int[Math.max(firstMatch.length * 2, length + 1)];
+			}
+			count = 0;
+			poolLength = 0;
+			nodesVisited = 0;
+		}
+	}
+
+	/**
+	 * {@link Search} holds the sub-solutions for a single digit sequence.
+	 */
+	private class Search {
+		private final Matches matches = new Matches();
+		private final EncodingPath path = new EncodingPath();
+
+		private int[] digits;
+		private int length;
+		private VisitStatistics statistics;
+
+		/**
+		 * Whether the rest of the digits from a position can be encoded
+		 * starting with a word. The end of the digits counts as encoded.
+		 */
+		private boolean[] encodableByWord = new boolean[Matches.INITIAL_CAPACITY];
+
+		/**
+		 * Whether the rest of the digits from a position can be encoded right
+		 * after a word, either by a word or by a digit.
+		 */
+		private boolean[] encodable = new boolean[Matches.INITIAL_CAPACITY];
+
+		public void start(int[] digits, int length, char[][] digitToCharacters) {
+			matches.clear(length);
+			for (int start = 0; start < length; start++) {
+				matches.startPosition(start);
+				collectMatches(digits, length, digitToCharacters, start, matches);
+			}
+			matches.firstMatch[length] = matches.count;
+			if (VisitStatistics.ENABLED)
+				VisitStatistics.current().addNodesVisited(matches.nodesVisited);
+			solve(digits, length);
+		}
+
+		/**
+		 * Decide where the encodings go on, once the matches of every
+		 * position are collected.
+		 */
+		public void solve(int[] digits, int length) {
+			this.digits = digits;
+			this.length = length;
+			path.clear();
+			if (encodable.length < length + 1) {
+				encodableByWord = new boolean[Math.max(encodable.length * 2, length + 1)];
+				encodable = new boolean[encodableByWord.length];
+			}
+			if (VisitStatistics.ENABLED)
+				statistics = VisitStatistics.current();
+
+			encodableByWord[length] = true;
+			encodable[length] = false;
+			int deadBranches = 0;
+			for (int position = length - 1; position >= 0; position--) {
+				encodableByWord[position] = false;
+				for (int match = matches.firstMatch[position]; match < matches.firstMatch[position + 1]; match++) {
+					int end = matches.ends[match];
+					if (end == length || encodable[end]) {
+						encodableByWord[position] = true;
+						break;
+					}
+				}
+				// a digit is only kept if no word fits, and it's followed by a
+				// word or the end of the digits
+				encodable[position] = encodableByWord[position] || encodableByWord[position + 1];
+
+				if (VisitStatistics.ENABLED) {
+					// the words that are never followed
+					for (int match = matches.firstMatch[position]; match < matches.firstMatch[position + 1]; match++) {
+						int end = matches.ends[match];
+						if (end != length && !encodable[end])
+							deadBranches++;
+					}
+				}
+			}
+			if (VisitStatistics.ENABLED)
+				statistics.addDeadBranches(deadBranches);
+		}
+
+		public void listEncodings(PathListener listener) {
+			if (length == 0) {
+				// nothing to encode, like an empty queue at the root node
+				listener.onPath(path);
+				return;
+			}
+			if (encodable[0])
+				listEncodingsAfterWord(listener, 0);
+		}
+
+		/**
+		 * @return false if the listener stopped the visit
+		 */
+		private boolean listEncodingsAfterWord(PathListener listener, int position) {
+			if (encodableByWord[position])
+				return listEncodingsStartingWithWord(listener, position);
+
+			// no word fits, so the digit is kept
+			if (VisitStatistics.ENABLED)
+				statistics.addDigitFallback();
+			int pathLength = path.length();
+			int wordCount = path.getWordCount();
+			path.append(Character.forDigit(digits[position], 10));
+			path.endWord();
+			boolean goOn = listEncodingsStartingWithWord(listener, position + 1);
+			path.truncate(pathLength, wordCount);
+			return goOn;
+		}
+
+		/**
+		 * @return false if the listener stopped the visit
+		 */
+		private boolean listEncodingsStartingWithWord(PathListener listener, int position) {
+			if (position == length)
+				return listener.onPath(path);
+
+			int pathLength = path.length();
+			int wordCount = path.getWordCount();
+			for (int match = matches.firstMatch[position]; match < matches.firstMatch[position + 1]; match++) {
+				int end = matches.ends[match];
+				if (end == length || encodable[end]) {
+					path.append(matches.pool, matches.wordStarts[match], matches.wordLengths[match]);
+					path.endWord(matches.ranks[match]);
+					boolean goOn = end == length ? listener.onPath(path) : listEncodingsAfterWord(listener, end);
+					path.truncate(pathLength, wordCount);
+					if (!goOn)
+						return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * {@link Batch} walks the digit trie of a batch of sequences. The walks
+	 * and the matches found so far are kept as stacks by depth, so going back
+	 * to the digits shared with the next sequence only truncates them.
+	 */
+	private class Batch implements PathListener {
+		private final Search search = new Search();
+
+		/**
+		 * The matches of the digits walked, in the order they were found,
+		 * which is by their end position.
+		 */
+		private final Matches records = new Matches();
+
+		/**
+		 * The start position of each record.
+		 */
+		private int[] recordStarts = new int[Matches.INITIAL_CAPACITY];
+
+		/**
+		 * The number of records and the length of their pool at each depth.
+		 */
+		private int[] recordCounts = new int[Matches.INITIAL_CAPACITY];
+		private int[] poolLengths = new int[Matches.INITIAL_CAPACITY];
+
+		/**
+		 * The start position and state of the walks going on at each depth.
+		 * The walks of a depth end where the walks of the next one begin.
+		 */
+		private int[] walkStarts = new int[Matches.INITIAL_CAPACITY];
+		private int[] walkStates = new int[Matches.INITIAL_CAPACITY];
+		private int[] walkEnds = new int[Matches.INITIAL_CAPACITY];
+
+		private DigitStepper stepper;
+		private BatchPathListener listener;
+		private int number;
+
+		/**
+		 * @return false if the sequences share too few digits, in which case
+		 *         none is visited
+		 */
+		public boolean visit(DigitStepper stepper, final int[][] digits, int[] lengths, int count,
+				BatchPathListener listener) {
+			Integer[] order = new Integer[count];
+			int maximumLength = 0;
+			for (int i = 0; i < count; i++) {
+				order[i] = i;
+				maximumLength = Math.max(maximumLength, lengths[i]);
+			}
+			final int[] sequenceLengths = lengths;
+			Arrays.sort(order, new Comparator<Integer>() {
+				public int compare(Integer number1, Integer number2) {
+					int[] digits1 = digits[number1];
+					int[] digits2 = digits[number2];
+					int length = Math.min(sequenceLengths[number1], sequenceLengths[number2]);
+					for (int i = 0; i < length; i++) {
+						if (digits1[i] != digits2[i])
+							return digits1[i] - digits2[i];
+					}
+					return sequenceLengths[number1] - sequenceLengths[number2];
+				}
+			});
+			long sharedDigits = 0;
+			for (int i = 1; i < count; i++) {
+				sharedDigits += sharedLength(digits[order[i - 1]], lengths[order[i - 1]], digits[order[i]],
+						lengths[order[i]]);
+			}
+			if (sharedDigits < (long) MIN_SHARED_DIGITS * (count - 1))
+				return false;
+			reserveDepths(maximumLength);
+
+			this.stepper = stepper;
+			this.listener = listener;
+			try {
+				// only the walk that starts at the first digit
+				records.clear(0);
+				walkStarts[0] = 0;
+				walkStates[0] = stepper.getStartState();
+				walkEnds[0] = 1;
+				int depth = 0;
+				int[] previous = null;
+				for (int i = 0; i < count; i++) {
+					number = order[i];
+					int[] sequence = digits[number];
+					int length = lengths[number];
+
+					// go back to the digits shared with the previous sequence
+					int shared = previous == null ? 0 : sharedLength(previous, depth, sequence, length);
+					records.count = recordCounts[shared];
+					records.poolLength = poolLengths[shared];
+					for (depth = shared; depth < length; depth++) {
+						walk(depth, sequence[depth]);
+					}
+					previous = sequence;
+
+					search.matches.gather(records, recordStarts, length, listsOriginalWordsInOrder());
+					search.solve(sequence, length);
+					search.listEncodings(this);
+				}
+				return true;
+			} finally {
+				this.stepper = null;
+				this.listener = null;
+			}
+		}
+
+		private int sharedLength(int[] digits1, int length1, int[] digits2, int length2) {
+			int common = Math.min(length1, length2);
+			int shared = 0;
+			while (shared < common && digits1[shared] == digits2[shared]) {
+				shared++;
+			}
+			return shared;
+		}
+
+		/**
+		 * Go on with the walks of a depth by its digit.
+		 */
+		private void walk(int depth, int digit) {
+			int first = depth == 0 ? 0 : walkEnds[depth - 1];
+			int end = walkEnds[depth];
+			// every walk may go on, and one more starts
+			reserveWalks(end + end - first + 1);
+			int[] walkStarts = this.walkStarts;
+			int[] walkStates = this.walkStates;
+
+			int walk = end;
+			for (int w = first; w < end; w++) {
+				int state = stepper.step(walkStates[w], digit);
+				if (state == DigitStepper.NO_STATE)
+					continue;
+
+				int firstRecord = records.count;
+				stepper.addWords(state, depth + 1, records);
+				if (records.count > firstRecord) {
+					reserveRecords(records.count);
+					Arrays.fill(recordStarts, firstRecord, records.count, walkStarts[w]);
+				}
+				walkStarts[walk] = walkStarts[w];
+				walkStates[walk] = state;
+				walk++;
+			}
+			if (VisitStatistics.ENABLED)
+				VisitStatistics.current().addNodesVisited(walk - end);
+
+			// and the walk that starts after the digit
+			walkStarts[walk] = depth + 1;
+			walkStates[walk] = stepper.getStartState();
+			walkEnds[depth + 1] = walk + 1;
+			recordCounts[depth + 1] = records.count;
+			poolLengths[depth + 1] = records.poolLength;
+		}
+
+		private void reserveDepths(int length) {
+			if (walkEnds.length < length + 1) {
+				walkEnds = Arrays.copyOf(walkEnds, length + 1);
+				recordCounts = Arrays.copyOf(recordCounts, length + 1);
+				poolLengths = Arrays.copyOf(poolLengths, length + 1);
+			}
+		}
+
+		private void reserveRecords(int count) {
+			if (recordStarts.length < count)
+				recordStarts = Arrays.copyOf(recordStarts, Math.max(recordStarts.length * 2, count));
+		}
+
+		private void reserveWalks(int count) {
+			if (walkStarts.length < count) {
+				walkStarts = Arrays.copyOf(walkStarts, Math.max(walkStarts.length * 2, count));
+				walkStates = Arrays.copyOf(walkStates, walkStarts.length);
+			}
+		}
+
+		public boolean onPath(EncodingPath path) {
+			return listener.onPath(number, path);
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package visitors;
+
+/**
+ * {@link PathListener} is notified of every complete encoding a
+ * {@link Visitor} finds.
+ *
+ */
+public interface PathListener {
+
+	/**
+	 * Called when an encoding covers all digits.
+	 *
+	 * @param path
+	 *            the words of the encoding. It's only valid until this method
+	 *            returns.
+	 * @return true to go on with the visit, false to stop it. No more
+	 *         encoding is passed to the listener once it returns false.
+	 */
+	boolean onPath(EncodingPath path);
+
+}
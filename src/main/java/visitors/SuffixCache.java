@@ -0,0 +1,306 @@
+package visitors;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link SuffixCache} keeps the encodings of the last digits of numbers,
+ * shared by all visits of a {@link DawgVisitor}, so that numbers ending with
+ * the same digits only encode them once.
+ * 
+ * The encodings of the digits from a position to the end only depend on
+ * those digits and on whether the token before them is a digit, since two
+ * digits can't follow each other. So they're keyed by both, the digits
+ * packed 16 per long. All encodings of the digits are kept in a single char
+ * array: every token is followed by a space and every encoding by a line
+ * feed. The digits without any encoding are kept too, as an empty array.
+ * 
+ * Some digits have thousands of encodings, so the cache is bounded by the
+ * bytes its entries take rather than by their number. It's split into
+ * segments by the hash of the key, each locked on its own, and every segment
+ * evicts its least recently used entries until it's back under its share of
+ * the weight. An entry heavier than a whole segment isn't cached.
+ * 
+ * The encodings are only valid for the graph they were found in. The cache
+ * keeps the modification count of the graph, and drops every entry once a
+ * visit sees that the graph has changed since.
+ */
+public class SuffixCache {
+	private static final int MAX_SEGMENTS = 16;
+
+	/**
+	 * The bytes an entry takes besides its characters and packed digits: the
+	 * key, the array headers and the map entry.
+	 */
+	static final int ENTRY_OVERHEAD = 96;
+
+	private final Segment[] segments;
+	private final long maximumWeight;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * The modification count of the graph the entries were found in.
+	 */
+	private volatile long version;
+
+	/**
+	 * @param maximumWeight
+	 *            the maximum number of bytes of all entries
+	 * @throws IllegalArgumentException
+	 *             when the weight isn't positive
+	 */
+	public SuffixCache(long maximumWeight) {
+		if (maximumWeight <= 0)
+			throw new IllegalArgumentException("Maximum weight must be positive: " + maximumWeight);
+
+		int segmentCount = (int) Math.min(MAX_SEGMENTS, Long.highestOneBit(Math.max(1, maximumWeight / (64 * 1024))));
+		this.segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			segments[i] = new Segment(maximumWeight / segmentCount + (i < maximumWeight % segmentCount ? 1 : 0));
+		}
+		this.maximumWeight = maximumWeight;
+	}
+
+	/**
+	 * Find the encodings of the last digits of a number.
+	 * 
+	 * @param key
+	 *            the digits, packed by {@link Key#set(int[], int, int, boolean)}
+	 * @return the encodings, or null if they're not cached
+	 */
+	char[] get(Key key) {
+		char[] encodings = segmentOf(key).get(key);
+		if (encodings == null)
+			misses.incrementAndGet();
+		else
+			hits.incrementAndGet();
+		return encodings;
+	}
+
+	/**
+	 * Cache the encodings of the last digits of a number.
+	 * 
+	 * @param key
+	 *            the digits, which are copied if they're cached
+	 * @param encodings
+	 *            the encodings, which are kept as they are
+	 * @param version
+	 *            the modification count of the graph they were found in
+	 * @return true if the encodings were cached, false if they're heavier than
+	 *         a segment or the graph has changed since
+	 */
+	boolean put(Key key, char[] encodings, long version) {
+		return segmentOf(key).put(key, encodings, version);
+	}
+
+	/**
+	 * Drop every entry if the graph has changed since they were found.
+	 * 
+	 * @param version
+	 *            the modification count of the graph
+	 */
+	void validate(long version) {
+		if (version != this.version)
+			clear(version);
+	}
+
+	/**
+	 * Drop every entry.
+	 */
+	public void clear() {
+		clear(version);
+	}
+
+	private synchronized void clear(long version) {
+		// entries of the old version put from now on are refused
+		this.version = version;
+		for (Segment segment : segments) {
+			segment.clear();
+		}
+	}
+
+	/**
+	 * @param key
+	 *            the key
+	 * @param encodings
+	 *            the encodings
+	 * @return the bytes an entry takes
+	 */
+	static long weigh(Key key, char[] encodings) {
+		return ENTRY_OVERHEAD + key.wordCount() * 8L + encodings.length * 2L;
+	}
+
+	private Segment segmentOf(Key key) {
+		int hash = key.hashCode();
+		return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+	}
+
+	/**
+	 * @return the maximum number of bytes of all entries
+	 */
+	public long getMaximumWeight() {
+		return maximumWeight;
+	}
+
+	/**
+	 * @return the maximum number of bytes of an entry, the weight of a
+	 *         segment
+	 */
+	long getMaximumEntryWeight() {
+		return maximumWeight / segments.length;
+	}
+
+	/**
+	 * @return the number of bytes of all entries
+	 */
+	public long getWeight() {
+		long weight = 0;
+		for (Segment segment : segments) {
+			weight += segment.getWeight();
+		}
+		return weight;
+	}
+
+	/**
+	 * @return the number of cached digit sequences
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	/**
+	 * @return the number of lookups that found the encodings
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of lookups that didn't find the encodings
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return the number of entries removed to make room for others
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	@Override
+	public String toString() {
+		return "SuffixCache [size=" + size() + ", weight=" + getWeight() + ", maximumWeight=" + maximumWeight
+				+ ", hits=" + getHits() + ", misses=" + getMisses() + ", evictions=" + getEvictions() + "]";
+	}
+
+	/**
+	 * {@link Segment} is a part of the cache with its own lock, its own
+	 * least recently used order and its own share of the weight.
+	 */
+	private class Segment {
+		private final long maximumWeight;
+		private final LinkedHashMap<Key, char[]> entries = new LinkedHashMap<Key, char[]>(16, 0.75f, true);
+		private long weight;
+
+		public Segment(long maximumWeight) {
+			this.maximumWeight = maximumWeight;
+		}
+
+		public synchronized char[] get(Key key) {
+			return entries.get(key);
+		}
+
+		public synchronized boolean put(Key key, char[] encodings, long version) {
+			long entryWeight = weigh(key, encodings);
+			if (entryWeight > maximumWeight || version != SuffixCache.this.version)
+				return false;
+
+			Key copy = key.copy();
+			char[] previous = entries.put(copy, encodings);
+			weight += entryWeight;
+			if (previous != null)
+				weight -= weigh(copy, previous);
+
+			Iterator<Map.Entry<Key, char[]>> eldest = entries.entrySet().iterator();
+			while (weight > maximumWeight) {
+				Map.Entry<Key, char[]> entry = eldest.next();
+				weight -= weigh(entry.getKey(), entry.getValue());
+				eldest.remove();
+				evictions.incrementAndGet();
+			}
+			return true;
+		}
+
+		public synchronized void clear() {
+			entries.clear();
+			weight = 0;
+		}
+
+		public synchronized long getWeight() {
+			return weight;
+		}
+
+		public synchronized int size() {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * {@link Key} is the last digits of a number, and whether the token
+	 * before them is a digit.
+	 */
+	static class Key extends DigitKey {
+		private boolean afterDigit;
+
+		Key() {
+		}
+
+		private Key(Key key) {
+			super(key);
+			this.afterDigit = key.afterDigit;
+		}
+
+		/**
+		 * Pack the last digits of a number into the key.
+		 * 
+		 * @param digits
+		 *            the digits of the number, each from 0 to 9
+		 * @param start
+		 *            the position of the first digit to pack
+		 * @param end
+		 *            the number of digits of the number
+		 * @param afterDigit
+		 *            whether the token before the digits is a digit
+		 */
+		void set(int[] digits, int start, int end, boolean afterDigit) {
+			set(digits, start, end);
+			this.afterDigit = afterDigit;
+		}
+
+		@Override
+		public Key copy() {
+			return new Key(this);
+		}
+
+		@Override
+		public int hashCode() {
+			return afterDigit ? ~super.hashCode() : super.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return super.equals(obj) && afterDigit == ((Key) obj).afterDigit;
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package visitors;
+
+/**
+ * {@link VisitStatistics} counts the work of the visits of a thread: the
+ * graph or trie nodes visited, the digits kept because no word fits, and the
+ * branches that don't lead to any encoding. The counts add up until they're
+ * reset, so a caller resets them before a number and reads them after it.
+ *
+ * Counting is switched on with the system property
+ * {@code encoder.instrumentation}. The switch is a constant, so the visitors
+ * check it before every count and the JIT drops the counting when it's off.
+ */
+public final class VisitStatistics {
+
+	/**
+	 * Whether the visits are counted.
+	 */
+	public static final boolean ENABLED = Boolean.getBoolean("encoder.instrumentation");
+
+	private static final ThreadLocal<VisitStatistics> statistics = new ThreadLocal<VisitStatistics>() {
+		@Override
+		protected VisitStatistics initialValue() {
+			return new VisitStatistics();
+		}
+	};
+
+	private long nodesVisited;
+	private long digitFallbacks;
+	private long deadBranches;
+
+	private VisitStatistics() {
+	}
+
+	/**
+	 * @return the statistics of the current thread
+	 */
+	public static VisitStatistics current() {
+		return statistics.get();
+	}
+
+	public void reset() {
+		nodesVisited = 0;
+		digitFallbacks = 0;
+		deadBranches = 0;
+	}
+
+	void addNodesVisited(int count) {
+		nodesVisited += count;
+	}
+
+	void addDigitFallback() {
+		digitFallbacks++;
+	}
+
+	void addDeadBranches(int count) {
+		deadBranches += count;
+	}
+
+	/**
+	 * @return the number of nodes visited to find the words
+	 */
+	public long getNodesVisited() {
+		return nodesVisited;
+	}
+
+	/**
+	 * @return the number of times a digit was kept because no word fits
+	 */
+	public long getDigitFallbacks() {
+		return digitFallbacks;
+	}
+
+	/**
+	 * @return the number of words or edges followed that didn't lead to any
+	 *         encoding, or that were left out because they wouldn't
+	 */
+	public long getDeadBranches() {
+		return deadBranches;
+	}
+}
@@ -1,5 +1,6 @@
 package visitors;
 
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map.Entry;
 
@@ -15,11 +16,100 @@ public interface Visitor {
 	 * Visit the {@link IDawg} and find all words that match the character
 	 * sequence.
 	 * 
+	 * This is an adapter of
+	 * {@link #visit(int[], int, char[][], PathListener)}, which creates a
+	 * String for every encoding.
+	 * 
 	 * @param characterQueue
 	 *            the character sequence with many possible combinations for
 	 *            words with integer alternative if no match is found
 	 * @return the list of words matches the character sequence
 	 */
-	List<String> visit(List<Entry<Integer, char[]>> characterQueue);
+	default List<String> visit(List<Entry<Integer, char[]>> characterQueue) {
+		int[] digits = new int[characterQueue.size()];
+		char[][] digitToCharacters = new char[10][];
+		for (int i = 0; i < digits.length; i++) {
+			digits[i] = characterQueue.get(i).getKey();
+			digitToCharacters[digits[i]] = characterQueue.get(i).getValue();
+		}
+
+		final List<String> words = new LinkedList<String>();
+		visit(digits, digits.length, digitToCharacters, new PathListener() {
+			public boolean onPath(EncodingPath path) {
+				words.add(path.toString());
+				return true;
+			}
+		});
+		return words;
+	}
+
+	/**
+	 * Visit the {@link IDawg} and find all words that match the digits. Every
+	 * encoding found is passed to the listener as an {@link EncodingPath}, so
+	 * nothing needs to be allocated for encodings that are never completed.
+	 * 
+	 * Implementations must allow concurrent visits from different threads
+	 * once the graph is constructed. The listener is called on the visiting
+	 * thread, and the visit returns as soon as the listener asks to stop.
+	 * 
+	 * @param digits
+	 *            the buffer of digits. It may be longer than the digits to
+	 *            encode.
+	 * @param length
+	 *            the number of digits to encode
+	 * @param digitToCharacters
+	 *            the characters each digit can be encoded with, indexed by
+	 *            digit
+	 * @param listener
+	 *            the listener to notify of each encoding
+	 */
+	void visit(int[] digits, int length, char[][] digitToCharacters, PathListener listener);
+
+	/**
+	 * Visit the {@link IDawg} and find all words that match each of a batch of
+	 * digit sequences. The encodings of a sequence are all passed to the
+	 * listener before those of the next one, but the sequences may be visited
+	 * in any order.
+	 * 
+	 * This default visits the sequences one by one with
+	 * {@link #visit(int[], int, char[][], PathListener)}. A visitor may share
+	 * the work on the digits that several sequences start with.
+	 * 
+	 * @param digits
+	 *            the buffer of digits of each sequence
+	 * @param lengths
+	 *            the number of digits to encode of each sequence
+	 * @param count
+	 *            the number of sequences
+	 * @param digitToCharacters
+	 *            the characters each digit can be encoded with, indexed by
+	 *            digit
+	 * @param listener
+	 *            the listener to notify of each encoding
+	 */
+	default void visitAll(int[][] digits, int[] lengths, int count, char[][] digitToCharacters,
+			final BatchPathListener listener) {
+		for (int i = 0; i < count; i++) {
+			final int number = i;
+			visit(digits[i], lengths[i], digitToCharacters, new PathListener() {
+				public boolean onPath(EncodingPath path) {
+					return listener.onPath(number, path);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Tell whether the paths hold the original spellings of the words, or
+	 * ranks that stand for them, and are listed in ascending order of their
+	 * text, words separated by single spaces, as
+	 * {@link String#compareTo(String)} orders them. Then the encodings can
+	 * be passed on as they are found, without sorting them.
+	 * 
+	 * @return true if the paths are original words in ascending order
+	 */
+	default boolean listsOriginalWordsInOrder() {
+		return false;
+	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,65 @@
+package dawg;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class BitVectorTest {
+
+	private static long[] randomBits(Random random, int length, double density) {
+		long[] bits = new long[(length + 63) >>> 6];
+		for (int i = 0; i < length; i++) {
+			if (random.nextDouble() < density)
+				bits[i >>> 6] |= 1L << i;
+		}
+		return bits;
+	}
+
+	private static boolean get(long[] bits, int position) {
+		return (bits[position >>> 6] & (1L << position)) != 0;
+	}
+
+	@Test
+	public void givenRandomBits_ShouldRankAndSelectLikeCounting() {
+		Random random = new Random(7);
+		for (double density : new double[] { 0.05, 0.5, 0.95 }) {
+			int length = 5000 + random.nextInt(64);
+			long[] bits = randomBits(random, length, density);
+			BitVector vector = new BitVector(bits, length);
+
+			int ones = 0;
+			int zeros = 0;
+			for (int i = 0; i < length; i++) {
+				assertEquals(get(bits, i), vector.get(i));
+				assertEquals(ones, vector.rank1(i));
+				if (get(bits, i)) {
+					ones++;
+				} else {
+					assertEquals(i, vector.select0(zeros));
+					zeros++;
+				}
+			}
+			assertEquals(ones, vector.rank1(length));
+		}
+	}
+
+	@Test
+	public void givenPosition_ShouldFindNextZero() {
+		// 1110 1100 in the lowest bits, then 64 ones and a zero
+		long[] bits = { 0x37L | 0xFFFFFFFFFFFFFF00L, 0xFFL };
+		BitVector vector = new BitVector(bits, 80);
+		assertEquals(3, vector.nextZero(0));
+		assertEquals(3, vector.nextZero(3));
+		assertEquals(6, vector.nextZero(4));
+		assertEquals(72, vector.nextZero(8));
+	}
+
+	@Test
+	public void givenNoBits_ShouldRankZero() {
+		BitVector vector = new BitVector(new long[0], 0);
+		assertEquals(0, vector.rank1(0));
+		assertEquals(0, vector.length());
+	}
+}
@@ -0,0 +1,161 @@
+package dawg;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import image.ImageReader;
+import image.ImageWriter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CompiledDawgTest {
+	private final String[] words = { "produce", "production", "productive",
+			"seduce", "seduction", "seductive" };
+
+	private CompiledDawg dawg;
+
+	@Before
+	public void setUp() {
+		dawg = new CompiledDawg();
+		for (String word : words) {
+			dawg.add(word);
+		}
+		dawg.construct();
+	}
+
+	@Test
+	public void afterConstruct_ShouldContainWords() {
+		for (String word : words) {
+			IDawgNode node = dawg.getRoot();
+			for (char ch : word.toCharArray()) {
+				assertTrue(node.containsEdge(ch));
+				node = node.getChild(ch);
+			}
+			assertTrue(node.isFinal());
+		}
+	}
+
+	@Test
+	public void afterConstruct_ShouldHaveSameSizeAsDawg() {
+		Dawg minimized = new Dawg();
+		for (String word : words) {
+			minimized.add(word);
+		}
+		minimized.construct();
+
+		assertEquals(minimized.getSize(), dawg.getSize());
+		assertEquals(minimized.getSize(),
+				CompiledDawg.compile(minimized).getSize());
+	}
+
+	@Test
+	public void afterConstruct_ShouldIndexWordsInOrder() {
+		assertEquals(words.length, dawg.getWordCount());
+		for (int i = 0; i < words.length; i++) {
+			char[] word = ("_" + words[i] + "_").toCharArray();
+			assertEquals(i, dawg.getWordIndex(word, 1, words[i].length()));
+		}
+		assertEquals(IDawg.NO_WORD, dawg.getWordIndex("product".toCharArray(), 0, 7));
+		assertEquals(IDawg.NO_WORD, dawg.getWordIndex("seducer".toCharArray(), 0, 7));
+	}
+
+	@Test
+	public void givenPrefixOfWord_ShouldNotBeFinal() {
+		int node = dawg.getRootIndex();
+		for (char ch : "product".toCharArray()) {
+			node = dawg.getChildIndex(node, ch);
+		}
+		assertFalse(dawg.isFinal(node));
+	}
+
+	@Test
+	public void givenMissingEdge_ShouldReturnNoNode() {
+		assertEquals(CompiledDawg.NO_NODE,
+				dawg.getChildIndex(dawg.getRootIndex(), 'a'));
+		assertFalse(dawg.getRoot().containsEdge('a'));
+		assertNull(dawg.getRoot().getChild('a'));
+	}
+
+	@Test
+	public void givenSameIndex_ShouldEqual() {
+		assertEquals(dawg.getRoot(), dawg.getRoot());
+		assertEquals(dawg.getRoot().getChild('p'), dawg.getRoot().getChild('p'));
+	}
+
+	@Test
+	public void givenImage_ShouldReadSameGraph() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ImageWriter image = new ImageWriter(bytes);
+		dawg.writeTo(image);
+		image.close();
+		CompiledDawg read = CompiledDawg.read(new ImageReader(ByteBuffer.wrap(bytes.toByteArray())));
+
+		assertEquals(dawg.getSize(), read.getSize());
+		assertEquals(dawg.getEdgeCount(), read.getEdgeCount());
+		assertEquals(dawg.getWordCount(), read.getWordCount());
+		for (String word : words) {
+			assertEquals(dawg.getWordIndex(word.toCharArray(), 0, word.length()),
+					read.getWordIndex(word.toCharArray(), 0, word.length()));
+		}
+		for (int node = 0; node < dawg.getSize(); node++) {
+			assertEquals(dawg.isFinal(node), read.isFinal(node));
+			for (char ch = 'a'; ch <= 'z'; ch++) {
+				assertEquals(dawg.getChildIndex(node, ch), read.getChildIndex(node, ch));
+			}
+		}
+	}
+
+	@Test
+	public void afterReorder_ShouldPlaceVisitedNodesFirst() {
+		ProfilingDawg profiling = new ProfilingDawg(dawg);
+		IDawgNode node = profiling.getRoot();
+		for (char ch : "seductive".toCharArray()) {
+			node = node.getChild(ch);
+		}
+		int size = dawg.getSize();
+		int edgeCount = dawg.getEdgeCount();
+		int[] wordIndices = new int[words.length];
+		for (int i = 0; i < words.length; i++) {
+			wordIndices[i] = dawg.getWordIndex(words[i].toCharArray(), 0, words[i].length());
+		}
+		dawg.reorder(profiling.getVisits());
+
+		assertEquals(size, dawg.getSize());
+		assertEquals(edgeCount, dawg.getEdgeCount());
+		afterConstruct_ShouldContainWords();
+		for (int i = 0; i < words.length; i++) {
+			assertEquals(wordIndices[i], dawg.getWordIndex(words[i].toCharArray(), 0, words[i].length()));
+		}
+
+		// the nodes of the word, with the root, take the first indices
+		int index = dawg.getRootIndex();
+		assertEquals(0, index);
+		for (char ch : "seductive".toCharArray()) {
+			index = dawg.getChildIndex(index, ch);
+			assertTrue(index <= "seductive".length());
+		}
+		assertTrue(dawg.isFinal(index));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void givenWrongNumberOfVisits_ShouldNotReorder() {
+		dawg.reorder(new long[dawg.getSize() + 1]);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void afterConstruct_ShouldNotAdd() {
+		dawg.add("sedutive");
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void beforeConstruct_ShouldNotGetRoot() {
+		new CompiledDawg().getRoot();
+	}
+}
@@ -0,0 +1,45 @@
+package dawg;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DawgFootprintTest {
+	private final char[][] digitToCharacters = { { 'e' }, { 'j', 'n', 'q' }, { 'r', 'w', 'x' }, { 'd', 's', 'y' },
+			{ 'f', 't' }, { 'a', 'm' }, { 'c', 'i', 'v' }, { 'b', 'k', 'u' }, { 'l', 'o', 'p' }, { 'g', 'h', 'z' } };
+
+	@Test
+	public void givenSharedSuffixes_ShouldCountTrieNodesAndSharing() {
+		Dawg dawg = new Dawg();
+		CompiledDawg compiled = new CompiledDawg();
+		for (String word : new String[] { "fort", "ort", "tor", "torf" }) {
+			dawg.add(word);
+			compiled.add(word);
+		}
+		dawg.construct();
+		compiled.construct();
+
+		// the trie has the root, f-o-r-t, o-r-t and t-o-r-f
+		DawgFootprint footprint = DawgFootprint.of(dawg, digitToCharacters);
+		assertEquals(12, footprint.getTrieNodeCount());
+		assertEquals(dawg.getSize(), footprint.getNodeCount());
+		assertEquals(4, footprint.getWordCount());
+		assertEquals(1 - (double) dawg.getSize() / 12, footprint.getSuffixSharingRatio(), 1e-9);
+		assertTrue(footprint.getByteSize() > 0);
+
+		DawgFootprint compiledFootprint = DawgFootprint.of(compiled, digitToCharacters);
+		assertEquals(footprint.getNodeCount(), compiledFootprint.getNodeCount());
+		assertEquals(compiled.getEdgeCount(), compiledFootprint.getEdgeCount());
+		assertEquals(footprint.getEdgeCount(), compiledFootprint.getEdgeCount());
+		assertEquals(footprint.getTrieNodeCount(), compiledFootprint.getTrieNodeCount());
+		assertTrue(compiledFootprint.getByteSize() < footprint.getByteSize());
+	}
+
+	@Test
+	public void givenLength_ShouldAlignArrayBytes() {
+		assertEquals(16, DawgFootprint.arrayBytes(0, 4));
+		assertEquals(24, DawgFootprint.arrayBytes(1, 2));
+		assertEquals(56, DawgFootprint.arrayBytes(10, 4));
+	}
+}
@@ -5,6 +5,8 @@ import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class DawgNodeTest {
@@ -83,6 +85,48 @@ public class DawgNodeTest {
 		assertNotEquals(node, nodeToTestEquality);
 	}
 
+	@Test
+	public void givenEdgesAddedInDifferentOrder_ShouldEqualWithSameHash() {
+		DawgNode other = new DawgNode(numberOfNodes++);
+		node.addChild('e', newNode);
+		node.addChild('a', other);
+		nodeToTestEquality.addChild('a', other);
+		nodeToTestEquality.addChild('e', newNode);
+		assertEquals(node, nodeToTestEquality);
+		assertEquals(node.hashCode(), nodeToTestEquality.hashCode());
+	}
+
+	@Test
+	public void afterReplaceChild_ShouldKeepOneEdge() {
+		DawgNode other = new DawgNode(numberOfNodes++);
+		node.addChild('e', newNode);
+		node.addChild('e', other);
+		assertEquals(1, node.getChildCount());
+		assertSame(other, node.getChild('e'));
+	}
+
+	@Test
+	public void afterCopyOrRemove_ShouldCountEdgesToChild() {
+		DawgNode other = new DawgNode(numberOfNodes++);
+		node.addChild('e', newNode);
+		node.addChild('a', other);
+		DawgNode copy = node.copy(numberOfNodes++);
+		assertEquals(node, copy);
+		assertEquals(2, newNode.getInDegree());
+
+		copy.addChild('e', other);
+		assertEquals(1, newNode.getInDegree());
+		assertEquals(3, other.getInDegree());
+
+		node.removeChild('e');
+		assertEquals(0, newNode.getInDegree());
+		assertNull(node.getChild('e'));
+		assertSame(other, node.getChild('a'));
+
+		copy.release();
+		assertEquals(1, other.getInDegree());
+	}
+
 	@Test
 	public void afterAddConnection_ShouldGetConnectionReturnSameNode() {
 		node.addChild('e', newNode);
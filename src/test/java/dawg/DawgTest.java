@@ -1,9 +1,16 @@
 package dawg;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
 import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class DawgTest {
@@ -119,6 +126,112 @@ public class DawgTest {
 		afterFinalize_ShouldHaveSize(19);
 	}
 
+	@Test
+	public void afterConstruct_ShouldIndexWordsInOrder() {
+		String[] words = { "cat", "catfish", "cats", "dog", "dogs" };
+		for (String word : words) {
+			dawg.add(word);
+		}
+		dawg.construct();
+
+		assertEquals(words.length, dawg.getWordCount());
+		for (int i = 0; i < words.length; i++) {
+			assertEquals(i, dawg.getWordIndex(words[i].toCharArray(), 0, words[i].length()));
+		}
+		assertEquals(IDawg.NO_WORD, dawg.getWordIndex("ca".toCharArray(), 0, 2));
+		assertEquals(IDawg.NO_WORD, dawg.getWordIndex("cow".toCharArray(), 0, 3));
+	}
+
+	@Test
+	public void afterConstruct_ShouldAddWordsInAnyOrderAndStayMinimal() {
+		Dawg dawg = build("cat", "catfish", "dog");
+		dawg.add("dogs");
+		dawg.add("cats");
+		dawg.add("bat");
+		dawg.add("cat");
+
+		assertSameAs(dawg, "bat", "cat", "catfish", "cats", "dog", "dogs");
+	}
+
+	@Test
+	public void afterConstruct_ShouldRemoveWordsAndStayMinimal() {
+		Dawg dawg = build("bat", "cat", "catfish", "cats", "dog", "dogs");
+		assertTrue(dawg.remove("cats"));
+		assertTrue(dawg.remove("catfish"));
+		assertTrue(dawg.remove("dog"));
+		assertFalse(dawg.remove("dog"));
+		assertFalse(dawg.remove("ca"));
+		assertFalse(dawg.remove("cow"));
+
+		assertSameAs(dawg, "bat", "cat", "dogs");
+	}
+
+	@Test
+	public void givenRandomUpdates_ShouldMatchRebuiltGraph() {
+		Random random = new Random(42);
+		TreeSet<String> words = new TreeSet<String>();
+		Dawg dawg = build();
+		for (int i = 0; i < 2000; i++) {
+			StringBuilder word = new StringBuilder();
+			int length = 1 + random.nextInt(6);
+			for (int j = 0; j < length; j++) {
+				word.append((char) ('a' + random.nextInt(3)));
+			}
+
+			if (random.nextInt(3) == 0) {
+				assertEquals(words.remove(word.toString()), dawg.remove(word.toString()));
+			} else {
+				words.add(word.toString());
+				dawg.add(word.toString());
+			}
+			if (i % 100 == 0)
+				assertSameAs(dawg, words.toArray(new String[words.size()]));
+		}
+		assertSameAs(dawg, words.toArray(new String[words.size()]));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void beforeConstruct_ShouldNotRemove() {
+		dawg.add("cat");
+		((Dawg) dawg).remove("cat");
+	}
+
+	private static Dawg build(String... words) {
+		Dawg dawg = new Dawg();
+		for (String word : words) {
+			dawg.add(word);
+		}
+		dawg.construct();
+		return dawg;
+	}
+
+	/**
+	 * Check that a graph holds the words, sorted, and is as small as a graph
+	 * built from them at once.
+	 */
+	private static void assertSameAs(Dawg dawg, String... words) {
+		List<String> contents = new ArrayList<String>();
+		collectWords((DawgNode) dawg.getRoot(), new StringBuilder(), contents);
+		assertEquals(Arrays.asList(words), contents);
+
+		Dawg rebuilt = build(words);
+		assertEquals(rebuilt.getSize(), dawg.getSize());
+		assertEquals(words.length, dawg.getWordCount());
+		for (int i = 0; i < words.length; i++) {
+			assertEquals(i, dawg.getWordIndex(words[i].toCharArray(), 0, words[i].length()));
+		}
+	}
+
+	private static void collectWords(DawgNode node, StringBuilder word, List<String> words) {
+		if (node.isFinal())
+			words.add(word.toString());
+		for (int c = 0; c < node.getChildCount(); c++) {
+			word.append(node.getEdge(c));
+			collectWords(node.getChildAt(c), word, words);
+			word.setLength(word.length() - 1);
+		}
+	}
+
 	@Test(expected = Dawg.WordsNotAddedInAlphabeticOrderException.class)
 	public void givenWordsNotInOrder_ShouldThrow() {
 		String product = "product";
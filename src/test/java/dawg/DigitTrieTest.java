@@ -0,0 +1,128 @@
+package dawg;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import image.ImageReader;
+import image.ImageWriter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DigitTrieTest {
+	private Map<Integer, char[]> numberCharacterMapping;
+
+	private DigitTrie trie;
+
+	@Before
+	public void setUp() {
+		numberCharacterMapping = new HashMap<Integer, char[]>();
+
+		numberCharacterMapping.put(0, new char[] { 'e' });
+		numberCharacterMapping.put(1, new char[] { 'j', 'n', 'q' });
+		numberCharacterMapping.put(2, new char[] { 'r', 'w', 'x' });
+		numberCharacterMapping.put(3, new char[] { 'd', 's', 'y' });
+		numberCharacterMapping.put(4, new char[] { 'f', 't' });
+		numberCharacterMapping.put(5, new char[] { 'a', 'm' });
+		numberCharacterMapping.put(6, new char[] { 'c', 'i', 'v' });
+		numberCharacterMapping.put(7, new char[] { 'b', 'k', 'u' });
+		numberCharacterMapping.put(8, new char[] { 'l', 'o', 'p' });
+		numberCharacterMapping.put(9, new char[] { 'g', 'h', 'z' });
+
+		trie = new DigitTrie(numberCharacterMapping);
+	}
+
+	private List<Integer> ranksOf(int... digits) {
+		int node = trie.getRootIndex();
+		for (int digit : digits) {
+			node = trie.getChildIndex(node, digit);
+			if (node == DigitTrie.NONE)
+				return new ArrayList<Integer>();
+		}
+
+		List<Integer> ranks = new ArrayList<Integer>();
+		for (int w = trie.getFirstWord(node); w != DigitTrie.NONE; w = trie.getNextWord(w)) {
+			ranks.add(trie.getWordRank(w));
+		}
+		return ranks;
+	}
+
+	@Test
+	public void givenWordsWithSameDigits_ShouldListBothInSameNode() {
+		trie.add("mir");
+		trie.add("mix");
+
+		// ranked in the order they're added
+		assertEquals(Arrays.asList(0, 1), ranksOf(5, 6, 2));
+		assertEquals(4, trie.getSize());
+	}
+
+	@Test
+	public void givenPrefixDigits_ShouldListNoWord() {
+		trie.add("torf");
+		assertTrue(ranksOf(4, 8).isEmpty());
+		assertEquals(1, ranksOf(4, 8, 2, 4).size());
+	}
+
+	@Test
+	public void givenWordsNotInOrder_ShouldAdd() {
+		trie.add("tor", 3);
+		trie.add("fort", 1);
+		trie.add("an", 0);
+
+		assertEquals(Arrays.asList(3), ranksOf(4, 8, 2));
+		assertEquals(Arrays.asList(1), ranksOf(4, 8, 2, 4));
+		assertEquals(Arrays.asList(0), ranksOf(5, 1));
+		assertEquals(3, trie.getWordCount());
+	}
+
+	@Test
+	public void givenSameWordWithTwoRanks_ShouldListBoth() {
+		// like the spellings "Bo" and "bo\"" of the same word
+		trie.add("bo", 1);
+		trie.add("bo", 0);
+		assertEquals(Arrays.asList(1, 0), ranksOf(7, 8));
+		assertEquals(2, trie.getWordCount());
+	}
+
+	@Test
+	public void givenImage_ShouldReadSameTrie() throws IOException {
+		trie.add("tor");
+		trie.add("fort");
+		trie.add("torf");
+		trie.add("an");
+		trie.add("tor", 7);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ImageWriter image = new ImageWriter(bytes);
+		trie.writeTo(image);
+		image.close();
+		DigitTrie written = trie;
+		trie = DigitTrie.read(new ImageReader(ByteBuffer.wrap(bytes.toByteArray())), numberCharacterMapping);
+
+		assertEquals(written.getSize(), trie.getSize());
+		assertEquals(written.getWordCount(), trie.getWordCount());
+		assertEquals(Arrays.asList(0, 7), ranksOf(4, 8, 2));
+		assertEquals(Arrays.asList(1, 2), ranksOf(4, 8, 2, 4));
+		assertEquals(Arrays.asList(3), ranksOf(5, 1));
+		assertEquals(new ArrayList<Integer>(), ranksOf(4, 8));
+
+		// a trie read from an image can still grow
+		trie.add("mir");
+		assertEquals(Arrays.asList(5), ranksOf(5, 6, 2));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void givenUnmappedCharacter_ShouldThrow() {
+		trie.add("bo\"");
+	}
+}
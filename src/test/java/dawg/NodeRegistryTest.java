@@ -0,0 +1,93 @@
+package dawg;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class NodeRegistryTest {
+	private NodeRegistry registry;
+	private long numberOfNodes;
+
+	@Before
+	public void setUp() {
+		registry = new NodeRegistry();
+		numberOfNodes = 0;
+	}
+
+	private DawgNode newNode(boolean isFinal, char edge, DawgNode child) {
+		DawgNode node = new DawgNode(numberOfNodes++);
+		if (isFinal)
+			node.setFinal();
+		if (child != null)
+			node.addChild(edge, child);
+		return node;
+	}
+
+	@Test
+	public void givenEqualNode_ShouldReturnRegisteredNode() {
+		DawgNode leaf = registry.register(newNode(true, ' ', null));
+		DawgNode node = registry.register(newNode(false, 'e', leaf));
+
+		assertSame(leaf, registry.register(newNode(true, ' ', null)));
+		assertSame(node, registry.register(newNode(false, 'e', leaf)));
+		assertEquals(2, registry.size());
+	}
+
+	@Test
+	public void afterRemove_ShouldFindOtherNodes() {
+		DawgNode leaf = registry.register(newNode(true, ' ', null));
+		List<DawgNode> nodes = new ArrayList<DawgNode>();
+		for (char edge = 'a'; edge <= 'z'; edge++) {
+			nodes.add(registry.register(newNode(false, edge, leaf)));
+		}
+		for (int i = 0; i < nodes.size(); i += 2) {
+			assertTrue(registry.remove(nodes.get(i)));
+			assertFalse(registry.remove(nodes.get(i)));
+		}
+
+		assertEquals(14, registry.size());
+		for (int i = 0; i < nodes.size(); i++) {
+			DawgNode equal = newNode(false, (char) ('a' + i), leaf);
+			if (i % 2 == 0)
+				assertSame(equal, registry.register(equal));
+			else
+				assertSame(nodes.get(i), registry.register(equal));
+		}
+	}
+
+	@Test
+	public void givenDifferentNodes_ShouldRegisterAll() {
+		DawgNode leaf = registry.register(newNode(true, ' ', null));
+		for (char edge = 'a'; edge <= 'z'; edge++) {
+			DawgNode node = newNode(false, edge, leaf);
+			assertSame(node, registry.register(node));
+			DawgNode finalNode = newNode(true, edge, leaf);
+			assertSame(finalNode, registry.register(finalNode));
+		}
+		assertEquals(53, registry.size());
+	}
+
+	@Test
+	public void afterResize_ShouldFindRegisteredNodes() {
+		DawgNode[] nodes = new DawgNode[5000];
+		DawgNode child = registry.register(newNode(true, ' ', null));
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = registry.register(newNode(i % 2 == 0, (char) ('a' + i % 26), child));
+			child = nodes[i];
+		}
+
+		child = nodes[0].getChildAt(0);
+		for (int i = 0; i < nodes.length; i++) {
+			assertSame(nodes[i], registry.register(newNode(i % 2 == 0, (char) ('a' + i % 26), child)));
+			child = nodes[i];
+		}
+		assertEquals(nodes.length + 1, registry.size());
+	}
+}
@@ -0,0 +1,39 @@
+package dawg;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PackedIntsTest {
+
+	@Test
+	public void givenValues_ShouldGetThemBack() {
+		Random random = new Random(3);
+		for (int max : new int[] { 0, 1, 5, 1000, 123456789, Integer.MAX_VALUE }) {
+			int[] values = new int[500];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = max == Integer.MAX_VALUE ? random.nextInt() >>> 1 : random.nextInt(max + 1);
+			}
+			values[values.length / 2] = max;
+
+			PackedInts packed = new PackedInts(values);
+			assertEquals(PackedInts.bitsFor(max), packed.getBitsPerValue());
+			assertEquals(values.length, packed.size());
+			for (int i = 0; i < values.length; i++) {
+				assertEquals(values[i], packed.get(i));
+			}
+		}
+	}
+
+	@Test
+	public void givenMax_ShouldTakeJustEnoughBits() {
+		assertEquals(1, PackedInts.bitsFor(0));
+		assertEquals(1, PackedInts.bitsFor(1));
+		assertEquals(2, PackedInts.bitsFor(2));
+		assertEquals(8, PackedInts.bitsFor(255));
+		assertEquals(9, PackedInts.bitsFor(256));
+		assertEquals(31, PackedInts.bitsFor(Integer.MAX_VALUE));
+	}
+}
@@ -0,0 +1,106 @@
+package dawg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelDawgBuilderTest {
+	private final ForkJoinPool pool = new ForkJoinPool(4);
+	private final ParallelDawgBuilder builder = new ParallelDawgBuilder(pool);
+
+	@After
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	private static Dawg buildSequentially(List<String> words) {
+		Dawg dawg = new Dawg();
+		for (String word : words) {
+			dawg.add(word);
+		}
+		dawg.construct();
+		return dawg;
+	}
+
+	/**
+	 * Check that two graphs have the same nodes, numbered the same way once
+	 * they're compiled.
+	 */
+	private static void assertSameGraph(Dawg expected, Dawg actual, char[] alphabet) {
+		assertEquals(expected.getSize(), actual.getSize());
+		assertEquals(expected.getWordCount(), actual.getWordCount());
+
+		CompiledDawg expectedArrays = CompiledDawg.compile(expected);
+		CompiledDawg actualArrays = CompiledDawg.compile(actual);
+		assertEquals(expectedArrays.getEdgeCount(), actualArrays.getEdgeCount());
+		for (int node = 0; node < expectedArrays.getSize(); node++) {
+			assertEquals(expectedArrays.isFinal(node), actualArrays.isFinal(node));
+			for (char ch : alphabet) {
+				assertEquals(expectedArrays.getChildIndex(node, ch), actualArrays.getChildIndex(node, ch));
+			}
+		}
+	}
+
+	@Test
+	public void givenWords_ShouldBuildSameGraphAsDawg() {
+		List<String> words = Arrays.asList("", "bat", "cat", "catfish", "cats", "dog", "dogs", "fish", "t");
+		assertSameGraph(buildSequentially(words), builder.build(words), "abcdfghiostw".toCharArray());
+	}
+
+	@Test
+	public void givenRandomWords_ShouldBuildSameGraphAsDawg() {
+		Random random = new Random(42);
+		TreeSet<String> words = new TreeSet<String>();
+		for (int i = 0; i < 5000; i++) {
+			StringBuilder word = new StringBuilder();
+			int length = 1 + random.nextInt(8);
+			for (int j = 0; j < length; j++) {
+				word.append((char) ('a' + random.nextInt(4)));
+			}
+			words.add(word.toString());
+		}
+
+		List<String> sorted = new ArrayList<String>(words);
+		Dawg dawg = builder.build(sorted);
+		assertSameGraph(buildSequentially(sorted), dawg, "abcd".toCharArray());
+		for (int i = 0; i < sorted.size(); i++) {
+			String word = sorted.get(i);
+			assertEquals(i, dawg.getWordIndex(word.toCharArray(), 0, word.length()));
+		}
+	}
+
+	@Test
+	public void afterBuild_ShouldUpdateLikeDawg() {
+		Dawg dawg = builder.build(Arrays.asList("bat", "cat", "cats", "dog", "dogs"));
+		assertTrue(dawg.remove("cats"));
+		dawg.add("bats");
+		assertSameGraph(buildSequentially(Arrays.asList("bat", "bats", "cat", "dog", "dogs")), dawg,
+				"abcdgost".toCharArray());
+	}
+
+	@Test
+	public void givenNoWords_ShouldBuildEmptyGraph() {
+		Dawg dawg = builder.build(new ArrayList<String>());
+		assertEquals(1, dawg.getSize());
+		assertEquals(0, dawg.getWordCount());
+	}
+
+	@Test(expected = Dawg.WordsNotAddedInAlphabeticOrderException.class)
+	public void givenShardsNotInOrder_ShouldThrow() {
+		builder.build(Arrays.asList("cat", "bat"));
+	}
+
+	@Test(expected = Dawg.WordsNotAddedInAlphabeticOrderException.class)
+	public void givenWordsOfShardNotInOrder_ShouldThrow() {
+		builder.build(Arrays.asList("cats", "cat"));
+	}
+}
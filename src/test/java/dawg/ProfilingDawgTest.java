@@ -0,0 +1,64 @@
+package dawg;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ProfilingDawgTest {
+	private final String[] words = { "produce", "production", "productive",
+			"seduce", "seduction", "seductive" };
+
+	private CompiledDawg dawg;
+
+	@Before
+	public void setUp() {
+		dawg = new CompiledDawg();
+		for (String word : words) {
+			dawg.add(word);
+		}
+		dawg.construct();
+	}
+
+	@Test
+	public void givenWalks_ShouldCountVisits() {
+		ProfilingDawg profiling = new ProfilingDawg(dawg);
+		IDawgNode node = profiling.getRoot();
+		for (char ch : "seduce".toCharArray()) {
+			node = node.getChild(ch);
+		}
+		assertTrue(node.isFinal());
+		profiling.getRoot().getChild('s');
+		assertNull(profiling.getRoot().getChild('a'));
+		long[] visits = profiling.getVisits();
+
+		assertEquals(dawg.getSize(), visits.length);
+		assertEquals(3, visits[dawg.getRootIndex()]);
+		assertEquals(2, visits[dawg.getChildIndex(dawg.getRootIndex(), 's')]);
+		long total = 0;
+		for (long count : visits) {
+			total += count;
+		}
+		assertEquals(3 + 6 + 1, total);
+	}
+
+	@Test
+	public void givenWords_ShouldFindSameWordsAsGraph() {
+		ProfilingDawg profiling = new ProfilingDawg(dawg);
+		assertEquals(dawg.getSize(), profiling.getSize());
+		assertEquals(dawg.getWordCount(), profiling.getWordCount());
+		for (String word : words) {
+			assertEquals(dawg.getWordIndex(word.toCharArray(), 0, word.length()),
+					profiling.getWordIndex(word.toCharArray(), 0, word.length()));
+		}
+		assertFalse(profiling.getRoot().containsEdge('a'));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void givenGraphNotConstructed_ShouldThrow() {
+		new ProfilingDawg(new CompiledDawg());
+	}
+}
@@ -0,0 +1,128 @@
+package dawg;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SuccinctDawgTest {
+	private final String[] words = { "produce", "production", "productive",
+			"seduce", "seduction", "seductive" };
+
+	private SuccinctDawg dawg;
+
+	@Before
+	public void setUp() {
+		dawg = new SuccinctDawg();
+		for (String word : words) {
+			dawg.add(word);
+		}
+		dawg.construct();
+	}
+
+	@Test
+	public void afterConstruct_ShouldContainWords() {
+		for (String word : words) {
+			IDawgNode node = dawg.getRoot();
+			for (char ch : word.toCharArray()) {
+				assertTrue(node.containsEdge(ch));
+				node = node.getChild(ch);
+			}
+			assertTrue(node.isFinal());
+		}
+	}
+
+	@Test
+	public void afterConstruct_ShouldIndexWordsInOrder() {
+		assertEquals(words.length, dawg.getWordCount());
+		for (int i = 0; i < words.length; i++) {
+			char[] word = ("_" + words[i] + "_").toCharArray();
+			assertEquals(i, dawg.getWordIndex(word, 1, words[i].length()));
+		}
+		assertEquals(IDawg.NO_WORD, dawg.getWordIndex("product".toCharArray(), 0, 7));
+		assertEquals(IDawg.NO_WORD, dawg.getWordIndex("seducer".toCharArray(), 0, 7));
+		assertEquals(IDawg.NO_WORD, dawg.getWordIndex("xyz".toCharArray(), 0, 3));
+	}
+
+	@Test
+	public void givenMissingEdge_ShouldReturnNoNode() {
+		assertEquals(SuccinctDawg.NO_NODE,
+				dawg.getChildIndex(dawg.getRootIndex(), 'a'));
+		assertEquals(SuccinctDawg.NO_NODE,
+				dawg.getChildIndex(dawg.getRootIndex(), 'r'));
+		assertFalse(dawg.getRoot().containsEdge('a'));
+		assertNull(dawg.getRoot().getChild('a'));
+	}
+
+	@Test
+	public void givenSameIndex_ShouldEqual() {
+		assertEquals(dawg.getRoot(), dawg.getRoot());
+		assertEquals(dawg.getRoot().getChild('p'), dawg.getRoot().getChild('p'));
+	}
+
+	@Test
+	public void givenRandomWords_ShouldEncodeSameGraphAsCompiledDawg() {
+		Random random = new Random(11);
+		TreeSet<String> lexicon = new TreeSet<String>();
+		for (int i = 0; i < 20000; i++) {
+			StringBuilder word = new StringBuilder();
+			int length = 1 + random.nextInt(10);
+			for (int j = 0; j < length; j++) {
+				word.append((char) ('a' + random.nextInt(6)));
+			}
+			lexicon.add(word.toString());
+		}
+		lexicon.add("");
+
+		Dawg minimized = new Dawg();
+		for (String word : lexicon) {
+			minimized.add(word);
+		}
+		minimized.construct();
+		CompiledDawg compiled = CompiledDawg.compile(minimized);
+		SuccinctDawg succinct = SuccinctDawg.compile(minimized);
+
+		assertEquals(compiled.getSize(), succinct.getSize());
+		assertEquals(compiled.getEdgeCount(), succinct.getEdgeCount());
+		assertEquals(compiled.getWordCount(), succinct.getWordCount());
+		for (int node = 0; node < compiled.getSize(); node++) {
+			assertEquals(compiled.isFinal(node), succinct.isFinal(node));
+			for (char ch = 'a'; ch <= 'g'; ch++) {
+				assertEquals(compiled.getChildIndex(node, ch), succinct.getChildIndex(node, ch));
+			}
+		}
+		List<String> sorted = new ArrayList<String>(lexicon);
+		for (int i = 0; i < sorted.size(); i++) {
+			char[] word = sorted.get(i).toCharArray();
+			assertEquals(i, succinct.getWordIndex(word, 0, word.length));
+		}
+		assertTrue(succinct.getByteSize() < compiled.getByteSize());
+	}
+
+	@Test
+	public void givenNoWords_ShouldHaveOnlyRoot() {
+		SuccinctDawg empty = new SuccinctDawg();
+		empty.construct();
+		assertEquals(1, empty.getSize());
+		assertEquals(0, empty.getWordCount());
+		assertEquals(SuccinctDawg.NO_NODE, empty.getChildIndex(empty.getRootIndex(), 'a'));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void afterConstruct_ShouldNotAdd() {
+		dawg.add("sedutive");
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void beforeConstruct_ShouldNotGetRoot() {
+		new SuccinctDawg().getRoot();
+	}
+}
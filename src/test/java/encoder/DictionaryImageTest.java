@@ -0,0 +1,115 @@
+package encoder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import visitors.DawgVisitor;
+import visitors.MemoizedDigitTrieVisitor;
+import dawg.CompiledDawg;
+import dawg.Dawg;
+import dawg.DigitTrie;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DictionaryImageTest {
+	private final String[] numbers = { "112", "5624-82", "4824",
+			"0721/608-4067", "10/783--5", "1078-913-5", "381482", "04824", "" };
+	private final String[] dictionaries = new String[] { "an", "blau", "Bo\"",
+			"Boot", "bo\"s", "da", "Fee", "fern", "Fest", "fort", "je",
+			"jemand", "mir", "Mix", "Mixer", "Name", "neu", "o\"d", "Ort",
+			"so", "Tor", "Torf", "Wasser" };
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Map<Integer, char[]> numberCharacterMapping;
+	private NumberEncoder encoder;
+	private File image;
+
+	@Before
+	public void setUp() throws IOException {
+		numberCharacterMapping = new HashMap<Integer, char[]>();
+
+		numberCharacterMapping.put(0, new char[] { 'e' });
+		numberCharacterMapping.put(1, new char[] { 'j', 'n', 'q' });
+		numberCharacterMapping.put(2, new char[] { 'r', 'w', 'x' });
+		numberCharacterMapping.put(3, new char[] { 'd', 's', 'y' });
+		numberCharacterMapping.put(4, new char[] { 'f', 't' });
+		numberCharacterMapping.put(5, new char[] { 'a', 'm' });
+		numberCharacterMapping.put(6, new char[] { 'c', 'i', 'v' });
+		numberCharacterMapping.put(7, new char[] { 'b', 'k', 'u' });
+		numberCharacterMapping.put(8, new char[] { 'l', 'o', 'p' });
+		numberCharacterMapping.put(9, new char[] { 'g', 'h', 'z' });
+
+		DigitTrie trie = new DigitTrie(numberCharacterMapping);
+		encoder = new NumberEncoder(numberCharacterMapping, new CompiledDawg(), trie,
+				new MemoizedDigitTrieVisitor(trie));
+		for (String word : dictionaries) {
+			encoder.addWord(word);
+		}
+		encoder.prepare();
+
+		image = new File(folder.getRoot(), "dictionary.img");
+		DictionaryImage.write(encoder, image.getPath());
+	}
+
+	@Test
+	public void givenImage_ShouldEncodeLikeEncoder() throws IOException {
+		NumberEncoder loaded = DictionaryImage.load(image.getPath());
+		for (String number : numbers) {
+			assertArrayEquals(encoder.encode(number), loaded.encode(number));
+		}
+	}
+
+	@Test
+	public void givenExistingImage_ShouldReplace() throws IOException {
+		DictionaryImage.write(encoder, image.getPath());
+		NumberEncoder loaded = DictionaryImage.load(image.getPath());
+		assertArrayEquals(encoder.encode("4824"), loaded.encode("4824"));
+		assertFalse(new File(image.getPath() + ".tmp").exists());
+	}
+
+	@Test
+	public void givenImageOrText_ShouldTellApart() throws IOException {
+		File text = folder.newFile("dictionary.txt");
+		FileWriter out = new FileWriter(text);
+		out.write("an\nblau\n");
+		out.close();
+
+		assertTrue(DictionaryImage.isImage(image.getPath()));
+		assertFalse(DictionaryImage.isImage(text.getPath()));
+		assertFalse(DictionaryImage.isImage(folder.newFile("empty.txt").getPath()));
+	}
+
+	@Test(expected = IOException.class)
+	public void givenTextFile_ShouldNotLoad() throws IOException {
+		File text = folder.newFile("dictionary.txt");
+		FileWriter out = new FileWriter(text);
+		out.write("an\nblau\n");
+		out.close();
+
+		DictionaryImage.load(text.getPath());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void givenLoadedEncoder_ShouldNotAddWord() throws IOException {
+		DictionaryImage.load(image.getPath()).addWord("Tor");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void givenEncoderWithoutDigitTrie_ShouldNotWrite() throws IOException {
+		Dawg dawg = new Dawg();
+		NumberEncoder other = new NumberEncoder(numberCharacterMapping, dawg, new DawgVisitor(dawg));
+		DictionaryImage.write(other, image.getPath());
+	}
+}
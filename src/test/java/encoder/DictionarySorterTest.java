@@ -0,0 +1,133 @@
+package encoder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import visitors.MemoizedDigitTrieVisitor;
+import dawg.Dawg;
+import dawg.DigitTrie;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DictionarySorterTest {
+	private final String[] numbers = { "112", "5624-82", "4824",
+			"0721/608-4067", "10/783--5", "1078-913-5", "381482", "04824" };
+	private final String[] dictionaries = new String[] { "an", "blau", "Bo\"",
+			"Boot", "bo\"s", "da", "Fee", "fern", "Fest", "fort", "je",
+			"jemand", "mir", "Mix", "Mixer", "Name", "neu", "o\"d", "Ort",
+			"so", "Tor", "Torf", "Wasser", "to-r" };
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Map<Integer, char[]> numberCharacterMapping;
+
+	@Before
+	public void setUp() {
+		numberCharacterMapping = new HashMap<Integer, char[]>();
+
+		numberCharacterMapping.put(0, new char[] { 'e' });
+		numberCharacterMapping.put(1, new char[] { 'j', 'n', 'q' });
+		numberCharacterMapping.put(2, new char[] { 'r', 'w', 'x' });
+		numberCharacterMapping.put(3, new char[] { 'd', 's', 'y' });
+		numberCharacterMapping.put(4, new char[] { 'f', 't' });
+		numberCharacterMapping.put(5, new char[] { 'a', 'm' });
+		numberCharacterMapping.put(6, new char[] { 'c', 'i', 'v' });
+		numberCharacterMapping.put(7, new char[] { 'b', 'k', 'u' });
+		numberCharacterMapping.put(8, new char[] { 'l', 'o', 'p' });
+		numberCharacterMapping.put(9, new char[] { 'g', 'h', 'z' });
+	}
+
+	private NumberEncoder newEncoder() {
+		DigitTrie trie = new DigitTrie(numberCharacterMapping);
+		return new NumberEncoder(numberCharacterMapping, new Dawg(), trie, new MemoizedDigitTrieVisitor(trie));
+	}
+
+	/**
+	 * @return the words shuffled, every word three times
+	 */
+	private List<String> unsortedWords() {
+		List<String> words = new ArrayList<String>();
+		for (int i = 0; i < 3; i++) {
+			words.addAll(Arrays.asList(dictionaries));
+		}
+		Collections.shuffle(words, new Random(3));
+		return words;
+	}
+
+	private NumberEncoder sortedEncoder() {
+		List<String> words = new ArrayList<String>(Arrays.asList(dictionaries));
+		Collections.sort(words, new Comparator<String>() {
+			public int compare(String word1, String word2) {
+				int order = NumberEncoder.formatWord(word1).compareTo(NumberEncoder.formatWord(word2));
+				return order != 0 ? order : word1.compareTo(word2);
+			}
+		});
+		NumberEncoder encoder = newEncoder();
+		for (String word : words) {
+			encoder.addWord(word);
+		}
+		encoder.prepare();
+		return encoder;
+	}
+
+	private void givenChunkSize_ShouldEncodeLikeSorted(long chunkSize, int maxMergedRuns, boolean spills)
+			throws IOException {
+		NumberEncoder encoder = newEncoder();
+		DictionarySorter sorter = new DictionarySorter(chunkSize, folder.getRoot().toPath(), maxMergedRuns);
+		try {
+			for (String word : unsortedWords()) {
+				sorter.add(word);
+			}
+			assertEquals(dictionaries.length, sorter.sortTo(encoder));
+			assertEquals(spills, sorter.getRunCount() > 0);
+			assertTrue(sorter.getRunCount() <= maxMergedRuns);
+		} finally {
+			sorter.close();
+		}
+		encoder.prepare();
+		assertEquals(0, folder.getRoot().list().length);
+
+		NumberEncoder sorted = sortedEncoder();
+		for (String number : numbers) {
+			assertArrayEquals(number, sorted.encode(number), encoder.encode(number));
+		}
+		assertArrayEquals(new String[] { "Tor 4", "Torf", "fort", "to-r 4" }, encoder.encode("4824"));
+	}
+
+	@Test
+	public void givenUnsortedWords_ShouldSortInMemory() throws IOException {
+		givenChunkSize_ShouldEncodeLikeSorted(DictionarySorter.DEFAULT_CHUNK_SIZE,
+				DictionarySorter.DEFAULT_MAX_MERGED_RUNS, false);
+	}
+
+	@Test
+	public void givenSmallChunks_ShouldMergeRuns() throws IOException {
+		givenChunkSize_ShouldEncodeLikeSorted(1000, DictionarySorter.DEFAULT_MAX_MERGED_RUNS, true);
+	}
+
+	@Test
+	public void givenMoreRunsThanMerged_ShouldMergeInPasses() throws IOException {
+		// a run per word, merged three at a time
+		givenChunkSize_ShouldEncodeLikeSorted(1, 3, true);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void givenNoChunkSize_ShouldThrow() {
+		new DictionarySorter(0, folder.getRoot().toPath());
+	}
+}
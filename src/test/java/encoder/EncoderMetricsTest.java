@@ -0,0 +1,126 @@
+package encoder;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import visitors.MemoizedDigitTrieVisitor;
+import dawg.CompiledDawg;
+import dawg.DigitTrie;
+
+public class EncoderMetricsTest {
+	private final String[] dictionaries = new String[] { "an", "blau", "Bo\"",
+			"Boot", "bo\"s", "da", "Fee", "fern", "Fest", "fort", "je",
+			"jemand", "mir", "Mix", "Mixer", "Name", "neu", "o\"d", "Ort",
+			"so", "Tor", "Torf", "Wasser" };
+	private NumberEncoder encoder;
+
+	@Before
+	public void setUp() {
+		Assume.assumeTrue(EncoderMetrics.ENABLED);
+
+		Map<Integer, char[]> numberCharacterMapping = new HashMap<Integer, char[]>();
+		numberCharacterMapping.put(0, new char[] { 'e' });
+		numberCharacterMapping.put(1, new char[] { 'j', 'n', 'q' });
+		numberCharacterMapping.put(2, new char[] { 'r', 'w', 'x' });
+		numberCharacterMapping.put(3, new char[] { 'd', 's', 'y' });
+		numberCharacterMapping.put(4, new char[] { 'f', 't' });
+		numberCharacterMapping.put(5, new char[] { 'a', 'm' });
+		numberCharacterMapping.put(6, new char[] { 'c', 'i', 'v' });
+		numberCharacterMapping.put(7, new char[] { 'b', 'k', 'u' });
+		numberCharacterMapping.put(8, new char[] { 'l', 'o', 'p' });
+		numberCharacterMapping.put(9, new char[] { 'g', 'h', 'z' });
+
+		DigitTrie trie = new DigitTrie(numberCharacterMapping);
+		encoder = new NumberEncoder(numberCharacterMapping, new CompiledDawg(), trie,
+				new MemoizedDigitTrieVisitor(trie));
+		for (String word : dictionaries) {
+			encoder.addWord(word);
+		}
+		encoder.prepare();
+	}
+
+	@Test
+	public void givenEncodes_ShouldAddUpMetrics() {
+		encoder.encode("04824");
+		encoder.encode("112", new EncodingSink() {
+			public boolean accept(CharSequence encoding) {
+				return true;
+			}
+		});
+
+		EncoderMetrics metrics = encoder.getMetrics();
+		Assert.assertEquals(2, metrics.getEncodes());
+		Assert.assertEquals(3, metrics.getEncodings());
+		Assert.assertTrue(metrics.getNodesVisited() > 0);
+		Assert.assertTrue(metrics.getDigitFallbacks() > 0);
+		Assert.assertEquals(2, metrics.getLatencies().getCount());
+		Assert.assertTrue(metrics.getLatencyP50Nanos() <= metrics.getLatencyP99Nanos());
+	}
+
+	@Test
+	public void givenDictionary_ShouldMeasureFootprint() {
+		EncoderMetrics metrics = encoder.getMetrics();
+		Assert.assertEquals(encoder.getDawg().getSize(), metrics.getDawgNodes());
+		Assert.assertEquals(((CompiledDawg) encoder.getDawg()).getEdgeCount(), metrics.getDawgEdges());
+		Assert.assertTrue(metrics.getTrieNodes() > metrics.getDawgNodes());
+		Assert.assertTrue(metrics.getSuffixSharingRatio() > 0);
+		Assert.assertTrue(metrics.getDawgBytes() > 0);
+		Assert.assertTrue(metrics.getDigitTrieBytes() > 0);
+		Assert.assertTrue(metrics.getDictionaryBytes() > 0);
+	}
+
+	@Test
+	public void afterRegister_ShouldPublishThroughJmx() throws JMException {
+		encoder.encode("5624-82");
+		encoder.getMetrics().register();
+		// registering again replaces the published metrics
+		encoder.getMetrics().register();
+
+		Object encodes = ManagementFactory.getPlatformMBeanServer().getAttribute(
+				new ObjectName(EncoderMetrics.OBJECT_NAME), "Encodes");
+		Assert.assertEquals(1L, encodes);
+	}
+
+	@Test
+	public void givenRecording_ShouldRecordEncodeEvents() throws IOException {
+		File file = File.createTempFile("encode", ".jfr");
+		try {
+			Recording recording = new Recording();
+			recording.enable("encoder.Encode");
+			recording.start();
+			encoder.encode("10/783--5");
+			recording.stop();
+			recording.dump(file.toPath());
+			recording.close();
+
+			List<RecordedEvent> events = new ArrayList<RecordedEvent>();
+			for (RecordedEvent event : RecordingFile.readAllEvents(file.toPath())) {
+				if (event.getEventType().getName().equals("encoder.Encode"))
+					events.add(event);
+			}
+			Assert.assertEquals(1, events.size());
+			Assert.assertEquals("10/783--5", events.get(0).getString("phoneNumber"));
+			Assert.assertEquals(3, events.get(0).getInt("encodings"));
+			Assert.assertTrue(events.get(0).getLong("nodesVisited") > 0);
+		} finally {
+			file.delete();
+		}
+	}
+}
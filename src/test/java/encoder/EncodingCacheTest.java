@@ -0,0 +1,116 @@
+package encoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import visitors.DigitKey;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EncodingCacheTest {
+
+	private static DigitKey keyOf(String digits) {
+		int[] values = new int[digits.length()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = digits.charAt(i) - '0';
+		}
+		DigitKey key = new DigitKey();
+		assertTrue(key.set(values, values.length));
+		return key;
+	}
+
+	@Test
+	public void afterPut_ShouldGetCopyAndCount() {
+		EncodingCache cache = new EncodingCache(4);
+		String[] encodings = { "Tor 4", "Torf", "fort" };
+
+		assertNull(cache.get(keyOf("4824")));
+		assertTrue(cache.put(keyOf("4824"), encodings));
+		encodings[0] = "modified";
+
+		assertArrayEquals(new String[] { "Tor 4", "Torf", "fort" }, cache.get(keyOf("4824")));
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void givenFullCache_ShouldEvictOnlyForMoreFrequentNumber() {
+		EncodingCache cache = new EncodingCache(1);
+		cache.get(keyOf("1"));
+		assertTrue(cache.put(keyOf("1"), new String[0]));
+
+		// looked up as often as the cached number
+		cache.get(keyOf("2"));
+		assertFalse(cache.put(keyOf("2"), new String[0]));
+		assertEquals(0, cache.getEvictions());
+
+		cache.get(keyOf("2"));
+		assertTrue(cache.put(keyOf("2"), new String[0]));
+		assertEquals(1, cache.getEvictions());
+		assertEquals(1, cache.size());
+		assertNull(cache.get(keyOf("1")));
+	}
+
+	@Test
+	public void givenManyNumbers_ShouldNotExceedCapacity() {
+		EncodingCache cache = new EncodingCache(100);
+		for (int round = 0; round < 3; round++) {
+			for (int i = 0; i < 1000; i++) {
+				DigitKey key = keyOf(String.valueOf(i));
+				if (cache.get(key) == null)
+					cache.put(key, new String[0]);
+			}
+		}
+		assertTrue(cache.size() <= 100);
+		assertEquals(3000, cache.getHits() + cache.getMisses());
+	}
+
+	@Test
+	public void givenConcurrentAccess_ShouldKeepCountsAndEntries() throws Exception {
+		final EncodingCache cache = new EncodingCache(64);
+		ExecutorService threads = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+			for (int t = 0; t < 4; t++) {
+				results.add(threads.submit(new Callable<Boolean>() {
+					public Boolean call() {
+						for (int i = 0; i < 10000; i++) {
+							String digits = String.valueOf(i % 200);
+							DigitKey key = keyOf(digits);
+							String[] encodings = cache.get(key);
+							if (encodings == null)
+								cache.put(key, new String[] { digits });
+							else if (!encodings[0].equals(digits))
+								return false;
+						}
+						return true;
+					}
+				}));
+			}
+			for (Future<Boolean> result : results) {
+				assertTrue(result.get());
+			}
+		} finally {
+			threads.shutdown();
+		}
+		assertEquals(40000, cache.getHits() + cache.getMisses());
+		assertTrue(cache.size() <= 64);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void givenZeroCapacity_ShouldThrow() {
+		new EncodingCache(0);
+	}
+}
@@ -0,0 +1,71 @@
+package encoder;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FrequencySketchTest {
+
+	@Test
+	public void afterIncrements_ShouldEstimateAtLeastCount() {
+		FrequencySketch sketch = new FrequencySketch(512);
+		for (int i = 0; i < 5; i++) {
+			sketch.increment(42);
+		}
+		sketch.increment(43);
+
+		assertTrue(sketch.frequency(42) >= 5);
+		assertTrue(sketch.frequency(43) >= 1);
+		assertTrue(sketch.frequency(42) > sketch.frequency(43));
+	}
+
+	@Test
+	public void givenManyIncrements_ShouldStopAtMaximum() {
+		FrequencySketch sketch = new FrequencySketch(64);
+		for (int i = 0; i < 100; i++) {
+			sketch.increment(7);
+		}
+		assertEquals(15, sketch.frequency(7));
+	}
+
+	@Test
+	public void afterSampleSize_ShouldHalveCounts() {
+		FrequencySketch sketch = new FrequencySketch(64);
+		for (int i = 0; i < 8; i++) {
+			sketch.increment(7);
+		}
+		int before = sketch.frequency(7);
+
+		// 10 increments per counter long of a 64 key sketch
+		for (int i = 0; i < 10 * 64; i++) {
+			sketch.increment(1000 + i);
+		}
+		assertTrue(sketch.frequency(7) < before);
+	}
+
+	@Test
+	public void givenConcurrentIncrements_ShouldNotOverflowIntoOtherCounters() throws InterruptedException {
+		// large enough not to be halved during the test
+		final FrequencySketch sketch = new FrequencySketch(1 << 16);
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread() {
+				public void run() {
+					for (int i = 0; i < 100000; i++) {
+						sketch.increment(7);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(15, sketch.frequency(7));
+		for (int hash = 8; hash < 1000; hash++) {
+			assertEquals(0, sketch.frequency(hash));
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package encoder;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void givenLatencies_ShouldBoundPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		Assert.assertEquals(0, histogram.getPercentile(50));
+
+		for (int i = 0; i < 98; i++) {
+			histogram.record(1000);
+		}
+		histogram.record(50000);
+		histogram.record(1000000);
+
+		Assert.assertEquals(100, histogram.getCount());
+		Assert.assertEquals(1023, histogram.getPercentile(50));
+		Assert.assertEquals(65535, histogram.getPercentile(99));
+		Assert.assertEquals(1000000, histogram.getPercentile(100));
+		Assert.assertEquals(1000000, histogram.getMax());
+	}
+
+	@Test
+	public void givenZeroOrNegativeLatency_ShouldCountAsZero() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(0);
+		histogram.record(-5);
+		Assert.assertEquals(2, histogram.getCount());
+		Assert.assertEquals(0, histogram.getPercentile(99));
+	}
+}
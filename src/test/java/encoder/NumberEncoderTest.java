@@ -1,19 +1,37 @@
 package encoder;
 
+import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
 import visitors.DawgVisitor;
+import visitors.DigitTrieVisitor;
+import visitors.EncodingPath;
+import visitors.MemoizedDigitTrieVisitor;
+import visitors.PathListener;
+import visitors.SuffixCache;
+import dawg.CompiledDawg;
 import dawg.Dawg;
+import dawg.DigitTrie;
+import dawg.ProfilingDawg;
 
 public class NumberEncoderTest {
+	private final String[] numbers = { "112", "5624-82", "4824",
+			"0721/608-4067", "10/783--5", "1078-913-5", "381482", "04824" };
+	private Map<Integer, char[]> numberCharacterMapping;
 	private NumberEncoder encoder;
 	private final String[] dictionaries = new String[] { "an", "blau", "Bo\"",
 			"Boot", "bo\"s", "da", "Fee", "fern", "Fest", "fort", "je",
@@ -22,7 +40,7 @@ public class NumberEncoderTest {
 
 	@Before
 	public void setUp() {
-		Map<Integer, char[]> numberCharacterMapping = new HashMap<Integer, char[]>();
+		numberCharacterMapping = new HashMap<Integer, char[]>();
 
 		numberCharacterMapping.put(0, new char[] { 'e' });
 		numberCharacterMapping.put(1, new char[] { 'j', 'n', 'q' });
@@ -42,14 +60,445 @@ public class NumberEncoderTest {
 
 	@Test
 	public void givenNumbers_ShouldEncode() {
-		String[] numbers = { "112", "5624-82", "4824", "0721/608-4067",
-				"10/783--5", "1078-913-5", "381482", "04824" };
+		givenNumbers_ShouldEncode(encoder);
+	}
+
+	@Test
+	public void givenNumbersAndDigitTrie_ShouldEncode() {
+		DigitTrie trie = new DigitTrie(numberCharacterMapping);
+		givenNumbers_ShouldEncode(new NumberEncoder(numberCharacterMapping,
+				new Dawg(), trie, new DigitTrieVisitor(trie)));
+	}
 
+	@Test
+	public void afterReorderByProfile_ShouldEncodeLikeBefore() {
+		CompiledDawg dawg = new CompiledDawg();
+		NumberEncoder encoder = new NumberEncoder(numberCharacterMapping, dawg, new DawgVisitor(dawg));
+		givenNumbers_ShouldEncode(encoder);
+
+		// the encodings and their word indices don't depend on the layout
+		ProfilingDawg profiling = new ProfilingDawg(dawg);
+		DawgVisitor visitor = new DawgVisitor(profiling);
+		for (String number : numbers) {
+			int[] digits = new int[number.length()];
+			int length = 0;
+			for (char ch : number.toCharArray()) {
+				if (Character.isDigit(ch))
+					digits[length++] = ch - '0';
+			}
+			visitor.visit(digits, length, encoder.getDigitToCharacters(), new PathListener() {
+				public boolean onPath(EncodingPath path) {
+					return true;
+				}
+			});
+		}
+		dawg.reorder(profiling.getVisits());
+		List<String[]> words = expectedWords();
+		for (int i = 0; i < numbers.length; i++) {
+			Assert.assertArrayEquals(words.get(i), encoder.encode(numbers[i]));
+		}
+	}
+
+	@Test
+	public void givenConcurrentEncodes_ShouldEncodeLikeSingleThread() throws Exception {
 		for (String word : dictionaries) {
 			encoder.addWord(word);
 		}
 		encoder.prepare();
 
+		final List<String[]> words = expectedWords();
+		ExecutorService threads = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+			for (int t = 0; t < 16; t++) {
+				results.add(threads.submit(new Callable<Boolean>() {
+					public Boolean call() {
+						for (int round = 0; round < 500; round++) {
+							for (int i = 0; i < numbers.length; i++) {
+								if (!Arrays.equals(words.get(i), encoder.encode(numbers[i])))
+									return false;
+							}
+						}
+						return true;
+					}
+				}));
+			}
+			for (Future<Boolean> result : results) {
+				Assert.assertTrue(result.get());
+			}
+		} finally {
+			threads.shutdown();
+		}
+	}
+
+	@Test
+	public void givenCache_ShouldEncodeSameDigitsOnce() {
+		EncodingCache cache = new EncodingCache(16);
+		encoder.setCache(cache);
+		givenNumbers_ShouldEncode(encoder);
+
+		String[] first = encoder.encode("10/783--5");
+		String[] second = encoder.encode("1078-35");
+		Assert.assertArrayEquals(first, second);
+		Assert.assertNotSame(first, second);
+		Assert.assertTrue(cache.getHits() > 0);
+	}
+
+	@Test
+	public void givenBatch_ShouldEncodeLikeEachNumber() {
+		DigitTrie trie = new DigitTrie(numberCharacterMapping);
+		NumberEncoder trieEncoder = new NumberEncoder(numberCharacterMapping, new Dawg(), trie,
+				new MemoizedDigitTrieVisitor(trie));
+		for (NumberEncoder encoder : new NumberEncoder[] { this.encoder, trieEncoder }) {
+			for (String word : dictionaries) {
+				encoder.addWord(word);
+			}
+			encoder.prepare();
+
+			// more than a batch of numbers sharing their first digits
+			Random random = new Random(5);
+			List<String> phoneNumbers = new ArrayList<String>(Arrays.asList(numbers));
+			for (int i = 0; i < 2 * NumberEncoder.BATCH_SIZE; i++) {
+				StringBuilder number = new StringBuilder(numbers[random.nextInt(numbers.length)]);
+				for (int d = random.nextInt(6); d > 0; d--) {
+					number.append(random.nextInt(10));
+				}
+				phoneNumbers.add(number.toString());
+			}
+
+			List<String[]> words = encoder.encodeAll(phoneNumbers);
+			Assert.assertEquals(phoneNumbers.size(), words.size());
+			for (int i = 0; i < phoneNumbers.size(); i++) {
+				Assert.assertArrayEquals(encoder.encode(phoneNumbers.get(i)), words.get(i));
+			}
+
+			encoder.setCache(new EncodingCache(64));
+			encoder.encodeAll(phoneNumbers);
+			Assert.assertTrue(encoder.getCache().size() > 0);
+			List<String[]> cachedWords = encoder.encodeAll(phoneNumbers);
+			for (int i = 0; i < phoneNumbers.size(); i++) {
+				Assert.assertArrayEquals(words.get(i), cachedWords.get(i));
+			}
+		}
+	}
+
+	@Test
+	public void givenSuffixCache_ShouldEncodeLikeWithout() {
+		for (String word : dictionaries) {
+			encoder.addWord(word);
+		}
+		encoder.prepare();
+
+		// numbers ending with the same digits, and a cache too small for all
+		Random random = new Random(9);
+		List<String> phoneNumbers = new ArrayList<String>();
+		for (int i = 0; i < 500; i++) {
+			StringBuilder number = new StringBuilder();
+			for (int d = random.nextInt(5); d > 0; d--) {
+				number.append(random.nextInt(10));
+			}
+			phoneNumbers.add(number.append(numbers[random.nextInt(numbers.length)]).toString());
+		}
+		for (long weight : new long[] { 1 << 20, 2048 }) {
+			Dawg dawg = new Dawg();
+			SuffixCache suffixes = new SuffixCache(weight);
+			NumberEncoder cached = new NumberEncoder(numberCharacterMapping, dawg, new DawgVisitor(dawg, suffixes));
+			for (String word : dictionaries) {
+				cached.addWord(word);
+			}
+			cached.prepare();
+
+			for (String number : phoneNumbers) {
+				// a stopped encoding mustn't leave a part of the encodings
+				cached.encode(number, 1, new EncodingSink() {
+					public boolean accept(CharSequence encoding) {
+						return true;
+					}
+				});
+				Assert.assertArrayEquals(number, encoder.encode(number), cached.encode(number));
+			}
+			Assert.assertTrue(suffixes.getHits() > 0);
+			Assert.assertTrue(suffixes.getWeight() <= weight);
+		}
+	}
+
+	@Test
+	public void givenSink_ShouldStreamSameEncodings() {
+		givenNumbers_ShouldEncode(encoder);
+
+		for (String number : numbers) {
+			final List<String> streamed = new ArrayList<String>();
+			int count = encoder.encode(number, new EncodingSink() {
+				public boolean accept(CharSequence encoding) {
+					streamed.add(encoding.toString());
+					return true;
+				}
+			});
+
+			String[] sorted = streamed.toArray(new String[streamed.size()]);
+			Arrays.sort(sorted);
+			Assert.assertEquals(streamed.size(), count);
+			Assert.assertArrayEquals(encoder.encode(number), sorted);
+		}
+	}
+
+	@Test
+	public void givenOrderedVisitor_ShouldStreamInOrder() {
+		DigitTrie trie = new DigitTrie(numberCharacterMapping);
+		NumberEncoder encoder = new NumberEncoder(numberCharacterMapping,
+				new Dawg(), trie, new MemoizedDigitTrieVisitor(trie));
+		givenNumbers_ShouldEncode(encoder);
+
+		for (String number : numbers) {
+			final List<String> streamed = new ArrayList<String>();
+			encoder.encode(number, new EncodingSink() {
+				public boolean accept(CharSequence encoding) {
+					streamed.add(encoding.toString());
+					return true;
+				}
+			});
+			Assert.assertArrayEquals(encoder.encode(number),
+					streamed.toArray(new String[streamed.size()]));
+		}
+	}
+
+	@Test
+	public void givenSinkAndCache_ShouldCacheStreamedEncodings() {
+		givenNumbers_ShouldEncode(encoder);
+		EncodingCache cache = new EncodingCache(16);
+		encoder.setCache(cache);
+
+		final List<String> streamed = new ArrayList<String>();
+		EncodingSink sink = new EncodingSink() {
+			public boolean accept(CharSequence encoding) {
+				streamed.add(encoding.toString());
+				return true;
+			}
+		};
+		// stopped by the limit, so not cached
+		encoder.encode("1078-35", 1, sink);
+		Assert.assertEquals(0, cache.getHits());
+		encoder.encode("1078-35", sink);
+		Assert.assertEquals(0, cache.getHits());
+
+		String[] words = encoder.encode("10/783--5");
+		Assert.assertEquals(1, cache.getHits());
+		Assert.assertArrayEquals(expectedWords().get(4), words);
+	}
+
+	@Test
+	public void givenSpellingsOfSameWord_ShouldEncodeWithEach() {
+		DigitTrie trie = new DigitTrie(numberCharacterMapping);
+		NumberEncoder[] encoders = {
+				encoder,
+				new NumberEncoder(numberCharacterMapping, new Dawg(), trie,
+						new MemoizedDigitTrieVisitor(trie)) };
+		for (NumberEncoder encoder : encoders) {
+			encoder.addWord("Bo\"");
+			encoder.addWord("bo\"");
+			encoder.addWord("da");
+			encoder.addWord("fort");
+			encoder.addWord("Tor");
+			encoder.addWord("to-r");
+			encoder.prepare();
+
+			Assert.assertArrayEquals(new String[] { "Bo\" Tor da", "Bo\" to-r da",
+					"bo\" Tor da", "bo\" to-r da" }, encoder.encode("78-482-35"));
+			Assert.assertArrayEquals(new String[] { "Tor 4", "fort", "to-r 4" },
+					encoder.encode("4824"));
+		}
+	}
+
+	@Test
+	public void givenNumbers_ShouldCountLikeEncode() {
+		DigitTrie trie = new DigitTrie(numberCharacterMapping);
+		NumberEncoder[] encoders = {
+				encoder,
+				new NumberEncoder(numberCharacterMapping, new Dawg(), trie,
+						new MemoizedDigitTrieVisitor(trie)) };
+		for (NumberEncoder encoder : encoders) {
+			for (String word : dictionaries) {
+				encoder.addWord(word);
+				// more spellings of a word
+				if (word.equals("Mix") || word.equals("Tor"))
+					encoder.addWord(word.charAt(0) + "-" + word.substring(1).toLowerCase());
+			}
+			encoder.prepare();
+
+			Random random = new Random(11);
+			List<String> phoneNumbers = new ArrayList<String>(Arrays.asList(numbers));
+			phoneNumbers.add("");
+			for (int i = 0; i < 500; i++) {
+				StringBuilder number = new StringBuilder();
+				for (int d = random.nextInt(4); d >= 0; d--) {
+					number.append(numbers[random.nextInt(numbers.length)]);
+				}
+				phoneNumbers.add(number.toString());
+			}
+			for (String number : phoneNumbers) {
+				int count = encoder.encode(number).length;
+				Assert.assertEquals(number, BigInteger.valueOf(count), encoder.countEncodings(number));
+				Assert.assertEquals(number, count > 0, encoder.hasEncoding(number));
+			}
+		}
+	}
+
+	@Test
+	public void givenManyEncodings_ShouldCountWithoutListing() {
+		encoder.addWord("e");
+		encoder.addWord("ee");
+		encoder.addWord("E-e");
+		encoder.prepare();
+
+		// every way to split the zeros into one or two, with two spellings of
+		// every two: the counts grow like 2^n and soon outgrow a long
+		BigInteger previous = BigInteger.ONE;
+		BigInteger count = BigInteger.ONE;
+		for (int length = 2; length <= 200; length++) {
+			BigInteger next = count.add(previous.shiftLeft(1));
+			previous = count;
+			count = next;
+		}
+		char[] zeros = new char[200];
+		Arrays.fill(zeros, '0');
+		Assert.assertEquals(count, encoder.countEncodings(new String(zeros)));
+		Assert.assertTrue(count.bitLength() > 63);
+		Assert.assertTrue(encoder.hasEncoding(new String(zeros)));
+		Assert.assertFalse(encoder.hasEncoding("11"));
+		Assert.assertEquals(BigInteger.ONE, encoder.countEncodings("010"));
+	}
+
+	@Test
+	public void givenWordAfterPrepare_ShouldThrowAndKeepWords() {
+		encoder.addWord("an");
+		encoder.addWord("bo");
+		encoder.prepare();
+
+		// "am" would go before "bo" in the graph but after it in the dictionary
+		try {
+			encoder.addWord("am");
+			Assert.fail();
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		Assert.assertArrayEquals(new String[] { "an" }, encoder.encode("51"));
+		Assert.assertArrayEquals(new String[] { "bo" }, encoder.encode("78"));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void givenPrepareTwice_ShouldThrow() {
+		encoder.addWord("an");
+		encoder.prepare();
+		encoder.prepare();
+	}
+
+	@Test
+	public void afterReplaceDictionary_ShouldEncodeWithNewWords() {
+		encoder.setCache(new EncodingCache(16));
+		givenNumbers_ShouldEncode(encoder);
+		EncodingCache oldCache = encoder.getCache();
+
+		Dawg dawg = new Dawg();
+		NumberEncoder other = new NumberEncoder(numberCharacterMapping, dawg, new DawgVisitor(dawg));
+		other.addWord("Mir");
+		other.addWord("Tor");
+		other.prepare();
+		encoder.replaceDictionary(other);
+
+		Assert.assertArrayEquals(new String[] { "Mir Tor" }, encoder.encode("5624-82"));
+		Assert.assertArrayEquals(new String[] { "Tor 4" }, encoder.encode("4824"));
+		Assert.assertNotSame(oldCache, encoder.getCache());
+		Assert.assertEquals(oldCache.getCapacity(), encoder.getCache().getCapacity());
+	}
+
+	@Test
+	public void givenConcurrentReplaceDictionary_ShouldEncodeWithOldOrNewWords() throws Exception {
+		givenNumbers_ShouldEncode(encoder);
+		final List<String[]> oldWords = expectedWords();
+		final String[] newWords = { "Mir Tor" };
+
+		final Dawg dawg = new Dawg();
+		final NumberEncoder other = new NumberEncoder(numberCharacterMapping, dawg, new DawgVisitor(dawg));
+		other.addWord("Mir");
+		other.addWord("Tor");
+		other.prepare();
+
+		ExecutorService threads = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+			for (int t = 0; t < 4; t++) {
+				results.add(threads.submit(new Callable<Boolean>() {
+					public Boolean call() {
+						for (int round = 0; round < 2000; round++) {
+							String[] words = encoder.encode(numbers[1]);
+							if (!Arrays.equals(oldWords.get(1), words) && !Arrays.equals(newWords, words))
+								return false;
+						}
+						return true;
+					}
+				}));
+			}
+			encoder.replaceDictionary(other);
+			for (Future<Boolean> result : results) {
+				Assert.assertTrue(result.get());
+			}
+		} finally {
+			threads.shutdown();
+		}
+		Assert.assertArrayEquals(newWords, encoder.encode(numbers[1]));
+	}
+
+	@Test
+	public void givenLimitOrCancellation_ShouldStopEarly() {
+		givenNumbers_ShouldEncode(encoder);
+		givenLimitOrCancellation_ShouldStopEarly(encoder);
+
+		// the same with the encodings passed from the cache
+		encoder.setCache(new EncodingCache(16));
+		encoder.encode("10/783--5");
+		givenLimitOrCancellation_ShouldStopEarly(encoder);
+		Assert.assertTrue(encoder.getCache().getHits() > 0);
+	}
+
+	private void givenLimitOrCancellation_ShouldStopEarly(NumberEncoder encoder) {
+		final List<String> streamed = new ArrayList<String>();
+		EncodingSink sink = new EncodingSink() {
+			public boolean accept(CharSequence encoding) {
+				streamed.add(encoding.toString());
+				return true;
+			}
+		};
+		EncodingSink firstOnly = new EncodingSink() {
+			public boolean accept(CharSequence encoding) {
+				streamed.add(encoding.toString());
+				return false;
+			}
+		};
+
+		streamed.clear();
+		Assert.assertEquals(2, encoder.encode("10/783--5", 2, sink));
+		Assert.assertEquals(2, streamed.size());
+
+		streamed.clear();
+		Assert.assertEquals(1, encoder.encode("10/783--5", firstOnly));
+		Assert.assertEquals(1, streamed.size());
+
+		Assert.assertEquals(0, encoder.encode("10/783--5", 0, sink));
+	}
+
+	private void givenNumbers_ShouldEncode(NumberEncoder encoder) {
+		for (String word : dictionaries) {
+			encoder.addWord(word);
+		}
+		encoder.prepare();
+
+		List<String[]> words = expectedWords();
+		for (int i = 0; i < numbers.length; i++) {
+			Assert.assertArrayEquals(words.get(i), encoder.encode(numbers[i]));
+		}
+	}
+
+	private List<String[]> expectedWords() {
 		List<String[]> words = new LinkedList<String[]>();
 		words.add(new String[] {});
 		words.add(new String[] { "Mix Tor", "mir Tor" });
@@ -60,9 +509,9 @@ public class NumberEncoderTest {
 		words.add(new String[] { "so 1 Tor" });
 		words.add(new String[] { "0 fort", "0 Tor 4", "0 Torf" });
 
-		for (int i = 0; i < numbers.length; i++) {
-			Arrays.sort(words.get(i));
-			Assert.assertArrayEquals(words.get(i), encoder.encode(numbers[i]));
+		for (String[] w : words) {
+			Arrays.sort(w);
 		}
+		return words;
 	}
 }
@@ -0,0 +1,124 @@
+package encoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import image.ImageReader;
+import image.ImageWriter;
+
+import static org.junit.Assert.assertEquals;
+
+public class OriginalWordTableTest {
+	private OriginalWordTable table;
+
+	@Before
+	public void setUp() {
+		table = new OriginalWordTable();
+	}
+
+	@Test
+	public void afterPut_ShouldIndexWordsInOrder() {
+		table.put("bo", "Bo\"");
+		table.put("bos", "bo\"s");
+		assertEquals(2, table.size());
+		assertEquals("Bo\"", table.get(0, 0));
+		assertEquals("bo\"s", table.get(1, 0));
+	}
+
+	@Test
+	public void afterPutSameFormattedWord_ShouldKeepAllOriginalWords() {
+		table.put("bo", "bo\"");
+		table.put("bo", "Bo\"");
+		table.put("bo", "bo\"");
+		assertEquals(1, table.size());
+		assertEquals(2, table.getOriginalCount(0));
+		assertEquals("bo\"", table.get(0, 0));
+		assertEquals("Bo\"", table.get(0, 1));
+	}
+
+	@Test
+	public void afterPutManyWords_ShouldGetAll() {
+		for (int i = 1000; i < 2000; i++) {
+			table.put("word" + i, "Word" + i);
+		}
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(1, table.getOriginalCount(i));
+			assertEquals("Word" + (1000 + i), table.get(i, 0));
+		}
+		assertEquals(1000, table.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void givenWordsNotInOrder_ShouldThrow() {
+		table.put("bos", "bo\"s");
+		table.put("bo", "Bo\"");
+	}
+
+	@Test
+	public void afterRankSpellings_ShouldAppendSpellingsInOrder() {
+		table.put("bo", "bo\"");
+		table.put("bo", "Bo\"");
+		table.put("bos", "bo\"s");
+		table.put("tor", "Tor");
+		table.put("tor", "to-r");
+		table.rankSpellings();
+
+		String[] expected = { "Bo\"", "Tor", "bo\"", "bo\"s", "to-r" };
+		assertEquals(expected.length, table.getSpellingCount());
+		for (int rank = 0; rank < expected.length; rank++) {
+			StringBuilder builder = new StringBuilder();
+			table.appendSpelling(rank, builder);
+			assertEquals(expected[rank], builder.toString());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void givenSpellingNotIso88591_ShouldNotWriteImage() throws IOException {
+		table.put("\u0101", "\u0100");
+		table.writeTo(new ImageWriter(new ByteArrayOutputStream()));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void givenSpellingsNotRanked_ShouldThrow() {
+		table.put("bo", "Bo\"");
+		table.appendSpelling(0, new StringBuilder());
+	}
+
+	@Test
+	public void givenImage_ShouldMapSameTable() throws IOException {
+		table.put("bo", "bo\"");
+		table.put("bo", "Bo\"");
+		table.put("bos", "bo\"s");
+		// the characters are written as ISO-8859-1 bytes
+		table.put("z\u00fcge", "Z\u00fcge");
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ImageWriter image = new ImageWriter(bytes);
+		table.writeTo(image);
+		image.close();
+		MappedWordTable mapped = MappedWordTable.read(new ImageReader(ByteBuffer.wrap(bytes.toByteArray())));
+
+		assertEquals(table.size(), mapped.size());
+		for (int word = 0; word < table.size(); word++) {
+			assertEquals(table.getOriginalCount(word), mapped.getOriginalCount(word));
+			for (int original = 0; original < table.getOriginalCount(word); original++) {
+				StringBuilder builder = new StringBuilder();
+				mapped.appendOriginal(word, original, builder);
+				assertEquals(table.get(word, original), builder.toString());
+			}
+		}
+		// the spellings are ranked when the table is written
+		assertEquals(table.getSpellingCount(), mapped.getSpellingCount());
+		for (int rank = 0; rank < table.getSpellingCount(); rank++) {
+			StringBuilder expected = new StringBuilder();
+			StringBuilder builder = new StringBuilder();
+			table.appendSpelling(rank, expected);
+			mapped.appendSpelling(rank, builder);
+			assertEquals(expected.toString(), builder.toString());
+		}
+	}
+}
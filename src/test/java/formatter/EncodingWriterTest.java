@@ -0,0 +1,78 @@
+package formatter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class EncodingWriterTest {
+	private ByteArrayOutputStream output;
+
+	@Before
+	public void setUp() {
+		output = new ByteArrayOutputStream();
+	}
+
+	private String written() {
+		return new String(output.toByteArray(), Charset.defaultCharset());
+	}
+
+	@Test
+	public void givenWords_ShouldWriteLikeFormatter() throws IOException {
+		String[] words = { "je Bo\" da", "je bo\"s 5", "neu o\"d 5" };
+		EncodingWriter writer = new EncodingWriter(Channels.newChannel(output));
+
+		writer.write("10/783--5", words);
+		writer.write("112", new String[] {});
+		writer.flush();
+
+		assertEquals(NumberEncodeFormatter.format("10/783--5", words), written());
+	}
+
+	@Test
+	public void givenSmallBuffer_ShouldWriteInChunks() throws IOException {
+		String[] words = { "0 fort", "0 Tor 4", "0 Torf" };
+		EncodingWriter writer = new EncodingWriter(Channels.newChannel(output), 4);
+
+		writer.write("04824", words);
+		assertEquals(NumberEncodeFormatter.format("04824", words).length() / 4 * 4, output.size());
+
+		writer.flush();
+		assertEquals(NumberEncodeFormatter.format("04824", words), written());
+	}
+
+	@Test
+	public void givenNonAsciiWords_ShouldEncodeWithDefaultCharset() throws IOException {
+		String[] words = { "\u00e4ndern", "Stra\u00dfe 5" };
+		EncodingWriter writer = new EncodingWriter(Channels.newChannel(output), 3);
+
+		writer.write("1-2", words);
+		writer.flush();
+
+		assertArrayEquals(NumberEncodeFormatter.format("1-2", words)
+				.getBytes(Charset.defaultCharset()), output.toByteArray());
+	}
+
+	@Test
+	public void givenNewLine_ShouldWriteEmptyLine() throws IOException {
+		EncodingWriter writer = new EncodingWriter(Channels.newChannel(output));
+		writer.write("4824", new String[] { "Torf" });
+		writer.newLine();
+		writer.flush();
+		assertEquals(NumberEncodeFormatter.format("4824", new String[] { "Torf" })
+				+ System.getProperty("line.separator"), written());
+	}
+
+	@Test
+	public void beforeFlush_ShouldNotWrite() throws IOException {
+		EncodingWriter writer = new EncodingWriter(Channels.newChannel(output));
+		writer.write("4824", new String[] { "Torf" });
+		assertEquals(0, output.size());
+	}
+}
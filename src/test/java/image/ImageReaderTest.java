@@ -0,0 +1,59 @@
+package image;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ImageReaderTest {
+
+	@Test
+	public void givenWrittenArrays_ShouldReadSameValues() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ImageWriter writer = new ImageWriter(bytes);
+		writer.writeInt(3);
+		writer.writeBytes(new byte[] { 1, 2, 3 }, 3);
+		writer.writeInts(new int[] { -1, 7, 42, 99 }, 3);
+		writer.writeChars(new String[] { "an", "blau", "Bo\"" }, 2);
+		writer.writeLongs(LongBuffer.wrap(new long[] { Long.MIN_VALUE, 1L << 40 }));
+		writer.close();
+
+		ImageReader reader = new ImageReader(ByteBuffer.wrap(bytes.toByteArray()));
+		assertEquals(3, reader.readInt());
+
+		ByteBuffer byteArray = reader.readBytes(3);
+		assertEquals(3, byteArray.limit());
+		assertEquals(3, byteArray.get(2));
+
+		IntBuffer ints = reader.readInts(3);
+		assertEquals(IntBuffer.wrap(new int[] { -1, 7, 42 }), ints);
+
+		CharBuffer chars = reader.readChars(6);
+		assertEquals("anblau", chars.toString());
+
+		LongBuffer longs = reader.readLongs(2);
+		assertEquals(Long.MIN_VALUE, longs.get(0));
+		assertEquals(1L << 40, longs.get(1));
+	}
+
+	@Test
+	public void givenArray_ShouldStartAtMultipleOfEight() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ImageWriter writer = new ImageWriter(bytes);
+		writer.writeInt(1);
+		writer.writeInts(new int[] { 5 }, 1);
+		writer.close();
+
+		// 4 bytes of int, 4 bytes of padding and 4 bytes of array
+		assertEquals(12, bytes.size());
+		ImageReader reader = new ImageReader(ByteBuffer.wrap(bytes.toByteArray()));
+		assertEquals(1, reader.readInt());
+		assertEquals(5, reader.readInts(1).get(0));
+	}
+}
@@ -0,0 +1,98 @@
+package main;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import encoder.NumberEncoder;
+
+public class DictionaryWatcherTest {
+	private static final String NEW_LINE = System.getProperty("line.separator");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File dictionary;
+	private NumberEncoder encoder;
+
+	@Before
+	public void setUp() throws IOException {
+		dictionary = folder.newFile("dictionary.txt");
+		writeFile(dictionary, new String[] { "mir", "Mix", "Tor" });
+		encoder = NumberEncoderApp.loadDictionary(dictionary.getPath());
+	}
+
+	private void writeFile(File file, String[] lines) throws IOException {
+		BufferedWriter out = new BufferedWriter(new FileWriter(file));
+		for (String line : lines) {
+			out.write(line + NEW_LINE);
+		}
+		out.close();
+	}
+
+	@Test
+	public void givenModifiedDictionary_ShouldReload() throws IOException {
+		DictionaryWatcher watcher = new DictionaryWatcher(dictionary.getPath(), encoder);
+		try {
+			watcher.run();
+			Assert.assertEquals(0, watcher.getReloads());
+
+			writeFile(dictionary, new String[] { "Mir", "Tor" });
+			Assert.assertTrue(dictionary.setLastModified(dictionary.lastModified() + 2000));
+			watcher.run();
+			// only loaded once it stays the same for a check
+			Assert.assertEquals(0, watcher.getReloads());
+			watcher.run();
+			Assert.assertEquals(1, watcher.getReloads());
+			Assert.assertArrayEquals(new String[] { "Mir Tor" }, encoder.encode("5624-82"));
+			watcher.run();
+			Assert.assertEquals(1, watcher.getReloads());
+		} finally {
+			watcher.close();
+		}
+	}
+
+	@Test
+	public void givenDictionaryBeingWritten_ShouldReloadOnlyWhenComplete() throws IOException {
+		DictionaryWatcher watcher = new DictionaryWatcher(dictionary.getPath(), encoder);
+		try {
+			// the first part of the new dictionary is written
+			writeFile(dictionary, new String[] { "Mir" });
+			long modified = dictionary.lastModified() + 2000;
+			Assert.assertTrue(dictionary.setLastModified(modified));
+			watcher.run();
+			Assert.assertEquals(0, watcher.getReloads());
+
+			// the rest is written within the same tick of the modification time
+			writeFile(dictionary, new String[] { "Mir", "Tor" });
+			Assert.assertTrue(dictionary.setLastModified(modified));
+			watcher.run();
+			Assert.assertEquals(0, watcher.getReloads());
+			watcher.run();
+			Assert.assertEquals(1, watcher.getReloads());
+			Assert.assertArrayEquals(new String[] { "Mir Tor" }, encoder.encode("5624-82"));
+		} finally {
+			watcher.close();
+		}
+	}
+
+	@Test
+	public void givenMissingDictionary_ShouldKeepOldOne() {
+		DictionaryWatcher watcher = new DictionaryWatcher(dictionary.getPath(), encoder);
+		try {
+			Assert.assertTrue(dictionary.delete());
+			Assert.assertFalse(watcher.reload());
+			Assert.assertEquals(0, watcher.getReloads());
+			Assert.assertArrayEquals(new String[] { "Mix Tor", "mir Tor" }, encoder.encode("5624-82"));
+		} finally {
+			watcher.close();
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package main;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import reader.AsciiLineReader;
+import encoder.NumberEncoder;
+
+public class EncodingServerTest {
+	private final String[] numbers = { "112", "5624-82", "4824",
+			"0721/608-4067", "10/783--5", "1078-913-5", "381482", "04824" };
+	private final String[] dictionaries = new String[] { "an", "blau", "Bo\"",
+			"Boot", "bo\"s", "da", "Fee", "fern", "Fest", "fort", "je",
+			"jemand", "mir", "Mix", "Mixer", "Name", "neu", "o\"d", "Ort",
+			"so", "Tor", "Torf", "Wasser" };
+
+	private NumberEncoder encoder;
+	private EncodingServer server;
+
+	@Before
+	public void setUp() throws IOException {
+		encoder = NumberEncoderApp.newEncoder();
+		for (String word : dictionaries) {
+			encoder.addWord(word);
+		}
+		encoder.prepare();
+
+		// a tiny queue and batches make the connections wait for each other
+		server = new EncodingServer(encoder, 2, 3, 2);
+		server.start(0);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		server.close();
+	}
+
+	private List<String> expectedAnswer(String number) {
+		List<String> lines = new ArrayList<String>();
+		for (String words : encoder.encode(number)) {
+			lines.add(number + ": " + words);
+		}
+		lines.add("");
+		return lines;
+	}
+
+	@Test
+	public void givenPipelinedNumbers_ShouldAnswerInOrder() throws IOException {
+		Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+		try {
+			OutputStream out = socket.getOutputStream();
+			StringBuilder request = new StringBuilder();
+			List<String> expected = new ArrayList<String>();
+			for (int round = 0; round < 50; round++) {
+				for (String number : numbers) {
+					request.append(number).append('\n');
+					expected.addAll(expectedAnswer(number));
+				}
+			}
+			out.write(request.toString().getBytes(StandardCharsets.ISO_8859_1));
+			socket.shutdownOutput();
+
+			AsciiLineReader in = new AsciiLineReader(Channels.newChannel(socket.getInputStream()));
+			List<String> answer = new ArrayList<String>();
+			while (in.nextLine()) {
+				answer.add(in.lineAsString());
+			}
+			Assert.assertEquals(expected, answer);
+		} finally {
+			socket.close();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void givenLineLongerThanMaximum_ShouldCloseConnection() throws IOException {
+		Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+		try {
+			// bytes without any line terminator
+			byte[] line = new byte[4 * EncodingServer.MAX_LINE_LENGTH];
+			Arrays.fill(line, (byte) '1');
+			socket.getOutputStream().write(line);
+
+			try {
+				Assert.assertEquals(-1, socket.getInputStream().read());
+			} catch (SocketException e) {
+				// the server closed the connection before reading everything
+			}
+		} finally {
+			socket.close();
+		}
+
+		// the server still answers other connections
+		socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+		try {
+			socket.getOutputStream().write("4824\n".getBytes(StandardCharsets.ISO_8859_1));
+			socket.shutdownOutput();
+			AsciiLineReader in = new AsciiLineReader(Channels.newChannel(socket.getInputStream()));
+			List<String> answer = new ArrayList<String>();
+			while (in.nextLine()) {
+				answer.add(in.lineAsString());
+			}
+			Assert.assertEquals(expectedAnswer("4824"), answer);
+		} finally {
+			socket.close();
+		}
+	}
+
+	@Test
+	public void givenLoadTest_ShouldAnswerEveryNumber() throws IOException {
+		LoadTestClient.Result result = new LoadTestClient(server.getPort(), 4, 100).run(Arrays.asList(numbers));
+
+		// every connection starts at a different number
+		long encodings = 0;
+		for (int connection = 0; connection < 4; connection++) {
+			for (int i = 0; i < 100; i++) {
+				encodings += encoder.encode(numbers[(connection * 2 + i) % numbers.length]).length;
+			}
+		}
+		Assert.assertEquals(400, result.getRequests());
+		Assert.assertEquals(encodings, result.getEncodings());
+		Assert.assertTrue(result.getLatencyPercentile(50) <= result.getLatencyPercentile(99));
+		Assert.assertEquals(400, server.getRequests());
+	}
+}
@@ -6,7 +6,9 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.*;
+import java.nio.file.Files;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -50,6 +52,86 @@ public class NumberEncoderAppTest {
 
 	@Test
 	public void givenPhonebookAndDictionary_ShouldDisplay() throws IOException {
+		givenPhonebookAndDictionary_ShouldDisplay(new String[] {
+				phonebook.getPath(), dictionary.getPath() });
+	}
+
+	@Test
+	public void givenThreadsOption_ShouldDisplayInInputOrder() throws IOException {
+		givenPhonebookAndDictionary_ShouldDisplay(new String[] {
+				phonebook.getPath(), dictionary.getPath(), "--threads", "3",
+				"--batch-size", "1" });
+	}
+
+	@Test
+	public void givenOutputOption_ShouldWriteFile() throws IOException {
+		File output = new File(folder.getRoot(), "output.txt");
+		NumberEncoderApp.main(new String[] { phonebook.getPath(),
+				dictionary.getPath(), "--output", output.getPath() });
+
+		ByteArrayOutputStream testOutputStream = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(testOutputStream));
+		NumberEncoderApp.main(new String[] { phonebook.getPath(), dictionary.getPath() });
+
+		assertEquals(testOutputStream.toString(), new String(
+				Files.readAllBytes(output.toPath())));
+	}
+
+	@Test
+	public void givenUnsortedDictionary_ShouldDisplay() throws IOException {
+		List<String> lines = Files.readAllLines(dictionary.toPath());
+		Collections.reverse(lines);
+		// a duplicate word is only encoded once
+		lines.add("Tor");
+		writeFile(dictionary, lines.toArray(new String[lines.size()]));
+
+		givenPhonebookAndDictionary_ShouldDisplay(new String[] {
+				phonebook.getPath(), dictionary.getPath() });
+	}
+
+	@Test
+	public void givenCompiledDictionary_ShouldDisplay() throws IOException {
+		File image = new File(folder.getRoot(), "dictionary.img");
+		NumberEncoderApp.main(new String[] { "compile", dictionary.getPath(),
+				image.getPath() });
+		assertTrue(image.exists());
+
+		givenPhonebookAndDictionary_ShouldDisplay(new String[] {
+				phonebook.getPath(), image.getPath() });
+	}
+
+	@Test
+	public void givenCountOrExists_ShouldDisplayPerNumber() throws IOException {
+		int[] counts = { 0, 2, 3, 0, 3, 0, 1, 3 };
+		for (String mode : new String[] { "count", "exists" }) {
+			ByteArrayOutputStream testOutputStream = new ByteArrayOutputStream();
+			System.setOut(new PrintStream(testOutputStream));
+			NumberEncoderApp.main(new String[] { mode, phonebook.getPath(), dictionary.getPath() });
+
+			String output = "";
+			for (int i = 0; i < numbers.length; i++) {
+				output += numbers[i] + ": " + (mode.equals("count") ? counts[i] : counts[i] > 0) + NEW_LINE;
+			}
+			assertEquals(output, testOutputStream.toString());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void givenOptionWithoutValue_ShouldThrow() throws IOException {
+		NumberEncoderApp.main(new String[] { phonebook.getPath(), dictionary.getPath(), "--threads" });
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void givenServeOptionWithoutValue_ShouldThrow() throws IOException {
+		NumberEncoderApp.main(new String[] { "serve", dictionary.getPath(), "--port", "0", "--threads" });
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void givenLoadTestOptionWithoutValue_ShouldThrow() throws IOException {
+		NumberEncoderApp.main(new String[] { "loadtest", phonebook.getPath(), "--requests" });
+	}
+
+	private void givenPhonebookAndDictionary_ShouldDisplay(String[] args) throws IOException {
 
 		ByteArrayOutputStream testOutputStream = new ByteArrayOutputStream();
 		System.setOut(new PrintStream(testOutputStream));
@@ -73,7 +155,7 @@ public class NumberEncoderAppTest {
 			}
 		}
 
-        NumberEncoderApp.main(new String[]{phonebook.getPath(), dictionary.getPath()});
+        NumberEncoderApp.main(args);
 
 		assertEquals(output, testOutputStream.toString());
 
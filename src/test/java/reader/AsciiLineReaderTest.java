@@ -0,0 +1,174 @@
+package reader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Scanner;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AsciiLineReaderTest {
+
+	private static AsciiLineReader readerOf(String text, int bufferSize) {
+		return new AsciiLineReader(Channels.newChannel(new ByteArrayInputStream(
+				text.getBytes(StandardCharsets.ISO_8859_1))), bufferSize);
+	}
+
+	private static List<String> readLines(String text, int bufferSize) throws IOException {
+		AsciiLineReader reader = readerOf(text, bufferSize);
+		List<String> lines = new ArrayList<String>();
+		while (reader.nextLine()) {
+			lines.add(reader.line().toString());
+		}
+		reader.close();
+		return lines;
+	}
+
+	private static List<String> scanLines(String text) {
+		Scanner scanner = new Scanner(text);
+		List<String> lines = new ArrayList<String>();
+		while (scanner.hasNextLine()) {
+			lines.add(scanner.nextLine());
+		}
+		scanner.close();
+		return lines;
+	}
+
+	@Test
+	public void givenLineTerminators_ShouldReadLikeScanner() throws IOException {
+		String text = "112\n5624-82\r\n\r\n4824\r0721/608-4067\n\n10/783--5";
+		assertEquals(scanLines(text), readLines(text, 64));
+		assertEquals(scanLines(text), readLines(text, 1));
+	}
+
+	@Test
+	public void givenTrailingLineTerminator_ShouldNotReadEmptyLastLine() throws IOException {
+		assertEquals(scanLines("a\nb\n"), readLines("a\nb\n", 2));
+		assertEquals(scanLines("a\r\n"), readLines("a\r\n", 2));
+	}
+
+	@Test
+	public void givenEmptyInput_ShouldReadNoLine() throws IOException {
+		assertFalse(readerOf("", 4).nextLine());
+	}
+
+	@Test
+	public void givenPartialLastLine_ShouldNotHaveBufferedLine() throws IOException {
+		final Queue<String> chunks = new ArrayDeque<String>(Arrays.asList("a\r", "\nb\nc", "\n"));
+		AsciiLineReader reader = new AsciiLineReader(new ReadableByteChannel() {
+			public int read(ByteBuffer dst) {
+				if (chunks.isEmpty())
+					return -1;
+				byte[] chunk = chunks.remove().getBytes(StandardCharsets.ISO_8859_1);
+				dst.put(chunk);
+				return chunk.length;
+			}
+
+			public boolean isOpen() {
+				return true;
+			}
+
+			public void close() {
+			}
+		}, 64);
+
+		assertTrue(reader.nextLine());
+		assertEquals("a", reader.lineAsString());
+		assertFalse(reader.hasBufferedLine());
+		assertTrue(reader.nextLine());
+		assertEquals("b", reader.lineAsString());
+		assertFalse(reader.hasBufferedLine());
+		assertTrue(reader.nextLine());
+		assertEquals("c", reader.lineAsString());
+		assertFalse(reader.hasBufferedLine());
+		assertFalse(reader.nextLine());
+		assertTrue(reader.hasBufferedLine());
+	}
+
+	@Test
+	public void givenRandomLinesAndBufferSizes_ShouldReadLikeScanner() throws IOException {
+		Random random = new Random(42);
+		String[] terminators = { "\n", "\r\n", "\r" };
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 2000; i++) {
+			int length = random.nextInt(60);
+			for (int j = 0; j < length; j++) {
+				text.append((char) ('-' + random.nextInt(13)));
+			}
+			text.append(terminators[random.nextInt(terminators.length)]);
+		}
+
+		List<String> expected = scanLines(text.toString());
+		for (int bufferSize : new int[] { 1, 3, 17, 4096 }) {
+			assertEquals(expected, readLines(text.toString(), bufferSize));
+		}
+	}
+
+	@Test
+	public void givenLineLongerThanMaximum_ShouldThrow() throws IOException {
+		AsciiLineReader reader = new AsciiLineReader(Channels.newChannel(new ByteArrayInputStream(
+				"1234\n12345\n".getBytes(StandardCharsets.ISO_8859_1))), 2, 4);
+		assertTrue(reader.nextLine());
+		assertEquals("1234", reader.lineAsString());
+		try {
+			reader.nextLine();
+			fail();
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	@Test(timeout = 5000)
+	public void givenEndlessLine_ShouldThrowWithoutBufferingIt() throws IOException {
+		AsciiLineReader reader = new AsciiLineReader(new ReadableByteChannel() {
+			public int read(ByteBuffer dst) {
+				int count = dst.remaining();
+				while (dst.hasRemaining()) {
+					dst.put((byte) '1');
+				}
+				return count;
+			}
+
+			public boolean isOpen() {
+				return true;
+			}
+
+			public void close() {
+			}
+		}, 16, 100);
+
+		try {
+			reader.nextLine();
+			fail();
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void givenLine_ShouldBeCharSequenceOfLine() throws IOException {
+		AsciiLineReader reader = readerOf("Bo\"\nneu", 4);
+		assertTrue(reader.nextLine());
+		CharSequence line = reader.line();
+		assertEquals(3, line.length());
+		assertEquals('"', line.charAt(2));
+		assertEquals("o\"", line.subSequence(1, 3).toString());
+		assertEquals("Bo\"", reader.lineAsString());
+		assertTrue(reader.nextLine());
+		assertEquals("neu", reader.lineAsString());
+	}
+}
@@ -0,0 +1,57 @@
+package visitors;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DigitKeyTest {
+
+	private static DigitKey keyOf(String digits) {
+		int[] values = new int[digits.length()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = digits.charAt(i) - '0';
+		}
+		DigitKey key = new DigitKey();
+		assertTrue(key.set(values, values.length));
+		return key;
+	}
+
+	@Test
+	public void givenSameDigits_ShouldEqualKeys() {
+		assertEquals(keyOf("107835"), keyOf("107835"));
+		assertEquals(keyOf("107835").hashCode(), keyOf("107835").hashCode());
+		assertEquals(keyOf(""), keyOf(""));
+		assertEquals(keyOf("12345678901234567890"), keyOf("12345678901234567890").copy());
+	}
+
+	@Test
+	public void givenDifferentDigits_ShouldNotEqualKeys() {
+		assertNotEquals(keyOf("107835"), keyOf("107836"));
+		// trailing zeros pack to the same bits, so the length tells them apart
+		assertNotEquals(keyOf("1"), keyOf("10"));
+		assertNotEquals(keyOf("1234567890123456"), keyOf("12345678901234560"));
+	}
+
+	@Test
+	public void givenReusedKey_ShouldPackNewDigits() {
+		DigitKey key = keyOf("12345678901234567890");
+		assertTrue(key.set(new int[] { 4, 8, 2, 4 }, 4));
+		assertEquals(keyOf("4824"), key);
+	}
+
+	@Test
+	public void givenNonDigit_ShouldNotPack() {
+		assertFalse(new DigitKey().set(new int[] { 1, -1 }, 2));
+		assertFalse(new DigitKey().set(new int[] { 10 }, 1));
+	}
+
+	@Test
+	public void givenStart_ShouldPackDigitsFromStart() {
+		DigitKey key = new DigitKey();
+		assertTrue(key.set(new int[] { 5, 6, 2, 4, 8, 2 }, 2, 6));
+		assertEquals(keyOf("2482"), key);
+	}
+}
@@ -0,0 +1,207 @@
+package visitors;
+
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import dawg.CompiledDawg;
+import dawg.DigitTrie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MemoizedVisitorTest {
+	private final String[] dictionaries = new String[] { "an", "blau", "bo",
+			"boot", "bos", "da", "fee", "fern", "fest", "fort", "je", "jemand",
+			"mir", "mix", "mixer", "name", "neu", "od", "ort", "so", "tor",
+			"torf", "wasser" };
+
+	private Map<Integer, char[]> numberCharacterMapping;
+
+	@Before
+	public void setUp() {
+		numberCharacterMapping = new HashMap<Integer, char[]>();
+
+		numberCharacterMapping.put(0, new char[] { 'e' });
+		numberCharacterMapping.put(1, new char[] { 'j', 'n', 'q' });
+		numberCharacterMapping.put(2, new char[] { 'r', 'w', 'x' });
+		numberCharacterMapping.put(3, new char[] { 'd', 's', 'y' });
+		numberCharacterMapping.put(4, new char[] { 'f', 't' });
+		numberCharacterMapping.put(5, new char[] { 'a', 'm' });
+		numberCharacterMapping.put(6, new char[] { 'c', 'i', 'v' });
+		numberCharacterMapping.put(7, new char[] { 'b', 'k', 'u' });
+		numberCharacterMapping.put(8, new char[] { 'l', 'o', 'p' });
+		numberCharacterMapping.put(9, new char[] { 'g', 'h', 'z' });
+	}
+
+	private List<Entry<Integer, char[]>> queueOf(String number) {
+		List<Entry<Integer, char[]>> queue = new ArrayList<Entry<Integer, char[]>>();
+		for (char ch : number.toCharArray()) {
+			int digit = ch - '0';
+			queue.add(new SimpleEntry<Integer, char[]>(digit, numberCharacterMapping.get(digit)));
+		}
+		return queue;
+	}
+
+	@Test
+	public void givenNumbers_ShouldListSameEncodingsInSameOrderAsDawgVisitor() {
+		CompiledDawg dawg = new CompiledDawg();
+		for (String word : dictionaries) {
+			dawg.add(word);
+		}
+		dawg.construct();
+
+		Visitor expected = new DawgVisitor(dawg);
+		Visitor visitor = new MemoizedDawgVisitor(dawg);
+
+		String[] numbers = { "", "5", "112", "562482", "4824", "07216084067",
+				"107835", "10789135", "381482", "04824", "0482404824" };
+		for (String number : numbers) {
+			assertEquals(expected.visit(queueOf(number)), visitor.visit(queueOf(number)));
+		}
+	}
+
+	@Test
+	public void givenNumbers_ShouldListSameEncodingsWithDigitTrie() {
+		DigitTrie trie = new DigitTrie(numberCharacterMapping);
+		CompiledDawg dawg = new CompiledDawg();
+		for (String word : dictionaries) {
+			trie.add(word);
+			dawg.add(word);
+		}
+		dawg.construct();
+
+		Visitor expected = new DawgVisitor(dawg);
+		Visitor visitor = new MemoizedDigitTrieVisitor(trie);
+
+		String[] numbers = { "", "5", "112", "562482", "4824", "07216084067",
+				"107835", "10789135", "381482", "04824", "0482404824" };
+		for (String number : numbers) {
+			List<String> encodings = new ArrayList<String>();
+			for (String encoding : visitor.visit(queueOf(number))) {
+				encodings.add(spell(encoding));
+			}
+			List<String> expectedEncodings = expected.visit(queueOf(number));
+			assertEquals(expectedEncodings.size(), encodings.size());
+			assertTrue(encodings.containsAll(expectedEncodings));
+		}
+	}
+
+	/**
+	 * Replace the ranks of an encoding of the trie with the words, which are
+	 * ranked in the order they're added.
+	 */
+	private String spell(String encoding) {
+		StringBuilder spelled = new StringBuilder();
+		for (String token : encoding.split(" ", -1)) {
+			if (spelled.length() > 0)
+				spelled.append(' ');
+			spelled.append(token.startsWith("#") ? dictionaries[Integer.parseInt(token.substring(1))] : token);
+		}
+		return spelled.toString();
+	}
+
+	@Test
+	public void givenBatch_ShouldListSameEncodingsPerNumber() {
+		// numbers sharing their first digits, in no order, and duplicates
+		assertBatchListsSameEncodings("562482", "4824", "", "482404824", "5624", "10789135",
+				"107835", "0482404824", "5", "04824", "10789135", "562482", "48");
+	}
+
+	@Test
+	public void givenBatchSharingLongPrefixes_ShouldListSameEncodingsPerNumber() {
+		// enough shared digits for the batch to be walked once
+		String prefix = "0482404824562482";
+		assertBatchListsSameEncodings(prefix + "4824", prefix + "10789135", prefix, prefix + "5624",
+				prefix + "4824", prefix + "107835", prefix + "48", prefix + "0");
+	}
+
+	private void assertBatchListsSameEncodings(String... numbers) {
+		DigitTrie trie = new DigitTrie(numberCharacterMapping);
+		for (String word : dictionaries) {
+			trie.add(word);
+		}
+		Visitor visitor = new MemoizedDigitTrieVisitor(trie);
+
+		int[][] digits = new int[numbers.length][];
+		int[] lengths = new int[numbers.length];
+		final List<List<String>> encodings = new ArrayList<List<String>>();
+		for (int i = 0; i < numbers.length; i++) {
+			digits[i] = new int[numbers[i].length() + 2];
+			lengths[i] = numbers[i].length();
+			for (int d = 0; d < lengths[i]; d++) {
+				digits[i][d] = numbers[i].charAt(d) - '0';
+			}
+			encodings.add(new ArrayList<String>());
+		}
+
+		char[][] digitToCharacters = new char[10][];
+		for (Entry<Integer, char[]> e : numberCharacterMapping.entrySet()) {
+			digitToCharacters[e.getKey()] = e.getValue();
+		}
+		final int[] lastNumber = { -1 };
+		visitor.visitAll(digits, lengths, numbers.length, digitToCharacters, new BatchPathListener() {
+			public boolean onPath(int number, EncodingPath path) {
+				// the encodings of a number come one after the other
+				assertTrue(number == lastNumber[0] || encodings.get(number).isEmpty());
+				lastNumber[0] = number;
+				encodings.get(number).add(path.toString());
+				return true;
+			}
+		});
+
+		for (int i = 0; i < numbers.length; i++) {
+			assertEquals(visitor.visit(queueOf(numbers[i])), encodings.get(i));
+		}
+	}
+
+	@Test(timeout = 5000)
+	public void givenListenerStops_ShouldStopEveryVisitor() {
+		// 48 zeros can be encoded with "e" and "ee" in almost 8 billion ways
+		CompiledDawg dawg = new CompiledDawg();
+		DigitTrie trie = new DigitTrie(numberCharacterMapping);
+		dawg.add("e");
+		dawg.add("ee");
+		dawg.construct();
+		trie.add("e");
+		trie.add("ee");
+
+		int[] digits = new int[48];
+		char[][] digitToCharacters = { numberCharacterMapping.get(0) };
+		Visitor[] visitors = { new DawgVisitor(dawg), new DigitTrieVisitor(trie),
+				new MemoizedDawgVisitor(dawg), new MemoizedDigitTrieVisitor(trie) };
+		for (Visitor visitor : visitors) {
+			final int[] paths = new int[1];
+			visitor.visit(digits, digits.length, digitToCharacters, new PathListener() {
+				public boolean onPath(EncodingPath path) {
+					return ++paths[0] < 3;
+				}
+			});
+			assertEquals(3, paths[0]);
+		}
+	}
+
+	@Test(timeout = 5000)
+	public void givenDeadEndAfterManyPartialEncodings_ShouldNotExploreThemAll() {
+		// "e" and "ee" encode 48 zeros in almost 8 billion ways, but none of
+		// them can be completed with two ones
+		CompiledDawg dawg = new CompiledDawg();
+		dawg.add("e");
+		dawg.add("ee");
+		dawg.construct();
+
+		StringBuilder number = new StringBuilder();
+		for (int i = 0; i < 48; i++) {
+			number.append('0');
+		}
+		number.append("11");
+
+		assertTrue(new MemoizedDawgVisitor(dawg).visit(queueOf(number.toString())).isEmpty());
+	}
+}
@@ -0,0 +1,144 @@
+package visitors;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import dawg.Dawg;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SuffixCacheTest {
+	private final int[] digits = { 5, 6, 2, 4, 8, 2 };
+
+	private static SuffixCache.Key keyOf(int[] digits, int start, boolean afterDigit) {
+		SuffixCache.Key key = new SuffixCache.Key();
+		key.set(digits, start, digits.length, afterDigit);
+		return key;
+	}
+
+	@Test
+	public void givenDigitFlag_ShouldNotEqualKeys() {
+		assertEquals(keyOf(digits, 2, true), keyOf(digits, 2, true).copy());
+		assertNotEquals(keyOf(digits, 2, false), keyOf(digits, 2, true));
+		// a plain key of the same digits isn't a suffix key
+		DigitKey plain = new DigitKey();
+		plain.set(digits, 2, digits.length);
+		assertNotEquals(plain, keyOf(digits, 2, false));
+		assertNotEquals(keyOf(digits, 2, false), plain);
+	}
+
+	@Test
+	public void givenSameDigits_ShouldFindEncodings() {
+		SuffixCache cache = new SuffixCache(1024);
+		char[] encodings = "Tor 4 \n".toCharArray();
+		assertTrue(cache.put(keyOf(digits, 2, false), encodings, 0));
+
+		// the same digits at the end of another number
+		int[] other = { 1, 2, 4, 8, 2 };
+		assertArrayEquals(encodings, cache.get(keyOf(other, 1, false)));
+		assertNull(cache.get(keyOf(other, 1, true)));
+		assertNull(cache.get(keyOf(other, 0, false)));
+		assertEquals(1, cache.getHits());
+		assertEquals(2, cache.getMisses());
+	}
+
+	@Test
+	public void givenNoEncodings_ShouldCacheEmptyArray() {
+		SuffixCache cache = new SuffixCache(1024);
+		cache.put(keyOf(digits, 0, true), new char[0], 0);
+		assertEquals(0, cache.get(keyOf(digits, 0, true)).length);
+	}
+
+	@Test
+	public void givenMoreWeightThanMaximum_ShouldEvictLeastRecentlyUsed() {
+		SuffixCache.Key first = keyOf(digits, 0, false);
+		char[] encodings = new char[100];
+		long weight = SuffixCache.weigh(first, encodings);
+		SuffixCache cache = new SuffixCache(3 * weight);
+
+		for (int start = 0; start < 3; start++) {
+			cache.put(keyOf(digits, start, false), encodings, 0);
+		}
+		assertEquals(3 * weight, cache.getWeight());
+		cache.get(first);
+
+		// the second entry is the least recently used
+		cache.put(keyOf(digits, 3, false), encodings, 0);
+		assertEquals(3, cache.size());
+		assertEquals(1, cache.getEvictions());
+		assertNull(cache.get(keyOf(digits, 1, false)));
+		assertTrue(cache.get(first) != null);
+		assertTrue(cache.getWeight() <= cache.getMaximumWeight());
+	}
+
+	@Test
+	public void givenEntryHeavierThanSegment_ShouldNotCache() {
+		SuffixCache cache = new SuffixCache(1024);
+		assertFalse(cache.put(keyOf(digits, 0, false), new char[1024], 0));
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getWeight());
+	}
+
+	@Test
+	public void givenSameKeyAgain_ShouldReplaceWeight() {
+		SuffixCache cache = new SuffixCache(4096);
+		cache.put(keyOf(digits, 0, false), new char[100], 0);
+		cache.put(keyOf(digits, 0, false), new char[10], 0);
+		assertEquals(1, cache.size());
+		assertEquals(SuffixCache.weigh(keyOf(digits, 0, false), new char[10]), cache.getWeight());
+	}
+
+	@Test
+	public void givenGraphChanged_ShouldDropEntries() {
+		SuffixCache cache = new SuffixCache(1024);
+		cache.put(keyOf(digits, 0, false), new char[10], 0);
+		cache.validate(0);
+		assertEquals(1, cache.size());
+
+		cache.validate(1);
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getWeight());
+		// encodings found in the old graph are refused
+		assertFalse(cache.put(keyOf(digits, 0, false), new char[10], 0));
+		assertTrue(cache.put(keyOf(digits, 0, false), new char[10], 1));
+	}
+
+	@Test
+	public void afterWordsChanged_ShouldNotReplayOldEncodings() {
+		Dawg dawg = new Dawg();
+		dawg.add("ab");
+		dawg.construct();
+		DawgVisitor visitor = new DawgVisitor(dawg, new SuffixCache(1024));
+		char[][] digitToCharacters = { null, { 'a' }, { 'b' }, { 'c' } };
+		int[] number = { 3, 1, 2, 1, 2 };
+		assertEquals(Arrays.asList("3 ab ab"), encodingsOf(visitor, number, digitToCharacters));
+
+		dawg.add("abab");
+		dawg.remove("ab");
+		assertEquals(Arrays.asList("3 abab"), encodingsOf(visitor, number, digitToCharacters));
+	}
+
+	private static List<String> encodingsOf(Visitor visitor, int[] number, char[][] digitToCharacters) {
+		final List<String> encodings = new ArrayList<String>();
+		visitor.visit(number, number.length, digitToCharacters, new PathListener() {
+			public boolean onPath(EncodingPath path) {
+				encodings.add(path.toString());
+				return true;
+			}
+		});
+		return encodings;
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void givenNoWeight_ShouldThrow() {
+		new SuffixCache(0);
+	}
+}
@@ -0,0 +1,72 @@
+package visitors;
+
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import dawg.CompiledDawg;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs in the instrumented execution of the build, with
+ * encoder.instrumentation set.
+ */
+public class VisitStatisticsTest {
+	private final String[] dictionaries = new String[] { "an", "blau", "bo",
+			"boot", "bos", "da", "fee", "fern", "fest", "fort", "je", "jemand",
+			"mir", "mix", "mixer", "name", "neu", "od", "ort", "so", "tor",
+			"torf", "wasser" };
+
+	private final char[][] digitToCharacters = { { 'e' }, { 'j', 'n', 'q' },
+			{ 'r', 'w', 'x' }, { 'd', 's', 'y' }, { 'f', 't' }, { 'a', 'm' },
+			{ 'c', 'i', 'v' }, { 'b', 'k', 'u' }, { 'l', 'o', 'p' },
+			{ 'g', 'h', 'z' } };
+
+	private CompiledDawg dawg;
+
+	@Before
+	public void setUp() {
+		Assume.assumeTrue(VisitStatistics.ENABLED);
+		dawg = new CompiledDawg();
+		for (String word : dictionaries) {
+			dawg.add(word);
+		}
+		dawg.construct();
+	}
+
+	private List<Entry<Integer, char[]>> queueOf(String number) {
+		List<Entry<Integer, char[]>> queue = new ArrayList<Entry<Integer, char[]>>();
+		for (char ch : number.toCharArray()) {
+			int digit = ch - '0';
+			queue.add(new SimpleEntry<Integer, char[]>(digit, digitToCharacters[digit]));
+		}
+		return queue;
+	}
+
+	@Test
+	public void givenInstrumentation_ShouldCountVisits() {
+		for (Visitor visitor : new Visitor[] { new DawgVisitor(dawg), new MemoizedDawgVisitor(dawg) }) {
+			VisitStatistics statistics = VisitStatistics.current();
+			statistics.reset();
+			// "0 fort", "0 Tor 4", "0 Torf" keep the leading digit
+			visitor.visit(queueOf("04824"));
+			assertTrue(statistics.getNodesVisited() > 0);
+			assertTrue(statistics.getDigitFallbacks() > 0);
+
+			// "je" and "neu" lead nowhere
+			statistics.reset();
+			visitor.visit(queueOf("10789135"));
+			assertTrue(statistics.getDeadBranches() > 0);
+
+			statistics.reset();
+			assertEquals(0, statistics.getNodesVisited());
+		}
+	}
+}